@@ -0,0 +1,28 @@
+import org.gradle.api.DefaultTask
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Instruments the android-all jar of every SDK supported on this JDK ahead of time. Point the
+ * robolectric.preinstrumented.dir system property at outputDir to have tests use them.
+ */
+class PreinstrumentAndroidAllTask extends DefaultTask {
+    @OutputDirectory
+    File outputDir
+
+    @TaskAction
+    public void preinstrument() throws Exception {
+        AndroidSdk.JDK_SUPPORTED_SDKS.each { AndroidSdk sdk ->
+            def androidAll = project.configurations.detachedConfiguration(project.dependencies.create(sdk.coordinates))
+            androidAll.transitive = false
+            File androidAllJar = androidAll.singleFile
+
+            logger.info "Pre-instrumenting ${androidAllJar.name}…"
+            project.javaexec {
+                main = "org.robolectric.internal.bytecode.PreinstrumentedJar"
+                classpath = project.sourceSets.main.runtimeClasspath
+                args androidAllJar.absolutePath, outputDir.absolutePath
+            }
+        }
+    }
+}
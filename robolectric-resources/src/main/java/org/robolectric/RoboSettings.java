@@ -8,11 +8,21 @@ public class RoboSettings {
   private static String mavenRepositoryId;
   private static String mavenRepositoryUrl;
   private static boolean useGlobalScheduler;
+  private static String cacheDirectory;
+  private static int parallelThreads;
+  private static int maxSdkEnvironments;
+  private static boolean prewarmSdkEnvironments;
+  private static String preinstrumentedJarDirectory;
 
   static {
     mavenRepositoryId = System.getProperty("robolectric.dependency.repo.id", "sonatype");
     mavenRepositoryUrl = System.getProperty("robolectric.dependency.repo.url", "https://oss.sonatype.org/content/groups/public/");
     useGlobalScheduler = Boolean.getBoolean("robolectric.scheduling.global");
+    cacheDirectory = System.getProperty("robolectric.cache.dir");
+    parallelThreads = Integer.getInteger("robolectric.parallel.threads", 1);
+    maxSdkEnvironments = Integer.getInteger("robolectric.environments.max", 0);
+    prewarmSdkEnvironments = Boolean.getBoolean("robolectric.environments.prewarm");
+    preinstrumentedJarDirectory = System.getProperty("robolectric.preinstrumented.dir");
   }
 
   public static String getMavenRepositoryId() {
@@ -38,4 +48,70 @@ public class RoboSettings {
   public static void setUseGlobalScheduler(boolean useGlobalScheduler) {
     RoboSettings.useGlobalScheduler = useGlobalScheduler;
   }
+
+  /**
+   * Directory in which Robolectric may persist data between JVM runs, such as instrumented classes.
+   *
+   * @return The cache directory, or null if persistent caching is disabled.
+   */
+  public static String getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  public static void setCacheDirectory(String cacheDirectory) {
+    RoboSettings.cacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * Number of threads on which test methods are run concurrently, each in its own set of Robolectric classloaders.
+   *
+   * @return The thread count; 1 (the default) runs tests sequentially on the calling thread.
+   */
+  public static int getParallelThreads() {
+    return parallelThreads;
+  }
+
+  public static void setParallelThreads(int parallelThreads) {
+    RoboSettings.parallelThreads = parallelThreads;
+  }
+
+  /**
+   * Maximum number of SDK environments (Robolectric classloaders and their framework resources) kept alive for reuse.
+   *
+   * @return The pool size, or 0 (the default) to size the pool from the supported SDKs and parallel thread count.
+   */
+  public static int getMaxSdkEnvironments() {
+    return maxSdkEnvironments;
+  }
+
+  public static void setMaxSdkEnvironments(int maxSdkEnvironments) {
+    RoboSettings.maxSdkEnvironments = maxSdkEnvironments;
+  }
+
+  /**
+   * Whether the SDK environments a test class needs are created in the background before its first test runs.
+   *
+   * @return True if environments are pre-warmed; false (the default) creates them on first use.
+   */
+  public static boolean isPrewarmSdkEnvironments() {
+    return prewarmSdkEnvironments;
+  }
+
+  public static void setPrewarmSdkEnvironments(boolean prewarmSdkEnvironments) {
+    RoboSettings.prewarmSdkEnvironments = prewarmSdkEnvironments;
+  }
+
+  /**
+   * Directory containing android-all jars instrumented ahead of time, e.g. by the {@code preinstrumentAndroidAll}
+   * Gradle task.
+   *
+   * @return The directory, or null (the default) to instrument android-all classes as they're loaded.
+   */
+  public static String getPreinstrumentedJarDirectory() {
+    return preinstrumentedJarDirectory;
+  }
+
+  public static void setPreinstrumentedJarDirectory(String preinstrumentedJarDirectory) {
+    RoboSettings.preinstrumentedJarDirectory = preinstrumentedJarDirectory;
+  }
 }
@@ -2,7 +2,6 @@ package org.robolectric.manifest;
 
 import android.app.Activity;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -11,18 +10,12 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 
 import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.Nullable;
 import org.robolectric.res.FsFile;
 import org.robolectric.res.ResourcePath;
 import org.robolectric.res.ResourceTable;
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import static android.content.pm.ApplicationInfo.FLAG_ALLOW_BACKUP;
 import static android.content.pm.ApplicationInfo.FLAG_ALLOW_CLEAR_USER_DATA;
@@ -131,12 +124,7 @@ public class AndroidManifest {
 
     if (androidManifestFile != null && androidManifestFile.exists()) {
       try {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        InputStream inputStream = androidManifestFile.getInputStream();
-        Document manifestDocument = db.parse(inputStream);
-        inputStream.close();
+        ManifestElement manifestDocument = ManifestParser.parse(androidManifestFile.getBytes());
 
         if (!packageNameIsOverridden()) {
           packageName = getTagAttributeText(manifestDocument, "manifest", "package");
@@ -183,136 +171,119 @@ public class AndroidManifest {
     return overridePackageName != null && !overridePackageName.isEmpty();
   }
 
-  private void parseUsedPermissions(Document manifestDocument) {
-    NodeList elementsByTagName = manifestDocument.getElementsByTagName("uses-permission");
-    int length = elementsByTagName.getLength();
-    for (int i = 0; i < length; i++) {
-      Node node = elementsByTagName.item(i).getAttributes().getNamedItem("android:name");
-      usedPermissions.add(node.getNodeValue());
+  private void parseUsedPermissions(ManifestElement manifestDocument) {
+    for (ManifestElement element : manifestDocument.getElementsByTagName("uses-permission")) {
+      usedPermissions.add(element.getAttribute("android:name"));
     }
   }
 
-  private void parseContentProviders(Document manifestDocument) {
-    Node application = manifestDocument.getElementsByTagName("application").item(0);
+  private void parseContentProviders(ManifestElement manifestDocument) {
+    ManifestElement application = getApplication(manifestDocument);
     if (application == null) return;
 
-    for (Node contentProviderNode : getChildrenTags(application, "provider")) {
-      String name = getAttributeValue(contentProviderNode, "android:name");
-      String authority = getAttributeValue(contentProviderNode, "android:authorities");
-      MetaData metaData = new MetaData(getChildrenTags(contentProviderNode, "meta-data"));
+    for (ManifestElement contentProviderNode : application.getChildren("provider")) {
+      String name = contentProviderNode.getAttribute("android:name");
+      String authority = contentProviderNode.getAttribute("android:authorities");
+      MetaData metaData = MetaData.fromElements(contentProviderNode.getChildren("meta-data"));
 
       List<PathPermissionData> pathPermissionDatas = new ArrayList<>();
-      for (Node node : getChildrenTags(contentProviderNode, "path-permission")) {
+      for (ManifestElement node : contentProviderNode.getChildren("path-permission")) {
         pathPermissionDatas.add(new PathPermissionData(
-                getAttributeValue(node, "android:path"),
-                getAttributeValue(node, "android:pathPrefix"),
-                getAttributeValue(node, "android:pathPattern"),
-                getAttributeValue(node, "android:readPermission"),
-                getAttributeValue(node, "android:writePermission")
+                node.getAttribute("android:path"),
+                node.getAttribute("android:pathPrefix"),
+                node.getAttribute("android:pathPattern"),
+                node.getAttribute("android:readPermission"),
+                node.getAttribute("android:writePermission")
         ));
       }
 
       providers.add(new ContentProviderData(resolveClassRef(name),
               metaData,
               authority,
-              getAttributeValue(contentProviderNode, "android:readPermission"),
-              getAttributeValue(contentProviderNode, "android:writePermission"),
+              contentProviderNode.getAttribute("android:readPermission"),
+              contentProviderNode.getAttribute("android:writePermission"),
               pathPermissionDatas));
     }
   }
 
-  private @Nullable String getAttributeValue(Node parentNode, String attributeName) {
-    Node attributeNode = parentNode.getAttributes().getNamedItem(attributeName);
-    return attributeNode == null ? null : attributeNode.getTextContent();
-  }
-
-  private void parseReceivers(final Document manifestDocument) {
-    Node application = manifestDocument.getElementsByTagName("application").item(0);
+  private void parseReceivers(ManifestElement manifestDocument) {
+    ManifestElement application = getApplication(manifestDocument);
     if (application == null) return;
 
-    for (Node receiverNode : getChildrenTags(application, "receiver")) {
-      Node namedItem = receiverNode.getAttributes().getNamedItem("android:name");
+    for (ManifestElement receiverNode : application.getChildren("receiver")) {
+      String namedItem = receiverNode.getAttribute("android:name");
       if (namedItem == null) continue;
 
-      String receiverName = resolveClassRef(namedItem.getTextContent());
-      MetaData metaData = new MetaData(getChildrenTags(receiverNode, "meta-data"));
+      String receiverName = resolveClassRef(namedItem);
+      MetaData metaData = MetaData.fromElements(receiverNode.getChildren("meta-data"));
 
       BroadcastReceiverData receiver = new BroadcastReceiverData(receiverName, metaData);
-      List<Node> intentFilters = getChildrenTags(receiverNode, "intent-filter");
-      for (Node intentFilterNode : intentFilters) {
-        for (Node actionNode : getChildrenTags(intentFilterNode, "action")) {
-          Node nameNode = actionNode.getAttributes().getNamedItem("android:name");
+      List<ManifestElement> intentFilters = receiverNode.getChildren("intent-filter");
+      for (ManifestElement intentFilterNode : intentFilters) {
+        for (ManifestElement actionNode : intentFilterNode.getChildren("action")) {
+          String nameNode = actionNode.getAttribute("android:name");
           if (nameNode != null) {
-            receiver.addAction(nameNode.getTextContent());
+            receiver.addAction(nameNode);
           }
         }
       }
       
-      Node permissionItem = receiverNode.getAttributes().getNamedItem("android:permission");
+      String permissionItem = receiverNode.getAttribute("android:permission");
       if (permissionItem != null) {
-        receiver.setPermission(permissionItem.getTextContent());
+        receiver.setPermission(permissionItem);
       }
       
       receivers.add(receiver);
     }
   }
 
-  private void parseServices(final Document manifestDocument) {
-    Node application = manifestDocument.getElementsByTagName("application").item(0);
+  private void parseServices(ManifestElement manifestDocument) {
+    ManifestElement application = getApplication(manifestDocument);
     if (application == null) return;
 
-    for (Node serviceNode : getChildrenTags(application, "service")) {
-      Node namedItem = serviceNode.getAttributes().getNamedItem("android:name");
+    for (ManifestElement serviceNode : application.getChildren("service")) {
+      String namedItem = serviceNode.getAttribute("android:name");
       if (namedItem == null) continue;
 
-      String serviceName = resolveClassRef(namedItem.getTextContent());
-      MetaData metaData = new MetaData(getChildrenTags(serviceNode, "meta-data"));
+      String serviceName = resolveClassRef(namedItem);
+      MetaData metaData = MetaData.fromElements(serviceNode.getChildren("meta-data"));
 
       ServiceData service = new ServiceData(serviceName, metaData);
-      List<Node> intentFilters = getChildrenTags(serviceNode, "intent-filter");
-      for (Node intentFilterNode : intentFilters) {
-        for (Node actionNode : getChildrenTags(intentFilterNode, "action")) {
-          Node nameNode = actionNode.getAttributes().getNamedItem("android:name");
+      List<ManifestElement> intentFilters = serviceNode.getChildren("intent-filter");
+      for (ManifestElement intentFilterNode : intentFilters) {
+        for (ManifestElement actionNode : intentFilterNode.getChildren("action")) {
+          String nameNode = actionNode.getAttribute("android:name");
           if (nameNode != null) {
-            service.addAction(nameNode.getTextContent());
+            service.addAction(nameNode);
           }
         }
       }
       
-      Node permissionItem = serviceNode.getAttributes().getNamedItem("android:permission");
+      String permissionItem = serviceNode.getAttribute("android:permission");
       if (permissionItem != null) {
-        service.setPermission(permissionItem.getTextContent());
+        service.setPermission(permissionItem);
       }
       serviceDatas.put(serviceName, service);
     }
   }
 
-  private void parseActivities(final Document manifestDocument) {
-    Node application = manifestDocument.getElementsByTagName("application").item(0);
+  private void parseActivities(ManifestElement manifestDocument) {
+    ManifestElement application = getApplication(manifestDocument);
     if (application == null) return;
 
-    for (Node activityNode : getChildrenTags(application, "activity")) {
+    for (ManifestElement activityNode : application.getChildren("activity")) {
       parseActivity(activityNode, false);
     }
 
-    for (Node activityNode : getChildrenTags(application, "activity-alias")) {
+    for (ManifestElement activityNode : application.getChildren("activity-alias")) {
       parseActivity(activityNode, true);
     }
   }
 
-  private void parseActivity(Node activityNode, boolean isAlias) {
-    final NamedNodeMap attributes = activityNode.getAttributes();
-    final int attrCount = attributes.getLength();
+  private void parseActivity(ManifestElement activityNode, boolean isAlias) {
     final List<IntentFilterData> intentFilterData = parseIntentFilters(activityNode);
-    final MetaData metaData = new MetaData(getChildrenTags(activityNode, "meta-data"));
-    final HashMap<String, String> activityAttrs = new HashMap<>(attrCount);
-    for(int i = 0; i < attrCount; i++) {
-      Node attr = attributes.item(i);
-      String v = attr.getNodeValue();
-      if( v != null) {
-        activityAttrs.put(attr.getNodeName(), v);
-      }
-    }
+    final MetaData metaData = MetaData.fromElements(activityNode.getChildren("meta-data"));
+    final HashMap<String, String> activityAttrs = new HashMap<>(activityNode.getAttributes());
 
     String activityName = resolveClassRef(activityAttrs.get(ActivityData.getNameAttr("android")));
     if (activityName == null) {
@@ -333,24 +304,22 @@ public class AndroidManifest {
     activityDatas.put(activityName, new ActivityData("android", activityAttrs, intentFilterData, targetActivity, metaData));
   }
 
-  private List<IntentFilterData> parseIntentFilters(final Node activityNode) {
+  private List<IntentFilterData> parseIntentFilters(final ManifestElement activityNode) {
     ArrayList<IntentFilterData> intentFilterDatas = new ArrayList<>();
-    for (Node n : getChildrenTags(activityNode, "intent-filter")) {
+    for (ManifestElement n : activityNode.getChildren("intent-filter")) {
       ArrayList<String> actionNames = new ArrayList<>();
       ArrayList<String> categories = new ArrayList<>();
       //should only be one action.
-      for (Node action : getChildrenTags(n, "action")) {
-        NamedNodeMap attributes = action.getAttributes();
-        Node actionNameNode = attributes.getNamedItem("android:name");
-        if (actionNameNode != null) {
-          actionNames.add(actionNameNode.getNodeValue());
+      for (ManifestElement action : n.getChildren("action")) {
+        String actionName = action.getAttribute("android:name");
+        if (actionName != null) {
+          actionNames.add(actionName);
         }
       }
-      for (Node category : getChildrenTags(n, "category")) {
-        NamedNodeMap attributes = category.getAttributes();
-        Node categoryNameNode = attributes.getNamedItem("android:name");
-        if (categoryNameNode != null) {
-          categories.add(categoryNameNode.getNodeValue());
+      for (ManifestElement category : n.getChildren("category")) {
+        String categoryName = category.getAttribute("android:name");
+        if (categoryName != null) {
+          categories.add(categoryName);
         }
       }
       IntentFilterData intentFilterData = new IntentFilterData(actionNames, categories);
@@ -361,46 +330,33 @@ public class AndroidManifest {
     return intentFilterDatas;
   }
 
-  private IntentFilterData parseIntentFilterData(final Node intentFilterNode, IntentFilterData intentFilterData) {
-    for (Node n : getChildrenTags(intentFilterNode, "data")) {
-      NamedNodeMap attributes = n.getAttributes();
-      String host = null;
-      String port = null;
-
-      Node schemeNode = attributes.getNamedItem("android:scheme");
-      if (schemeNode != null) {
-        intentFilterData.addScheme(schemeNode.getNodeValue());
+  private IntentFilterData parseIntentFilterData(final ManifestElement intentFilterNode, IntentFilterData intentFilterData) {
+    for (ManifestElement n : intentFilterNode.getChildren("data")) {
+      String scheme = n.getAttribute("android:scheme");
+      if (scheme != null) {
+        intentFilterData.addScheme(scheme);
       }
 
-      Node hostNode = attributes.getNamedItem("android:host");
-      if (hostNode != null) {
-        host = hostNode.getNodeValue();
-      }
-
-      Node portNode = attributes.getNamedItem("android:port");
-      if (portNode != null) {
-        port = portNode.getNodeValue();
-      }
-      intentFilterData.addAuthority(host, port);
+      intentFilterData.addAuthority(n.getAttribute("android:host"), n.getAttribute("android:port"));
 
-      Node pathNode = attributes.getNamedItem("android:path");
-      if (pathNode != null) {
-        intentFilterData.addPath(pathNode.getNodeValue());
+      String path = n.getAttribute("android:path");
+      if (path != null) {
+        intentFilterData.addPath(path);
       }
 
-      Node pathPatternNode = attributes.getNamedItem("android:pathPattern");
-      if (pathPatternNode != null) {
-        intentFilterData.addPathPattern(pathPatternNode.getNodeValue());
+      String pathPattern = n.getAttribute("android:pathPattern");
+      if (pathPattern != null) {
+        intentFilterData.addPathPattern(pathPattern);
       }
 
-      Node pathPrefixNode = attributes.getNamedItem("android:pathPrefix");
-      if (pathPrefixNode != null) {
-        intentFilterData.addPathPrefix(pathPrefixNode.getNodeValue());
+      String pathPrefix = n.getAttribute("android:pathPrefix");
+      if (pathPrefix != null) {
+        intentFilterData.addPathPrefix(pathPrefix);
       }
 
-      Node mimeTypeNode = attributes.getNamedItem("android:mimeType");
-      if (mimeTypeNode != null) {
-        intentFilterData.addMimeType(mimeTypeNode.getNodeValue());
+      String mimeType = n.getAttribute("android:mimeType");
+      if (mimeType != null) {
+        intentFilterData.addMimeType(mimeType);
       }
     }
     return intentFilterData;
@@ -428,30 +384,24 @@ public class AndroidManifest {
     }
   }
 
-  private void parseApplicationMetaData(final Document manifestDocument) {
-    Node application = manifestDocument.getElementsByTagName("application").item(0);
+  private void parseApplicationMetaData(ManifestElement manifestDocument) {
+    ManifestElement application = getApplication(manifestDocument);
     if (application == null) {
       return;
     }
-    applicationMetaData = new MetaData(getChildrenTags(application, "meta-data"));
+    applicationMetaData = MetaData.fromElements(application.getChildren("meta-data"));
   }
 
   private String resolveClassRef(String maybePartialClassName) {
     return (maybePartialClassName.startsWith(".")) ? packageName + maybePartialClassName : maybePartialClassName;
   }
 
-  private List<Node> getChildrenTags(final Node node, final String tagName) {
-    List<Node> children = new ArrayList<>();
-    for (int i = 0; i < node.getChildNodes().getLength(); i++) {
-      Node childNode = node.getChildNodes().item(i);
-      if (childNode.getNodeName().equalsIgnoreCase(tagName)) {
-        children.add(childNode);
-      }
-    }
-    return children;
+  private static @Nullable ManifestElement getApplication(ManifestElement manifestDocument) {
+    List<ManifestElement> applications = manifestDocument.getElementsByTagName("application");
+    return applications.isEmpty() ? null : applications.get(0);
   }
 
-  private void parseApplicationFlags(final Document manifestDocument) {
+  private void parseApplicationFlags(ManifestElement manifestDocument) {
     applicationFlags = getApplicationFlag(manifestDocument, "android:allowBackup", FLAG_ALLOW_BACKUP);
     applicationFlags += getApplicationFlag(manifestDocument, "android:allowClearUserData", FLAG_ALLOW_CLEAR_USER_DATA);
     applicationFlags += getApplicationFlag(manifestDocument, "android:allowTaskReparenting", FLAG_ALLOW_TASK_REPARENTING);
@@ -469,16 +419,16 @@ public class AndroidManifest {
     applicationFlags += getApplicationFlag(manifestDocument, "android:vmSafeMode", FLAG_VM_SAFE_MODE);
   }
 
-  private int getApplicationFlag(final Document doc, final String attribute, final int attributeValue) {
+  private int getApplicationFlag(ManifestElement doc, final String attribute, final int attributeValue) {
     String flagString = getTagAttributeText(doc, "application", attribute);
     return "true".equalsIgnoreCase(flagString) ? attributeValue : 0;
   }
 
-  private Integer getTagAttributeIntValue(final Document doc, final String tag, final String attribute) {
+  private Integer getTagAttributeIntValue(ManifestElement doc, final String tag, final String attribute) {
     return getTagAttributeIntValue(doc, tag, attribute, null);
   }
 
-  private Integer getTagAttributeIntValue(final Document doc, final String tag, final String attribute, final Integer defaultValue) {
+  private Integer getTagAttributeIntValue(ManifestElement doc, final String tag, final String attribute, final Integer defaultValue) {
     String valueString = getTagAttributeText(doc, tag, attribute);
     if (valueString != null) {
       return Integer.parseInt(valueString);
@@ -547,7 +497,7 @@ public class AndroidManifest {
   public Map<String, Object> getApplicationMetaData() {
     parseAndroidManifest();
     if (applicationMetaData == null) {
-      applicationMetaData = new MetaData(Collections.<Node>emptyList());
+      applicationMetaData = MetaData.fromElements(Collections.<ManifestElement>emptyList());
     }
     return applicationMetaData.getValueMap();
   }
@@ -606,13 +556,11 @@ public class AndroidManifest {
     return serviceDatas.get(serviceClassName);
   }
 
-  private static String getTagAttributeText(final Document doc, final String tag, final String attribute) {
-    NodeList elementsByTagName = doc.getElementsByTagName(tag);
-    for (int i = 0; i < elementsByTagName.getLength(); ++i) {
-      Node item = elementsByTagName.item(i);
-      Node namedItem = item.getAttributes().getNamedItem(attribute);
+  private static String getTagAttributeText(ManifestElement doc, final String tag, final String attribute) {
+    for (ManifestElement item : doc.getElementsByTagName(tag)) {
+      String namedItem = item.getAttribute(attribute);
       if (namedItem != null) {
-        return namedItem.getTextContent();
+        return namedItem;
       }
     }
     return null;
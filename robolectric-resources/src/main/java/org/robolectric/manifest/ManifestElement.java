@@ -0,0 +1,74 @@
+package org.robolectric.manifest;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An element of a parsed AndroidManifest.xml. Attributes are keyed by their qualified name, e.g. {@code android:name}.
+ * Elements are immutable, and text content isn't kept since the manifest doesn't use it.
+ */
+final class ManifestElement {
+  private final String name;
+  private final Map<String, String> attributes;
+  private final List<ManifestElement> children;
+
+  ManifestElement(String name, Map<String, String> attributes, List<ManifestElement> children) {
+    this.name = name;
+    this.attributes = Collections.unmodifiableMap(attributes);
+    this.children = Collections.unmodifiableList(children);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public @Nullable String getAttribute(String attributeName) {
+    return attributes.get(attributeName);
+  }
+
+  /**
+   * @return Every attribute of this element, in document order.
+   */
+  public Map<String, String> getAttributes() {
+    return attributes;
+  }
+
+  public List<ManifestElement> getChildren() {
+    return children;
+  }
+
+  /**
+   * @return The direct children with the given tag name, ignoring case.
+   */
+  public List<ManifestElement> getChildren(String tagName) {
+    List<ManifestElement> matching = new ArrayList<>();
+    for (ManifestElement child : children) {
+      if (child.name.equalsIgnoreCase(tagName)) {
+        matching.add(child);
+      }
+    }
+    return matching;
+  }
+
+  /**
+   * @return This element and its descendants with the given tag name, in document order.
+   */
+  public List<ManifestElement> getElementsByTagName(String tagName) {
+    List<ManifestElement> matching = new ArrayList<>();
+    addElementsByTagName(tagName, matching);
+    return matching;
+  }
+
+  private void addElementsByTagName(String tagName, List<ManifestElement> matching) {
+    if (name.equals(tagName)) {
+      matching.add(this);
+    }
+    for (ManifestElement child : children) {
+      child.addElementsByTagName(tagName, matching);
+    }
+  }
+}
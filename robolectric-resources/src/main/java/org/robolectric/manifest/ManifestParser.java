@@ -0,0 +1,199 @@
+package org.robolectric.manifest;
+
+import com.google.common.hash.Hashing;
+import org.robolectric.RoboSettings;
+import org.robolectric.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parses AndroidManifest.xml files into {@link ManifestElement}s with a streaming parser.
+ *
+ * If a cache directory is configured (see {@link RoboSettings#getCacheDirectory()}), parsed manifests are also stored
+ * there in a compact binary form, named by a digest of the manifest's contents, so that later JVMs can skip parsing
+ * XML altogether.
+ */
+class ManifestParser {
+  private static final int MAGIC = 0x52414d46; // "RAMF"
+  private static final int FORMAT_VERSION = 2;
+
+  private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+  /**
+   * Like the DOM parser used before, namespaces aren't processed, so prefixes which aren't declared, such as
+   * {@code tools:}, are accepted and namespace declarations are kept as attributes. A DOCTYPE is allowed, but nothing
+   * external, such as its DTD, is ever loaded.
+   */
+  static {
+    XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+    XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    XML_INPUT_FACTORY.setXMLResolver(new XMLResolver() {
+      @Override
+      public Object resolveEntity(String publicId, String systemId, String baseUri, String namespace) {
+        return new ByteArrayInputStream(new byte[0]);
+      }
+    });
+  }
+
+  /**
+   * @return The root element of the manifest.
+   */
+  public static ManifestElement parse(byte[] manifestBytes) throws IOException {
+    String cacheDirectory = RoboSettings.getCacheDirectory();
+    if (cacheDirectory == null) {
+      return parseXml(manifestBytes);
+    }
+
+    String digest = Hashing.sha1().newHasher()
+        .putInt(FORMAT_VERSION)
+        .putBytes(manifestBytes)
+        .hash().toString();
+    Path file = new File(new File(cacheDirectory, "manifests"), digest + ".bin").toPath();
+    ManifestElement cached = load(file);
+    if (cached != null) {
+      return cached;
+    }
+
+    ManifestElement root = parseXml(manifestBytes);
+    save(file, root);
+    return root;
+  }
+
+  static ManifestElement parseXml(byte[] manifestBytes) throws IOException {
+    try {
+      XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(manifestBytes));
+      try {
+        return read(reader);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException e) {
+      throw new IOException("couldn't parse manifest", e);
+    }
+  }
+
+  private static ManifestElement read(XMLStreamReader reader) throws XMLStreamException {
+    Deque<List<ManifestElement>> openChildren = new ArrayDeque<>();
+    Deque<String> openNames = new ArrayDeque<>();
+    Deque<Map<String, String>> openAttributes = new ArrayDeque<>();
+    List<ManifestElement> roots = new ArrayList<>();
+    openChildren.push(roots);
+
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          Map<String, String> attributes = new LinkedHashMap<>();
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+          }
+          openNames.push(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+          openAttributes.push(attributes);
+          openChildren.push(new ArrayList<ManifestElement>());
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          ManifestElement element = new ManifestElement(openNames.pop(), openAttributes.pop(), openChildren.pop());
+          openChildren.peek().add(element);
+          break;
+        default:
+          break;
+      }
+    }
+
+    if (roots.isEmpty()) {
+      throw new XMLStreamException("manifest has no root element");
+    }
+    return roots.get(0);
+  }
+
+  private static String qualifiedName(String prefix, String localName) {
+    return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+  }
+
+  private static ManifestElement load(Path file) {
+    if (!Files.isRegularFile(file)) return null;
+
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      return readElement(in);
+    } catch (IOException | RuntimeException e) {
+      Logger.debug("couldn't read cached manifest %s: %s", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Manifests are written to a temporary file and then moved into place, so concurrent JVMs never observe a partially
+   * written one.
+   */
+  private static void save(Path file, ManifestElement root) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      writeElement(out, root);
+      out.flush();
+
+      Files.createDirectories(file.getParent());
+      Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try {
+        Files.write(tmpFile, bytes.toByteArray());
+        Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tmpFile);
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      Logger.debug("couldn't write cached manifest %s: %s", file, e);
+    }
+  }
+
+  private static void writeElement(DataOutputStream out, ManifestElement element) throws IOException {
+    out.writeUTF(element.getName());
+    out.writeInt(element.getAttributes().size());
+    for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+      out.writeUTF(attribute.getKey());
+      out.writeUTF(attribute.getValue());
+    }
+    out.writeInt(element.getChildren().size());
+    for (ManifestElement child : element.getChildren()) {
+      writeElement(out, child);
+    }
+  }
+
+  private static ManifestElement readElement(DataInputStream in) throws IOException {
+    String name = in.readUTF();
+    int attributeCount = in.readInt();
+    Map<String, String> attributes = new LinkedHashMap<>();
+    for (int i = 0; i < attributeCount; i++) {
+      attributes.put(in.readUTF(), in.readUTF());
+    }
+    int childCount = in.readInt();
+    List<ManifestElement> children = new ArrayList<>();
+    for (int i = 0; i < childCount; i++) {
+      children.add(readElement(in));
+    }
+    return new ManifestElement(name, attributes, children);
+  }
+}
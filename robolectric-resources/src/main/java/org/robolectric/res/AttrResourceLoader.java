@@ -3,16 +3,14 @@ package org.robolectric.res;
 import java.util.ArrayList;
 import java.util.List;
 
-public class AttrResourceLoader extends XpathResourceXmlLoader {
-  private final PackageResourceTable resourceTable;
+public class AttrResourceLoader extends ValueElementLoader {
 
   public AttrResourceLoader(PackageResourceTable resourceTable) {
-    super("//attr");
-    this.resourceTable = resourceTable;
+    super(resourceTable, "attr", "attr", null, true);
   }
 
   @Override
-  protected void processNode(String name, XmlNode xmlNode, XmlContext xmlContext) {
+  protected TypedResource parse(String name, XmlNode xmlNode, XmlContext xmlContext) {
     String format = xmlNode.getAttrValue("format");
     String childFormat = null;
     List<AttrData.Pair> pairs = null;
@@ -40,11 +38,11 @@ public class AttrResourceLoader extends XpathResourceXmlLoader {
     }
 
     if (format == null) {
-      return;
+      return null;
 //            throw new IllegalStateException(
 //                    "you need a format, enums, or flags for \"" + name + "\" in " + xmlContext);
     }
     AttrData attrData = new AttrData(name, format, pairs);
-    resourceTable.addResource("attr", name, new TypedResource<>(attrData, ResType.ATTR_DATA, xmlContext));
+    return new TypedResource<>(attrData, ResType.ATTR_DATA, xmlContext);
   }
 }
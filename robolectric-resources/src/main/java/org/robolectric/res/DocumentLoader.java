@@ -4,6 +4,21 @@ import com.ximpleware.VTDGen;
 import com.ximpleware.VTDNav;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Loads resource XML files from a resource directory.
+ *
+ * Files are parsed in parallel, and loaders which implement {@link XmlLoader.Preparing} read them on the parser
+ * threads too, but resources are always added to the table one file at a time and in directory listing order, so the
+ * resulting resource table doesn't depend on thread timing.
+ */
 public class DocumentLoader {
   private static final FsFile.Filter ENDS_WITH_XML = new FsFile.Filter() {
     @Override public boolean accept(@NotNull FsFile fsFile) {
@@ -11,48 +26,108 @@ public class DocumentLoader {
     }
   };
 
+  private static final ExecutorService PARSER_POOL = new ForkJoinPool();
+
+  // VTDGen isn't thread safe; reuse one per parser thread.
+  private static final ThreadLocal<VTDGen> vtdGen = new ThreadLocal<VTDGen>() {
+    @Override
+    protected VTDGen initialValue() {
+      return new VTDGen();
+    }
+  };
+
   private final FsFile resourceBase;
   private final String packageName;
-  private final VTDGen vtdGen;
+  private final ExecutorService parserPool;
 
   public DocumentLoader(String packageName, ResourcePath resourcePath) {
+    this(packageName, resourcePath, PARSER_POOL);
+  }
+
+  // VisibleForTesting
+  DocumentLoader(String packageName, ResourcePath resourcePath, ExecutorService parserPool) {
     this.resourceBase = resourcePath.getResourceBase();
     this.packageName = packageName;
-    vtdGen = new VTDGen();
+    this.parserPool = parserPool;
   }
 
-  public void load(String folderBaseName, XmlLoader... xmlLoaders) {
+  public void load(String folderBaseName, final XmlLoader... xmlLoaders) {
     FsFile[] files = resourceBase.listFiles(new StartsWithFilter(folderBaseName));
     if (files == null) {
       throw new RuntimeException(resourceBase.join(folderBaseName) + " is not a directory");
     }
+
+    List<FsFile> xmlFiles = new ArrayList<>();
     for (FsFile dir : files) {
-      loadFile(dir, xmlLoaders);
+      if (!dir.exists()) {
+        throw new RuntimeException("no such directory " + dir);
+      }
+      for (FsFile file : dir.listFiles(ENDS_WITH_XML)) {
+        xmlFiles.add(file);
+      }
     }
-  }
 
-  private void loadFile(FsFile dir, XmlLoader[] xmlLoaders) {
-    if (!dir.exists()) {
-      throw new RuntimeException("no such directory " + dir);
+    List<Future<Runnable>> preparedFiles = new ArrayList<>(xmlFiles.size());
+    for (final FsFile file : xmlFiles) {
+      preparedFiles.add(parserPool.submit(new Callable<Runnable>() {
+        @Override
+        public Runnable call() throws Exception {
+          return prepareResourceXmlFile(file, xmlLoaders);
+        }
+      }));
     }
 
-    for (FsFile file : dir.listFiles(ENDS_WITH_XML)) {
-      loadResourceXmlFile(file, xmlLoaders);
+    for (Future<Runnable> preparedFile : preparedFiles) {
+      await(preparedFile).run();
     }
   }
 
-  private void loadResourceXmlFile(FsFile fsFile, XmlLoader... xmlLoaders) {
-    VTDNav vtdNav = parse(fsFile);
-    XpathResourceXmlLoader.XmlNode xmlNode = new XpathResourceXmlLoader.XmlNode(vtdNav);
-    XmlContext xmlContext = new XmlContext(packageName, fsFile);
-    for (XmlLoader xmlLoader : xmlLoaders) {
-      xmlLoader.processResourceXml(xmlNode, xmlContext);
+  /**
+   * Parses a file and runs the parts of the loaders which can run on the parser thread. Returns the rest of their work.
+   */
+  private Runnable prepareResourceXmlFile(FsFile fsFile, XmlLoader... xmlLoaders) {
+    final XpathResourceXmlLoader.XmlNode xmlNode = new XpathResourceXmlLoader.XmlNode(parse(fsFile));
+    final XmlContext xmlContext = new XmlContext(packageName, fsFile);
+    final List<Runnable> work = new ArrayList<>(xmlLoaders.length);
+    for (final XmlLoader xmlLoader : xmlLoaders) {
+      if (xmlLoader instanceof XmlLoader.Preparing) {
+        work.add(((XmlLoader.Preparing) xmlLoader).prepare(xmlNode, xmlContext));
+      } else {
+        work.add(new Runnable() {
+          @Override
+          public void run() {
+            xmlLoader.processResourceXml(xmlNode, xmlContext);
+          }
+        });
+      }
+    }
+
+    return new Runnable() {
+      @Override
+      public void run() {
+        for (Runnable runnable : work) {
+          runnable.run();
+        }
+      }
+    };
+  }
+
+  private static Runnable await(Future<Runnable> preparedFile) {
+    try {
+      return preparedFile.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
     }
   }
 
-  private VTDNav parse(FsFile xmlFile) {
+  private static VTDNav parse(FsFile xmlFile) {
     try {
       byte[] bytes = xmlFile.getBytes();
+      VTDGen vtdGen = DocumentLoader.vtdGen.get();
       vtdGen.setDoc(bytes);
       vtdGen.parse(true);
 
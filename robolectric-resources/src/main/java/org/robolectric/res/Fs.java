@@ -1,22 +1,22 @@
 package org.robolectric.res;
 
 import org.robolectric.util.Join;
+import org.robolectric.util.Logger;
 import org.robolectric.util.Util;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
 import java.util.NavigableSet;
-import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -53,42 +53,42 @@ abstract public class Fs {
   }
 
   static class JarFs extends Fs {
-    private static final Map<File, NavigableMap<String, JarEntry>> CACHE =
-        new LinkedHashMap<File, NavigableMap<String, JarEntry>>() {
-          @Override
-          protected boolean removeEldestEntry(Map.Entry<File, NavigableMap<String, JarEntry>> fileNavigableMapEntry) {
-            return size() > 10;
-          }
-        };
-
+    private final File file;
+    private final MappedJar jar;
     private final JarFile jarFile;
-    private final NavigableMap<String, JarEntry> jarEntryMap;
+    private final NavigableSet<String> entryNames;
 
     public JarFs(File file) {
-      try {
-        jarFile = new JarFile(file);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
-
-      NavigableMap<String, JarEntry> cachedMap;
-      synchronized (CACHE) {
-        cachedMap = CACHE.get(file.getAbsoluteFile());
-      }
-
-      if (cachedMap == null) {
-        cachedMap = new TreeMap<>();
+      this.file = file;
+      this.jar = mapJar(file);
+      if (jar != null) {
+        jarFile = null;
+        entryNames = jar.getEntryNames();
+      } else {
+        try {
+          jarFile = new JarFile(file);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+        entryNames = new TreeSet<>();
         Enumeration<JarEntry> entries = jarFile.entries();
         while (entries.hasMoreElements()) {
-          JarEntry jarEntry = entries.nextElement();
-          cachedMap.put(jarEntry.getName(), jarEntry);
-        }
-        synchronized (CACHE) {
-          CACHE.put(file.getAbsoluteFile(), cachedMap);
+          entryNames.add(entries.nextElement().getName());
         }
       }
+    }
 
-      jarEntryMap = cachedMap;
+    /**
+     * @return The shared mapping of the jar, or null if it can't be mapped, e.g. because it's a zip64 file, in which
+     *     case it's read through a {@link JarFile} instead.
+     */
+    private static MappedJar mapJar(File file) {
+      try {
+        return MappedJar.open(file);
+      } catch (IOException e) {
+        Logger.debug("couldn't map %s: %s", file, e);
+        return null;
+      }
     }
 
     @Override public FsFile join(String folderBaseName) {
@@ -107,16 +107,16 @@ abstract public class Fs {
       }
 
       @Override public boolean isDirectory() {
-        return jarEntryMap.containsKey(path + "/");
+        return entryNames.contains(path + "/");
       }
 
       @Override public boolean isFile() {
-        return jarEntryMap.containsKey(path);
+        return entryNames.contains(path);
       }
 
       @Override public FsFile[] listFiles() {
         if (!isDirectory()) return null;
-        NavigableSet<String> strings = jarEntryMap.navigableKeySet().subSet(path + "/", false, path + "0", false);
+        NavigableSet<String> strings = entryNames.subSet(path + "/", false, path + "0", false);
         List<FsFile> fsFiles = new ArrayList<>();
         int startOfFilename = path.length() + 2;
         for (String string : strings) {
@@ -162,11 +162,29 @@ abstract public class Fs {
       }
 
       @Override public InputStream getInputStream() throws IOException {
-        return new BufferedInputStream(jarFile.getInputStream(jarEntryMap.get(path)));
+        if (jar == null) {
+          return new BufferedInputStream(jarFile.getInputStream(getJarEntry()));
+        }
+        return new ByteArrayInputStream(getBytes());
       }
 
       @Override public byte[] getBytes() throws IOException {
-        return Util.readBytes(jarFile.getInputStream(jarEntryMap.get(path)));
+        if (jar == null) {
+          return Util.readBytes(jarFile.getInputStream(getJarEntry()));
+        }
+        byte[] bytes = jar.read(path);
+        if (bytes == null) {
+          throw new FileNotFoundException(getPath());
+        }
+        return bytes;
+      }
+
+      private JarEntry getJarEntry() throws FileNotFoundException {
+        JarEntry jarEntry = jarFile.getJarEntry(path);
+        if (jarEntry == null) {
+          throw new FileNotFoundException(getPath());
+        }
+        return jarEntry;
       }
 
       @Override public FsFile join(String... pathParts) {
@@ -197,7 +215,7 @@ abstract public class Fs {
       }
 
       private String getJarFileName() {
-        return jarFile.getName();
+        return file.getPath();
       }
 
       @Override
@@ -0,0 +1,231 @@
+package org.robolectric.res;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A read-only jar, memory-mapped and indexed by its central directory when opened, so entries are read straight from the
+ * mapping without the per-lookup stream setup of {@link java.util.jar.JarFile} or {@link java.net.URLClassLoader}.
+ *
+ * Jars are shared: {@link #open(File)} returns the same instance for a file until it changes on disk, so class loaders
+ * and {@link Fs}es for the same SDK in every environment read from one mapping. Zip64 jars aren't supported, and neither
+ * are jars whose central directory doesn't fit the file; {@link #open(File)} throws an {@link IOException} for them, so
+ * {@link Fs} and the instrumenting class loader read them through {@link java.util.jar.JarFile} and their urls instead.
+ */
+public class MappedJar {
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int END_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xffff;
+  private static final long ZIP64_MARKER = 0xffffffffL;
+  private static final int STORED = 0;
+  private static final int DEFLATED = 8;
+
+  private static final ConcurrentMap<File, MappedJar> OPEN = new ConcurrentHashMap<>();
+
+  private final File file;
+  private final long length;
+  private final long lastModified;
+  private final ByteBuffer buffer;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final NavigableSet<String> entryNames;
+  private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+  private MappedJar(File file) throws IOException {
+    this.file = file;
+    this.length = file.length();
+    this.lastModified = file.lastModified();
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException(file + " is too large to map");
+    }
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+         FileChannel channel = randomAccessFile.getChannel()) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      this.buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+    }
+    readCentralDirectory();
+    this.entryNames = ImmutableSortedSet.copyOf(entries.keySet());
+  }
+
+  /**
+   * @return The shared, mapped jar for the given file.
+   */
+  public static MappedJar open(File file) throws IOException {
+    File key = file.getAbsoluteFile().toPath().normalize().toFile();
+    MappedJar jar = OPEN.get(key);
+    if (jar != null && jar.length == key.length() && jar.lastModified == key.lastModified()) {
+      return jar;
+    }
+
+    // opening the same jar twice concurrently is harmless, so don't hold a lock while mapping it
+    MappedJar newJar = new MappedJar(key);
+    OPEN.put(key, newJar);
+    return newJar;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public boolean contains(String name) {
+    return entries.containsKey(name);
+  }
+
+  /**
+   * @return The names of every entry, sorted; directories end with a slash.
+   */
+  public NavigableSet<String> getEntryNames() {
+    return entryNames;
+  }
+
+  /**
+   * @return The entry's uncompressed contents, or null if the jar has no such entry.
+   */
+  public byte[] read(String name) throws IOException {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      return null;
+    }
+
+    ByteBuffer local = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    if (local.getInt(entry.localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+      throw new IOException("bad local header for " + name + " in " + file);
+    }
+    long dataOffset = (long) entry.localHeaderOffset + LOCAL_HEADER_SIZE
+        + (local.getShort(entry.localHeaderOffset + 26) & 0xffff)
+        + (local.getShort(entry.localHeaderOffset + 28) & 0xffff);
+    if (dataOffset + entry.compressedSize > length) {
+      throw new IOException("entry " + name + " runs past the end of " + file);
+    }
+    local.position((int) dataOffset);
+
+    byte[] bytes = new byte[entry.size];
+    switch (entry.method) {
+      case STORED:
+        local.get(bytes);
+        return bytes;
+      case DEFLATED:
+        // the inflater needs an extra dummy byte past the end of raw deflate data
+        byte[] compressed = new byte[entry.compressedSize + 1];
+        local.get(compressed, 0, entry.compressedSize);
+        inflate(name, compressed, bytes);
+        return bytes;
+      default:
+        throw new IOException("unsupported compression method " + entry.method + " for " + name + " in " + file);
+    }
+  }
+
+  private void inflate(String name, byte[] compressed, byte[] bytes) throws IOException {
+    Inflater inflater = inflaters.poll();
+    if (inflater == null) {
+      inflater = new Inflater(true);
+    }
+    try {
+      inflater.setInput(compressed);
+      int count = 0;
+      while (count < bytes.length) {
+        int inflated = inflater.inflate(bytes, count, bytes.length - count);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("truncated entry " + name + " in " + file);
+        }
+        count += inflated;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("corrupt entry " + name + " in " + file, e);
+    } finally {
+      inflater.reset();
+      inflaters.add(inflater);
+    }
+  }
+
+  private void readCentralDirectory() throws IOException {
+    int end = findEndOfCentralDirectory();
+    int entryCount = buffer.getShort(end + 10) & 0xffff;
+    long directoryOffset = buffer.getInt(end + 16) & 0xffffffffL;
+    if (entryCount == 0xffff || directoryOffset == 0xffffffffL) {
+      throw new IOException(file + " is a zip64 file");
+    }
+
+    int offset = (int) directoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if ((long) offset + CENTRAL_HEADER_SIZE > end || buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+        throw new IOException("bad central directory in " + file);
+      }
+      int method = buffer.getShort(offset + 10) & 0xffff;
+      long compressedSize = buffer.getInt(offset + 20) & 0xffffffffL;
+      long size = buffer.getInt(offset + 24) & 0xffffffffL;
+      int nameLength = buffer.getShort(offset + 28) & 0xffff;
+      int extraLength = buffer.getShort(offset + 30) & 0xffff;
+      int commentLength = buffer.getShort(offset + 32) & 0xffff;
+      long localHeaderOffset = buffer.getInt(offset + 42) & 0xffffffffL;
+      if ((long) offset + CENTRAL_HEADER_SIZE + nameLength > end) {
+        throw new IOException("bad central directory in " + file);
+      }
+      if (compressedSize == ZIP64_MARKER || size == ZIP64_MARKER || localHeaderOffset == ZIP64_MARKER) {
+        throw new IOException(file + " has zip64 entries");
+      }
+      // entries whose data couldn't fit in the file or in an array are corrupt
+      if (size > Integer.MAX_VALUE - 8 || localHeaderOffset + LOCAL_HEADER_SIZE + compressedSize > length) {
+        throw new IOException("bad central directory entry " + i + " in " + file);
+      }
+
+      byte[] nameBytes = new byte[nameLength];
+      ByteBuffer nameBuffer = buffer.duplicate();
+      nameBuffer.position(offset + CENTRAL_HEADER_SIZE);
+      nameBuffer.get(nameBytes);
+      String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+      entries.put(name, new Entry(method, (int) compressedSize, (int) size, (int) localHeaderOffset));
+      offset += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+  }
+
+  private int findEndOfCentralDirectory() throws IOException {
+    int limit = Math.max(0, (int) length - END_SIZE - MAX_COMMENT_SIZE);
+    for (int offset = (int) length - END_SIZE; offset >= limit; offset--) {
+      if (buffer.getInt(offset) == END_SIGNATURE) {
+        return offset;
+      }
+    }
+    throw new IOException(file + " isn't a zip file");
+  }
+
+  @Override
+  public String toString() {
+    return "MappedJar{" + file + "}";
+  }
+
+  private static class Entry {
+    private final int method;
+    private final int compressedSize;
+    private final int size;
+    private final int localHeaderOffset;
+
+    Entry(int method, int compressedSize, int size, int localHeaderOffset) {
+      this.method = method;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+  }
+}
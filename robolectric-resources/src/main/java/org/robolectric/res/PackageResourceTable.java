@@ -7,6 +7,8 @@ import org.robolectric.res.builder.XmlBlock;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link ResourceTable} for a single package, e.g: "android" / ox01
@@ -16,6 +18,8 @@ public class PackageResourceTable implements ResourceTable {
   private final ResBunch resources = new ResBunch();
   private final BiMap<Integer, ResName> resourceTable = HashBiMap.create();
 
+  private final Map<FileTypedResource, XmlBlock> xmlBlockCache = new ConcurrentHashMap<>();
+
   private final ResourceIdGenerator androidResourceIdGenerator = new ResourceIdGenerator(0x01);
   private final String packageName;
   private int packageIdentifier;
@@ -59,7 +63,12 @@ public class PackageResourceTable implements ResourceTable {
     if (typedResource == null || !typedResource.isXml()) {
       return null;
     } else {
-      return XmlBlock.create(typedResource.getFsFile(), resName.packageName);
+      XmlBlock xmlBlock = xmlBlockCache.get(typedResource);
+      if (xmlBlock == null) {
+        xmlBlock = XmlBlock.create(typedResource.getFsFile(), resName.packageName);
+        xmlBlockCache.put(typedResource, xmlBlock);
+      }
+      return xmlBlock;
     }
   }
 
@@ -114,6 +123,10 @@ public class PackageResourceTable implements ResourceTable {
     resources.put(resName, value);
   }
 
+  Map<Integer, ResName> getResourceIdMap() {
+    return resourceTable;
+  }
+
   private boolean isAndroidPackage(ResName resName) {
     return "android".equals(resName.packageName);
   }
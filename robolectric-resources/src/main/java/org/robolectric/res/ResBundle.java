@@ -1,6 +1,10 @@
 package org.robolectric.res;
 
+import com.google.common.base.Optional;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ResBundle {
   private final ResMap valuesMap = new ResMap();
@@ -21,8 +25,28 @@ public class ResBundle {
 
   static class ResMap {
     private final Map<ResName, Map<String, TypedResource>> map = new HashMap<>();
+    // Results of pick(), by requested qualifiers and then resource name. Since the requested
+    // qualifiers are part of the key, changing the device qualifiers needs no invalidation.
+    private final ConcurrentMap<String, ConcurrentMap<ResName, Optional<TypedResource>>> resolved =
+        new ConcurrentHashMap<>();
 
     public TypedResource pick(ResName resName, String qualifiersStr) {
+      ConcurrentMap<ResName, Optional<TypedResource>> resolvedForQualifiers = resolved.get(qualifiersStr);
+      if (resolvedForQualifiers == null) {
+        resolvedForQualifiers = new ConcurrentHashMap<>();
+        ConcurrentMap<ResName, Optional<TypedResource>> existing = resolved.putIfAbsent(qualifiersStr, resolvedForQualifiers);
+        if (existing != null) resolvedForQualifiers = existing;
+      }
+
+      Optional<TypedResource> result = resolvedForQualifiers.get(resName);
+      if (result == null) {
+        result = Optional.fromNullable(resolve(resName, qualifiersStr));
+        resolvedForQualifiers.put(resName, result);
+      }
+      return result.orNull();
+    }
+
+    private TypedResource resolve(ResName resName, String qualifiersStr) {
       Map<String, TypedResource> values = map.get(resName);
       if (values == null || values.size() == 0) return null;
 
@@ -45,8 +69,7 @@ public class ResBundle {
 
       List<TypedResource> passesRequirements = new ArrayList<>();
       for (TypedResource candidate : typedResources) {
-        Qualifiers qualifiers = Qualifiers.parse(candidate.getQualifiers());
-        if (qualifiers.passesRequirements(toMatch)) {
+        if (candidate.getParsedQualifiers().passesRequirements(toMatch)) {
           passesRequirements.add(candidate);
         }
       }
@@ -54,7 +77,7 @@ public class ResBundle {
       Qualifiers bestMatchQualifiers = null;
       TypedResource bestMatch = null;
       for (TypedResource candidate : passesRequirements) {
-        Qualifiers qualifiers = Qualifiers.parse(candidate.getQualifiers());
+        Qualifiers qualifiers = candidate.getParsedQualifiers();
         if (qualifiers.matches(toMatch)) {
           if (bestMatchQualifiers == null || qualifiers.isBetterThan(bestMatchQualifiers, toMatch)) {
             bestMatchQualifiers = qualifiers;
@@ -73,6 +96,7 @@ public class ResBundle {
 
     public void put(ResName resName, TypedResource value) {
       Map<String, TypedResource> values = map.get(resName);
+      resolved.clear();
       if (values == null) map.put(resName, values = new HashMap<>());
       if (!values.containsKey(value.getQualifiers())) {
         values.put(value.getQualifiers(), value);
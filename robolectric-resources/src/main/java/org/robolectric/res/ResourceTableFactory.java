@@ -1,7 +1,9 @@
 package org.robolectric.res;
 
+import org.robolectric.RoboSettings;
 import org.robolectric.util.Logger;
 
+import java.io.File;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
@@ -11,6 +13,12 @@ public class ResourceTableFactory {
    * Builds an Android framework resource table in the "android" package space.
    */
   public static PackageResourceTable newFrameworkResourceTable(ResourcePath resourcePath) {
+    ResourceTableSnapshot snapshot = snapshotFor("android", true, resourcePath);
+    if (snapshot != null) {
+      PackageResourceTable resourceTable = snapshot.load();
+      if (resourceTable != null) return resourceTable;
+    }
+
     PackageResourceTable resourceTable = new PackageResourceTable("android");
 
       if (resourcePath.getRClass() != null) {
@@ -24,6 +32,7 @@ public class ResourceTableFactory {
 
       parseResourceFiles(resourcePath, resourceTable);
 
+    if (snapshot != null) snapshot.save(resourceTable);
     return resourceTable;
   }
 
@@ -32,6 +41,12 @@ public class ResourceTableFactory {
    * overlayed resource libraries.
    */
   public static PackageResourceTable newResourceTable(String packageName, ResourcePath... resourcePaths) {
+    ResourceTableSnapshot snapshot = snapshotFor(packageName, false, resourcePaths);
+    if (snapshot != null) {
+      PackageResourceTable resourceTable = snapshot.load();
+      if (resourceTable != null) return resourceTable;
+    }
+
     PackageResourceTable resourceTable = new PackageResourceTable(packageName);
 
     for (ResourcePath resourcePath : resourcePaths) {
@@ -44,9 +59,15 @@ public class ResourceTableFactory {
       parseResourceFiles(resourcePath, resourceTable);
     }
 
+    if (snapshot != null) snapshot.save(resourceTable);
     return resourceTable;
   }
 
+  private static ResourceTableSnapshot snapshotFor(String packageName, boolean framework, ResourcePath... resourcePaths) {
+    String cacheDirectory = RoboSettings.getCacheDirectory();
+    return cacheDirectory == null ? null : new ResourceTableSnapshot(new File(cacheDirectory), packageName, framework, resourcePaths);
+  }
+
   private static void addRClassValues(PackageResourceTable resourceTable, Class<?> rClass) {
     for (Class innerClass : rClass.getClasses()) {
       String resourceType = innerClass.getSimpleName();
@@ -111,31 +132,7 @@ public class ResourceTableFactory {
     DocumentLoader documentLoader = new DocumentLoader(resourceTable.getPackageName(), resourcePath);
 
     try {
-      documentLoader.load("values",
-          new ValueResourceLoader(resourceTable, "/resources/bool", "bool", ResType.BOOLEAN),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='bool']", "bool", ResType.BOOLEAN),
-          new ValueResourceLoader(resourceTable, "/resources/color", "color", ResType.COLOR),
-          new ValueResourceLoader(resourceTable, "/resources/drawable", "drawable", ResType.DRAWABLE),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='color']", "color", ResType.COLOR),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='drawable']", "drawable", ResType.DRAWABLE),
-          new ValueResourceLoader(resourceTable, "/resources/dimen", "dimen", ResType.DIMEN),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='dimen']", "dimen", ResType.DIMEN),
-          new ValueResourceLoader(resourceTable, "/resources/integer", "integer", ResType.INTEGER),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='integer']", "integer", ResType.INTEGER),
-          new ValueResourceLoader(resourceTable, "/resources/integer-array", "array", ResType.INTEGER_ARRAY),
-          new ValueResourceLoader(resourceTable, "/resources/fraction", "fraction", ResType.FRACTION),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='fraction']", "fraction", ResType.FRACTION),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='layout']", "layout", ResType.LAYOUT),
-          new PluralResourceLoader(resourceTable),
-          new ValueResourceLoader(resourceTable, "/resources/string", "string", ResType.CHAR_SEQUENCE),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='string']", "string", ResType.CHAR_SEQUENCE),
-          new ValueResourceLoader(resourceTable, "/resources/string-array", "array", ResType.CHAR_SEQUENCE_ARRAY),
-          new ValueResourceLoader(resourceTable, "/resources/array", "array", ResType.TYPED_ARRAY),
-          new ValueResourceLoader(resourceTable, "/resources/id", "id", ResType.CHAR_SEQUENCE),
-          new ValueResourceLoader(resourceTable, "/resources/item[@type='id']", "id", ResType.CHAR_SEQUENCE),
-          new AttrResourceLoader(resourceTable),
-          new StyleResourceLoader(resourceTable)
-      );
+      documentLoader.load("values", new ValuesFileLoader(valuesLoaders(resourceTable)));
 
       documentLoader.load("layout", new OpaqueFileLoader(resourceTable, "layout"));
       documentLoader.load("menu", new OpaqueFileLoader(resourceTable, "menu"));
@@ -153,4 +150,33 @@ public class ResourceTableFactory {
     new DrawableResourceLoader(resourceTable).findDrawableResources(resourcePath);
     new RawResourceLoader(resourcePath).loadTo(resourceTable);
   }
-}
\ No newline at end of file
+
+  // VisibleForTesting
+  static ValueElementLoader[] valuesLoaders(PackageResourceTable resourceTable) {
+    return new ValueElementLoader[] {
+        ValueResourceLoader.forElement(resourceTable, "bool", "bool", ResType.BOOLEAN),
+        ValueResourceLoader.forItem(resourceTable, "bool", ResType.BOOLEAN),
+        ValueResourceLoader.forElement(resourceTable, "color", "color", ResType.COLOR),
+        ValueResourceLoader.forElement(resourceTable, "drawable", "drawable", ResType.DRAWABLE),
+        ValueResourceLoader.forItem(resourceTable, "color", ResType.COLOR),
+        ValueResourceLoader.forItem(resourceTable, "drawable", ResType.DRAWABLE),
+        ValueResourceLoader.forElement(resourceTable, "dimen", "dimen", ResType.DIMEN),
+        ValueResourceLoader.forItem(resourceTable, "dimen", ResType.DIMEN),
+        ValueResourceLoader.forElement(resourceTable, "integer", "integer", ResType.INTEGER),
+        ValueResourceLoader.forItem(resourceTable, "integer", ResType.INTEGER),
+        ValueResourceLoader.forElement(resourceTable, "integer-array", "array", ResType.INTEGER_ARRAY),
+        ValueResourceLoader.forElement(resourceTable, "fraction", "fraction", ResType.FRACTION),
+        ValueResourceLoader.forItem(resourceTable, "fraction", ResType.FRACTION),
+        ValueResourceLoader.forItem(resourceTable, "layout", ResType.LAYOUT),
+        new PluralResourceLoader(resourceTable),
+        ValueResourceLoader.forElement(resourceTable, "string", "string", ResType.CHAR_SEQUENCE),
+        ValueResourceLoader.forItem(resourceTable, "string", ResType.CHAR_SEQUENCE),
+        ValueResourceLoader.forElement(resourceTable, "string-array", "array", ResType.CHAR_SEQUENCE_ARRAY),
+        ValueResourceLoader.forElement(resourceTable, "array", "array", ResType.TYPED_ARRAY),
+        ValueResourceLoader.forElement(resourceTable, "id", "id", ResType.CHAR_SEQUENCE),
+        ValueResourceLoader.forItem(resourceTable, "id", ResType.CHAR_SEQUENCE),
+        new AttrResourceLoader(resourceTable),
+        new StyleResourceLoader(resourceTable)
+    };
+  }
+}
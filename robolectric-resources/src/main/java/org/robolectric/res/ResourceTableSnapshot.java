@@ -0,0 +1,443 @@
+package org.robolectric.res;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.robolectric.util.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of a {@link PackageResourceTable}, stored in the cache directory so that later
+ * JVMs can skip parsing resource XML and reflecting over R classes.
+ *
+ * A snapshot is named by a digest of everything the table is built from: the package name, the
+ * values in the R classes, and the name, size and modification time of every file under the
+ * resource directories (or of the jar containing them). If any input changes, the snapshot simply
+ * isn't found and the table is built from scratch.
+ */
+public class ResourceTableSnapshot {
+  private static final int MAGIC = 0x52525453; // "RRTS"
+  private static final int FORMAT_VERSION = 1;
+
+  private static final byte TYPE_STRING = 0;
+  private static final byte TYPE_ARRAY = 1;
+  private static final byte TYPE_STYLE = 2;
+  private static final byte TYPE_ATTR = 3;
+  private static final byte TYPE_PLURALS = 4;
+  private static final byte TYPE_FILE = 5;
+  private static final byte TYPE_IMAGE = 6;
+
+  private final Path file;
+
+  ResourceTableSnapshot(File cacheRoot, String packageName, boolean framework, ResourcePath... resourcePaths) {
+    Hasher hasher = Hashing.sha1().newHasher()
+        .putInt(FORMAT_VERSION)
+        .putString(packageName, StandardCharsets.UTF_8)
+        .putBoolean(framework)
+        .putString(Arrays.toString(ResType.values()), StandardCharsets.UTF_8);
+    for (ResourcePath resourcePath : resourcePaths) {
+      hashRClass(hasher, resourcePath.getRClass());
+      hashRClass(hasher, resourcePath.getInternalRClass());
+      hashResources(hasher, resourcePath.getResourceBase());
+    }
+    this.file = new File(new File(cacheRoot, "resource-tables"), hasher.hash().toString() + ".bin").toPath();
+  }
+
+  /**
+   * @return The snapshotted table, or null if there is no usable snapshot.
+   */
+  public PackageResourceTable load() {
+    if (!Files.isRegularFile(file)) return null;
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new Reader(buffer).read();
+    } catch (IOException | RuntimeException e) {
+      Logger.debug("couldn't read resource table snapshot %s: %s", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes a snapshot of the table. Snapshots are written to a temporary file and then moved into
+   * place, so concurrent JVMs never observe a partially written snapshot.
+   */
+  public void save(PackageResourceTable resourceTable) {
+    try {
+      byte[] bytes = new Writer().write(resourceTable);
+      Files.createDirectories(file.getParent());
+      Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try {
+        Files.write(tmpFile, bytes);
+        Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tmpFile);
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      Logger.debug("couldn't write resource table snapshot %s: %s", file, e);
+    }
+  }
+
+  private static void hashRClass(Hasher hasher, Class<?> rClass) {
+    if (rClass == null) return;
+
+    hasher.putString(rClass.getName(), StandardCharsets.UTF_8);
+    for (Class<?> innerClass : rClass.getClasses()) {
+      for (Field field : innerClass.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) continue;
+        try {
+          if (field.getType().equals(Integer.TYPE)) {
+            hasher.putString(field.getName(), StandardCharsets.UTF_8).putInt(field.getInt(null));
+          } else if (field.getType().equals(int[].class)) {
+            hasher.putString(field.getName(), StandardCharsets.UTF_8).putInt(Arrays.hashCode((int[]) field.get(null)));
+          }
+        } catch (IllegalAccessException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+  }
+
+  private static void hashResources(Hasher hasher, FsFile resourceBase) {
+    if (resourceBase == null) return;
+
+    String path = resourceBase.getPath();
+    hasher.putString(path, StandardCharsets.UTF_8);
+    if (path.startsWith("jar:")) {
+      hashFile(hasher, new File(path.substring("jar:".length(), path.indexOf('!'))));
+    } else {
+      hashFile(hasher, new File(path));
+    }
+  }
+
+  private static void hashFile(Hasher hasher, File file) {
+    hasher.putString(file.getName(), StandardCharsets.UTF_8)
+        .putLong(file.length())
+        .putLong(file.lastModified());
+    File[] children = file.listFiles();
+    if (children != null) {
+      Arrays.sort(children);
+      for (File child : children) {
+        hashFile(hasher, child);
+      }
+    }
+  }
+
+  private static class Writer {
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(body);
+
+    byte[] write(PackageResourceTable resourceTable) throws IOException {
+      writeString(resourceTable.getPackageName());
+      out.writeInt(resourceTable.getPackageIdentifier());
+
+      Map<Integer, ResName> resourceIds = resourceTable.getResourceIdMap();
+      out.writeInt(resourceIds.size());
+      for (Map.Entry<Integer, ResName> entry : resourceIds.entrySet()) {
+        out.writeInt(entry.getKey());
+        writeResName(entry.getValue());
+      }
+
+      final List<ResName> names = new ArrayList<>();
+      final List<TypedResource> values = new ArrayList<>();
+      resourceTable.receive(new ResourceTable.Visitor<TypedResource>() {
+        @Override
+        public void visit(ResName key, Iterable<TypedResource> typedResources) {
+          for (TypedResource typedResource : typedResources) {
+            names.add(key);
+            values.add(typedResource);
+          }
+        }
+      });
+      out.writeInt(names.size());
+      for (int i = 0; i < names.size(); i++) {
+        writeResName(names.get(i));
+        writeTypedResource(values.get(i));
+      }
+      out.flush();
+
+      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      DataOutputStream header = new DataOutputStream(result);
+      header.writeInt(MAGIC);
+      header.writeInt(FORMAT_VERSION);
+      header.writeInt(strings.size());
+      for (String string : strings) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        header.writeInt(bytes.length);
+        header.write(bytes);
+      }
+      body.writeTo(header);
+      header.flush();
+      return result.toByteArray();
+    }
+
+    private void writeTypedResource(TypedResource typedResource) throws IOException {
+      Object data = typedResource.getData();
+      XmlContext xmlContext = typedResource.getXmlContext();
+
+      if (typedResource instanceof FileTypedResource.Image) {
+        out.writeByte(TYPE_IMAGE);
+        writeXmlContext(xmlContext);
+        writeString(((FileTypedResource) typedResource).getFsFile().getPath());
+        out.writeBoolean(((FileTypedResource.Image) typedResource).isNinePatch());
+      } else if (typedResource instanceof FileTypedResource) {
+        out.writeByte(TYPE_FILE);
+        writeXmlContext(xmlContext);
+        writeResType(typedResource.getResType());
+        writeString(((FileTypedResource) typedResource).getFsFile().getPath());
+      } else if (typedResource instanceof PluralResourceLoader.PluralRules) {
+        out.writeByte(TYPE_PLURALS);
+        writeXmlContext(xmlContext);
+        writeResType(typedResource.getResType());
+        List<Plural> plurals = ((PluralResourceLoader.PluralRules) typedResource).getData();
+        out.writeInt(plurals.size());
+        for (Plural plural : plurals) {
+          writeString(plural.quantity);
+          writeString(plural.string);
+        }
+      } else if (typedResource.getClass() != TypedResource.class) {
+        throw new UnsupportedOperationException("can't snapshot " + typedResource.getClass());
+      } else if (data == null || data instanceof String) {
+        out.writeByte(TYPE_STRING);
+        writeXmlContext(xmlContext);
+        writeResType(typedResource.getResType());
+        writeString((String) data);
+      } else if (data instanceof TypedResource[]) {
+        out.writeByte(TYPE_ARRAY);
+        writeXmlContext(xmlContext);
+        writeResType(typedResource.getResType());
+        TypedResource[] items = (TypedResource[]) data;
+        out.writeInt(items.length);
+        for (TypedResource item : items) {
+          writeTypedResource(item);
+        }
+      } else if (data instanceof StyleData) {
+        out.writeByte(TYPE_STYLE);
+        writeXmlContext(xmlContext);
+        StyleData styleData = (StyleData) data;
+        writeString(styleData.getPackageName());
+        writeString(styleData.getName());
+        writeString(styleData.getParent());
+        Map<ResName, AttributeResource> items = styleData.getItems();
+        out.writeInt(items.size());
+        for (Map.Entry<ResName, AttributeResource> entry : items.entrySet()) {
+          AttributeResource attributeResource = entry.getValue();
+          writeResName(entry.getKey());
+          writeResName(attributeResource.resName);
+          writeString(attributeResource.value);
+          writeString(attributeResource.contextPackageName);
+          Integer referenceResId = attributeResource.getReferenceResId();
+          out.writeBoolean(referenceResId != null);
+          if (referenceResId != null) out.writeInt(referenceResId);
+        }
+      } else if (data instanceof AttrData) {
+        out.writeByte(TYPE_ATTR);
+        writeXmlContext(xmlContext);
+        AttrData attrData = (AttrData) data;
+        writeString(attrData.getName());
+        writeString(attrData.getFormat());
+        List<AttrData.Pair> pairs = attrData.getPairs();
+        out.writeInt(pairs == null ? -1 : pairs.size());
+        if (pairs != null) {
+          for (AttrData.Pair pair : pairs) {
+            writeString(pair.getName());
+            writeString(pair.getValue());
+          }
+        }
+      } else {
+        throw new UnsupportedOperationException("can't snapshot " + data.getClass());
+      }
+    }
+
+    private void writeXmlContext(XmlContext xmlContext) throws IOException {
+      writeString(xmlContext.getPackageName());
+      writeString(xmlContext.getXmlFile().getPath());
+    }
+
+    private void writeResType(ResType resType) throws IOException {
+      out.writeByte(resType == null ? -1 : resType.ordinal());
+    }
+
+    private void writeResName(ResName resName) throws IOException {
+      writeString(resName.packageName);
+      writeString(resName.type);
+      writeString(resName.name);
+    }
+
+    private void writeString(String string) throws IOException {
+      if (string == null) {
+        out.writeInt(-1);
+        return;
+      }
+      Integer index = stringIndexes.get(string);
+      if (index == null) {
+        index = strings.size();
+        strings.add(string);
+        stringIndexes.put(string, index);
+      }
+      out.writeInt(index);
+    }
+  }
+
+  private static class Reader {
+    private final ByteBuffer buffer;
+    private final Map<String, Fs> jarFileSystems = new HashMap<>();
+    private final Map<String, FsFile> files = new HashMap<>();
+    private String[] strings;
+
+    Reader(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    PackageResourceTable read() {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        throw new IllegalStateException("not a resource table snapshot");
+      }
+
+      strings = new String[buffer.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+
+      PackageResourceTable resourceTable = new PackageResourceTable(readString());
+      int packageIdentifier = buffer.getInt();
+
+      int idCount = buffer.getInt();
+      for (int i = 0; i < idCount; i++) {
+        int id = buffer.getInt();
+        ResName resName = readResName();
+        resourceTable.addResource(id, resName.type, resName.name);
+      }
+      if (resourceTable.getPackageIdentifier() != packageIdentifier) {
+        throw new IllegalStateException("package identifier mismatch");
+      }
+
+      int valueCount = buffer.getInt();
+      for (int i = 0; i < valueCount; i++) {
+        ResName resName = readResName();
+        resourceTable.addResource(resName.type, resName.name, readTypedResource());
+      }
+      return resourceTable;
+    }
+
+    private TypedResource readTypedResource() {
+      byte type = buffer.get();
+      XmlContext xmlContext = new XmlContext(readString(), readFile());
+      switch (type) {
+        case TYPE_IMAGE: {
+          FsFile fsFile = readFile();
+          return new FileTypedResource.Image(fsFile, buffer.get() != 0, xmlContext);
+        }
+        case TYPE_FILE: {
+          ResType resType = readResType();
+          return new FileTypedResource(readFile(), resType, xmlContext);
+        }
+        case TYPE_PLURALS: {
+          ResType resType = readResType();
+          List<Plural> plurals = new ArrayList<>();
+          int count = buffer.getInt();
+          for (int i = 0; i < count; i++) {
+            plurals.add(new Plural(readString(), readString()));
+          }
+          return new PluralResourceLoader.PluralRules(plurals, resType, xmlContext);
+        }
+        case TYPE_STRING: {
+          ResType resType = readResType();
+          return new TypedResource<>(readString(), resType, xmlContext);
+        }
+        case TYPE_ARRAY: {
+          ResType resType = readResType();
+          TypedResource[] items = new TypedResource[buffer.getInt()];
+          for (int i = 0; i < items.length; i++) {
+            items[i] = readTypedResource();
+          }
+          return new TypedResource<>(items, resType, xmlContext);
+        }
+        case TYPE_STYLE: {
+          StyleData styleData = new StyleData(readString(), readString(), readString());
+          int count = buffer.getInt();
+          for (int i = 0; i < count; i++) {
+            ResName attrName = readResName();
+            ResName resName = readResName();
+            String value = readString();
+            String contextPackageName = readString();
+            Integer referenceResId = buffer.get() != 0 ? buffer.getInt() : null;
+            styleData.add(attrName, new AttributeResource(resName, value, contextPackageName, referenceResId));
+          }
+          return new TypedResource<>(styleData, ResType.STYLE, xmlContext);
+        }
+        case TYPE_ATTR: {
+          String name = readString();
+          String format = readString();
+          int count = buffer.getInt();
+          List<AttrData.Pair> pairs = null;
+          if (count >= 0) {
+            pairs = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+              pairs.add(new AttrData.Pair(readString(), readString()));
+            }
+          }
+          return new TypedResource<>(new AttrData(name, format, pairs), ResType.ATTR_DATA, xmlContext);
+        }
+        default:
+          throw new IllegalStateException("unknown resource type " + type);
+      }
+    }
+
+    private FsFile readFile() {
+      String path = readString();
+      FsFile fsFile = files.get(path);
+      if (fsFile == null) {
+        if (path.startsWith("jar:")) {
+          // Share one open jar between all the files in it.
+          String jarPath = path.substring("jar:".length(), path.indexOf('!'));
+          Fs fs = jarFileSystems.get(jarPath);
+          if (fs == null) {
+            fs = new Fs.JarFs(new File(jarPath));
+            jarFileSystems.put(jarPath, fs);
+          }
+          fsFile = fs.join(path.substring(path.indexOf('!') + 2));
+        } else {
+          fsFile = Fs.fileFromPath(path);
+        }
+        files.put(path, fsFile);
+      }
+      return fsFile;
+    }
+
+    private ResType readResType() {
+      byte ordinal = buffer.get();
+      return ordinal == -1 ? null : ResType.values()[ordinal];
+    }
+
+    private ResName readResName() {
+      return new ResName(readString(), readString(), readString());
+    }
+
+    private String readString() {
+      int index = buffer.getInt();
+      return index == -1 ? null : strings[index];
+    }
+  }
+}
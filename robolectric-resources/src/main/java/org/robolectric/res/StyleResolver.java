@@ -3,10 +3,14 @@ package org.robolectric.res;
 import org.robolectric.util.Strings;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class StyleResolver implements Style {
   private final List<StyleData> styles = new ArrayList<>();
+  // values found in this style or its parents; the theme is asked again each time since it may change
+  private final Map<ResName, AttributeResource> ownAttributes = new HashMap<>();
   private final ResourceTable appResourceTable;
   private final ResourceTable systemResourceTable;
   private final Style theme;
@@ -24,6 +28,22 @@ public class StyleResolver implements Style {
   }
 
   @Override public AttributeResource getAttrValue(ResName resName) {
+    AttributeResource value = ownAttributes.get(resName);
+    if (value == null && !ownAttributes.containsKey(resName)) {
+      value = findOwnAttrValue(resName);
+      ownAttributes.put(resName, value);
+    }
+    if (value != null) return value;
+
+    // todo: is this tested?
+    if (theme != null) {
+      return theme.getAttrValue(resName);
+    }
+
+    return null;
+  }
+
+  private AttributeResource findOwnAttrValue(ResName resName) {
     for (StyleData style : styles) {
       AttributeResource value = style.getAttrValue(resName);
       if (value != null) return value;
@@ -42,13 +62,6 @@ public class StyleResolver implements Style {
       AttributeResource value = style.getAttrValue(resName);
       if (value != null) return value;
     }
-
-    // todo: is this tested?
-    if (theme != null) {
-      AttributeResource value = theme.getAttrValue(resName);
-      if (value != null) return value;
-    }
-
     return null;
   }
 
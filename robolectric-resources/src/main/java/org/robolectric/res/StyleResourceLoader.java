@@ -1,15 +1,13 @@
 package org.robolectric.res;
 
-public class StyleResourceLoader extends XpathResourceXmlLoader {
-  private final PackageResourceTable resourceTable;
+public class StyleResourceLoader extends ValueElementLoader {
 
   public StyleResourceLoader(PackageResourceTable resourceTable) {
-    super("/resources/style");
-    this.resourceTable = resourceTable;
+    super(resourceTable, "style", "style", null, false);
   }
 
   @Override
-  protected void processNode(String name, XmlNode xmlNode, XmlContext xmlContext) {
+  protected TypedResource parse(String name, XmlNode xmlNode, XmlContext xmlContext) {
     String styleName = xmlNode.getAttrValue("name");
     String styleParent = xmlNode.getAttrValue("parent");
     if (styleParent == null) {
@@ -30,7 +28,12 @@ public class StyleResourceLoader extends XpathResourceXmlLoader {
       styleData.add(attrResName, new AttributeResource(attrResName, value, xmlContext.getPackageName()));
     }
 
-    resourceTable.addResource("style", styleNameWithUnderscores, new TypedResource<>(styleData, ResType.STYLE, xmlContext));
+    return new TypedResource<>(styleData, ResType.STYLE, xmlContext);
+  }
+
+  @Override
+  protected String getResourceName(String name) {
+    return underscorize(name);
   }
 
   private String underscorize(String s) {
@@ -1,16 +1,31 @@
 package org.robolectric.res;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the list of styles applied to a Theme.
+ *
+ * Attribute values are resolved against the applied styles once and remembered until another style is applied, so
+ * the styles must not change after they have been applied.
  */
 public class ThemeStyleSet implements Style {
 
   private List<OverlayedStyle> styles = new ArrayList<>();
+  private final Map<ResName, AttributeResource> resolvedAttributes = new HashMap<>();
 
   public AttributeResource getAttrValue(ResName attrName) {
+    AttributeResource attribute = resolvedAttributes.get(attrName);
+    if (attribute == null && !resolvedAttributes.containsKey(attrName)) {
+      attribute = findAttrValue(attrName);
+      resolvedAttributes.put(attrName, attribute);
+    }
+    return attribute;
+  }
+
+  private AttributeResource findAttrValue(ResName attrName) {
     AttributeResource attribute = null;
 
     for (OverlayedStyle overlayedStyle : styles) {
@@ -32,11 +47,13 @@ public class ThemeStyleSet implements Style {
       }
     }
     styles.add(styleToAdd);
+    resolvedAttributes.clear();
   }
 
   public ThemeStyleSet copy() {
     ThemeStyleSet themeStyleSet = new ThemeStyleSet();
     themeStyleSet.styles.addAll(this.styles);
+    themeStyleSet.resolvedAttributes.putAll(this.resolvedAttributes);
     return themeStyleSet;
   }
 
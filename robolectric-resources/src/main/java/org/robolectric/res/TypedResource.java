@@ -5,6 +5,7 @@ public class TypedResource<T> {
   private final ResType resType;
   private final String qualifiers;
   private final XmlContext xmlContext;
+  private volatile Qualifiers parsedQualifiers;
 
   public TypedResource(T data, ResType resType, XmlContext xmlContext) {
     this.data = data;
@@ -27,6 +28,14 @@ public class TypedResource<T> {
     return qualifiers;
   }
 
+  public Qualifiers getParsedQualifiers() {
+    Qualifiers parsedQualifiers = this.parsedQualifiers;
+    if (parsedQualifiers == null) {
+      this.parsedQualifiers = parsedQualifiers = Qualifiers.parse(qualifiers);
+    }
+    return parsedQualifiers;
+  }
+
   public XmlContext getXmlContext() {
     return xmlContext;
   }
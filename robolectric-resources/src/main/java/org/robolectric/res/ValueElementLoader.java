@@ -0,0 +1,82 @@
+package org.robolectric.res;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads one kind of resource from the elements of values files. It can be used on its own, running its XPath
+ * expression over each file, or together with others in a {@link ValuesFileLoader}, which finds the elements for all
+ * of them in a single walk over each file.
+ */
+public abstract class ValueElementLoader extends XpathResourceXmlLoader {
+  private static final Pattern TOP_LEVEL_EXPRESSION = Pattern.compile("/resources/([\\w.-]+)(?:\\[@type=['\"]([\\w.-]+)['\"]\\])?");
+  private static final Pattern NESTED_EXPRESSION = Pattern.compile("//([\\w.-]+)");
+
+  private final PackageResourceTable resourceTable;
+  private final String resourceType;
+  /** Null if elements are found by evaluating the XPath expression. */
+  final String elementName;
+  final String itemType;
+  final boolean nested;
+
+  /**
+   * @param elementName the name of the elements to load
+   * @param itemType if not null, only elements whose {@code type} attribute has this value are loaded
+   * @param nested whether elements are loaded wherever they appear, rather than only as children of {@code <resources>}
+   */
+  protected ValueElementLoader(PackageResourceTable resourceTable, String resourceType, String elementName, String itemType, boolean nested) {
+    super(nested ? "//" + elementName : "/resources/" + elementName + (itemType == null ? "" : "[@type='" + itemType + "']"));
+    this.resourceTable = resourceTable;
+    this.resourceType = resourceType;
+    this.elementName = elementName;
+    this.itemType = itemType;
+    this.nested = nested;
+  }
+
+  /**
+   * Loads the elements an XPath expression selects. Expressions of the forms {@code /resources/elementName},
+   * {@code /resources/elementName[@type='itemType']} and {@code //elementName} are matched by a
+   * {@link ValuesFileLoader} without evaluating them; others are evaluated over each file.
+   */
+  protected ValueElementLoader(PackageResourceTable resourceTable, String resourceType, String expression) {
+    super(expression);
+    this.resourceTable = resourceTable;
+    this.resourceType = resourceType;
+    Matcher topLevel = TOP_LEVEL_EXPRESSION.matcher(expression);
+    Matcher nested = NESTED_EXPRESSION.matcher(expression);
+    if (topLevel.matches()) {
+      this.elementName = topLevel.group(1);
+      this.itemType = topLevel.group(2);
+      this.nested = false;
+    } else if (nested.matches()) {
+      this.elementName = nested.group(1);
+      this.itemType = null;
+      this.nested = true;
+    } else {
+      this.elementName = null;
+      this.itemType = null;
+      this.nested = false;
+    }
+  }
+
+  @Override
+  protected void processNode(String name, XmlNode xmlNode, XmlContext xmlContext) {
+    TypedResource value = parse(name, xmlNode, xmlContext);
+    if (value != null) {
+      addResource(name, value);
+    }
+  }
+
+  /**
+   * Returns the resource defined by an element, or null if it doesn't define one. Must not touch the resource table.
+   */
+  protected abstract TypedResource parse(String name, XmlNode xmlNode, XmlContext xmlContext);
+
+  protected String getResourceName(String name) {
+    return name;
+  }
+
+  void addResource(String name, TypedResource value) {
+    resourceTable.addResource(resourceType, getResourceName(name), value);
+  }
+}
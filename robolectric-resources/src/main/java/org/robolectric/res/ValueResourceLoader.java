@@ -1,19 +1,34 @@
 package org.robolectric.res;
 
-public class ValueResourceLoader extends XpathResourceXmlLoader {
-  private final PackageResourceTable resourceTable;
-  private final String attrType;
+public class ValueResourceLoader extends ValueElementLoader {
   private final ResType resType;
 
   public ValueResourceLoader(PackageResourceTable resourceTable, String xpathExpr, String attrType, ResType resType) {
-    super(xpathExpr);
-    this.resourceTable = resourceTable;
-    this.attrType = attrType;
+    super(resourceTable, attrType, xpathExpr);
     this.resType = resType;
   }
 
+  private ValueResourceLoader(PackageResourceTable resourceTable, String attrType, String elementName, String itemType, ResType resType) {
+    super(resourceTable, attrType, elementName, itemType, false);
+    this.resType = resType;
+  }
+
+  /**
+   * Loads {@code <resources><elementName>} elements as resources of type {@code attrType}.
+   */
+  public static ValueResourceLoader forElement(PackageResourceTable resourceTable, String elementName, String attrType, ResType resType) {
+    return new ValueResourceLoader(resourceTable, attrType, elementName, null, resType);
+  }
+
+  /**
+   * Loads {@code <resources><item type="attrType">} elements.
+   */
+  public static ValueResourceLoader forItem(PackageResourceTable resourceTable, String attrType, ResType resType) {
+    return new ValueResourceLoader(resourceTable, attrType, "item", attrType, resType);
+  }
+
   @Override
-  protected void processNode(String name, XmlNode xmlNode, XmlContext xmlContext) {
-    resourceTable.addResource(attrType, name, resType.getValueWithType(xmlNode, xmlContext));
+  protected TypedResource parse(String name, XmlNode xmlNode, XmlContext xmlContext) {
+    return resType.getValueWithType(xmlNode, xmlContext);
   }
 }
@@ -0,0 +1,117 @@
+package org.robolectric.res;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads all the resources in a values file in one walk over its elements, handing each element to the loaders
+ * registered for its name and {@code type} attribute, instead of evaluating a separate XPath expression per loader.
+ * Only loaders whose expressions aren't of the simple forms {@link ValueElementLoader} recognizes have them evaluated.
+ *
+ * Resources are parsed on the parser thread and added to the table afterwards, grouped by loader in registration
+ * order and in document order within each loader, just as running the loaders one after the other would.
+ */
+public class ValuesFileLoader implements XmlLoader.Preparing {
+  private final ValueElementLoader[] loaders;
+  private final Map<String, List<Integer>> topLevelLoaders = new HashMap<>();
+  private final Map<String, List<Integer>> nestedLoaders = new HashMap<>();
+
+  public ValuesFileLoader(ValueElementLoader... loaders) {
+    this.loaders = loaders;
+    for (int i = 0; i < loaders.length; i++) {
+      ValueElementLoader loader = loaders[i];
+      if (loader.elementName == null) {
+        continue;
+      }
+      register(loader.nested ? nestedLoaders : topLevelLoaders, key(loader.elementName, loader.itemType), i);
+    }
+  }
+
+  private static void register(Map<String, List<Integer>> loadersByKey, String key, int index) {
+    List<Integer> indexes = loadersByKey.get(key);
+    if (indexes == null) {
+      indexes = new ArrayList<>();
+      loadersByKey.put(key, indexes);
+    }
+    indexes.add(index);
+  }
+
+  private static String key(String elementName, String itemType) {
+    return itemType == null ? elementName : elementName + "[@type='" + itemType + "']";
+  }
+
+  @Override
+  public void processResourceXml(XpathResourceXmlLoader.XmlNode xmlNode, XmlContext xmlContext) {
+    prepare(xmlNode, xmlContext).run();
+  }
+
+  @Override
+  public Runnable prepare(XpathResourceXmlLoader.XmlNode xmlNode, XmlContext xmlContext) {
+    final List<List<XpathResourceXmlLoader.XmlNode>> matches = new ArrayList<>(loaders.length);
+    for (int i = 0; i < loaders.length; i++) {
+      matches.add(new ArrayList<XpathResourceXmlLoader.XmlNode>());
+    }
+
+    final List<ValueElementLoader> resourceLoaders = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+    final List<TypedResource> values = new ArrayList<>();
+    try {
+      collect(xmlNode, 0, "resources".equals(xmlNode.getElementName()), matches);
+
+      for (int i = 0; i < loaders.length; i++) {
+        // the nodes an XPath expression selects share one navigator, so they're parsed as they're found
+        Iterable<XpathResourceXmlLoader.XmlNode> loaderMatches = loaders[i].elementName == null
+            ? xmlNode.selectByXpath(loaders[i].getExpression())
+            : matches.get(i);
+        for (XpathResourceXmlLoader.XmlNode match : loaderMatches) {
+          String name = match.getAttrValue("name");
+          TypedResource value = loaders[i].parse(name, match, xmlContext);
+          if (value != null) {
+            resourceLoaders.add(loaders[i]);
+            names.add(name);
+            values.add(value);
+          }
+        }
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("Error processing " + xmlContext.getXmlFile(), e);
+    }
+
+    return new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < values.size(); i++) {
+          resourceLoaders.get(i).addResource(names.get(i), values.get(i));
+        }
+      }
+    };
+  }
+
+  private void collect(XpathResourceXmlLoader.XmlNode xmlNode, int depth, boolean inResources, List<List<XpathResourceXmlLoader.XmlNode>> matches) {
+    String elementName = xmlNode.getElementName();
+    addMatches(nestedLoaders.get(elementName), xmlNode, matches);
+    if (depth == 1 && inResources) {
+      addMatches(topLevelLoaders.get(elementName), xmlNode, matches);
+      String type = xmlNode.getAttrValue("type");
+      if (type != null) {
+        addMatches(topLevelLoaders.get(key(elementName, type)), xmlNode, matches);
+      }
+    }
+
+    if (depth == 0 || !nestedLoaders.isEmpty()) {
+      for (XpathResourceXmlLoader.XmlNode child = xmlNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+        collect(child, depth + 1, inResources, matches);
+      }
+    }
+  }
+
+  private static void addMatches(List<Integer> indexes, XpathResourceXmlLoader.XmlNode xmlNode, List<List<XpathResourceXmlLoader.XmlNode>> matches) {
+    if (indexes != null) {
+      for (int index : indexes) {
+        matches.get(index).add(xmlNode);
+      }
+    }
+  }
+}
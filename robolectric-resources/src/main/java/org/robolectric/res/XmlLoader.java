@@ -4,4 +4,14 @@ interface XmlLoader {
 
   void processResourceXml(XpathResourceXmlLoader.XmlNode xmlNode, XmlContext xmlContext);
 
+  /**
+   * An {@link XmlLoader} which can do most of its work on the thread which parsed the file. {@link #prepare} must not
+   * touch the resource table; the work it returns is run in place of {@link #processResourceXml} when it's the file's
+   * turn to be added to the table.
+   */
+  interface Preparing extends XmlLoader {
+
+    Runnable prepare(XpathResourceXmlLoader.XmlNode xmlNode, XmlContext xmlContext);
+
+  }
 }
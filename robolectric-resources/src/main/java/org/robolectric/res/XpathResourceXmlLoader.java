@@ -14,6 +14,10 @@ public abstract class XpathResourceXmlLoader implements XmlLoader {
     this.expression = expression;
   }
 
+  String getExpression() {
+    return expression;
+  }
+
   @Override
   public void processResourceXml(XmlNode xmlNode, XmlContext xmlContext) {
     try {
@@ -53,6 +57,16 @@ public abstract class XpathResourceXmlLoader implements XmlLoader {
       }
     }
 
+    public XmlNode getNextSibling() {
+      try {
+        VTDNav cloneVtdNav = vtdNav.cloneNav();
+        if (!cloneVtdNav.toElement(VTDNav.NEXT_SIBLING)) return null;
+        return new XmlNode(cloneVtdNav);
+      } catch (NavException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
     public String getTextContent() {
       try {
         return vtdNav.getXPathStringVal();
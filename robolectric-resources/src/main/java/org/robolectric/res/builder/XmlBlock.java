@@ -15,28 +15,47 @@ import java.io.InputStream;
 /**
  * An XML block is a parsed representation of a resource XML file. Similar in nature
  * to Android's XmlBlock class.
+ *
+ * XML blocks are immutable and may be cached and shared between threads; the underlying
+ * {@link Document} must not be modified.
  */
 public class XmlBlock {
 
-  private static DocumentBuilder documentBuilder;
+  private static final String DEFER_NODE_EXPANSION = "http://apache.org/xml/features/dom/defer-node-expansion";
+
+  // DocumentBuilders aren't thread safe, so each thread gets its own rather than sharing a lock.
+  private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>() {
+    @Override
+    protected DocumentBuilder initialValue() {
+      try {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilderFactory.setIgnoringComments(true);
+        documentBuilderFactory.setIgnoringElementContentWhitespace(true);
+        try {
+          // Parsed documents are cached and read from several threads, so build all the nodes
+          // up front instead of lazily expanding them on first access.
+          documentBuilderFactory.setFeature(DEFER_NODE_EXPANSION, false);
+        } catch (ParserConfigurationException e) {
+          // not a Xerces parser, nodes won't be deferred anyway
+        }
+        return documentBuilderFactory.newDocumentBuilder();
+      } catch (ParserConfigurationException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  };
 
   private final Document document;
   private final String filename;
   private final String packageName;
 
-  private synchronized static Document parse(FsFile xmlFile) {
+  private static Document parse(FsFile xmlFile) {
     InputStream inputStream = null;
     try {
-      if (documentBuilder == null) {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setNamespaceAware(true);
-        documentBuilderFactory.setIgnoringComments(true);
-        documentBuilderFactory.setIgnoringElementContentWhitespace(true);
-        documentBuilder = documentBuilderFactory.newDocumentBuilder();
-      }
       inputStream = xmlFile.getInputStream();
-      return documentBuilder.parse(inputStream);
-    } catch (ParserConfigurationException | IOException | SAXException e) {
+      return documentBuilder.get().parse(inputStream);
+    } catch (IOException | SAXException e) {
       throw new RuntimeException(e);
     } finally {
       if (inputStream != null) try {
@@ -0,0 +1,207 @@
+package org.robolectric.res;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(JUnit4.class)
+public class MappedJarTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File jarFile;
+
+  @Before
+  public void setUp() throws Exception {
+    jarFile = temporaryFolder.newFile("test.jar");
+    writeJar(jarFile, "deflated");
+  }
+
+  @Test
+  public void shouldReadStoredAndDeflatedEntries() throws Exception {
+    MappedJar jar = MappedJar.open(jarFile);
+
+    assertThat(new String(jar.read("res/values/deflated.txt"), StandardCharsets.UTF_8)).isEqualTo(text("deflated"));
+    assertThat(new String(jar.read("res/values/stored.txt"), StandardCharsets.UTF_8)).isEqualTo("stored");
+    assertThat(jar.read("res/values/missing.txt")).isNull();
+    assertThat(jar.contains("res/")).isTrue();
+    assertThat(jar.getEntryNames()).containsExactly("res/", "res/values/", "res/values/deflated.txt", "res/values/stored.txt");
+  }
+
+  @Test
+  public void shouldShareJarsUntilTheyChange() throws Exception {
+    MappedJar jar = MappedJar.open(jarFile);
+    assertThat(MappedJar.open(new File(jarFile.getParentFile(), "./test.jar"))).isSameAs(jar);
+
+    writeJar(jarFile, "rewritten");
+    jarFile.setLastModified(jarFile.lastModified() + 10000);
+    MappedJar rewritten = MappedJar.open(jarFile);
+    assertThat(rewritten).isNotSameAs(jar);
+    assertThat(new String(rewritten.read("res/values/deflated.txt"), StandardCharsets.UTF_8)).isEqualTo(text("rewritten"));
+  }
+
+  @Test
+  public void jarFsShouldReadThroughMappedJar() throws Exception {
+    FsFile values = Fs.fromJar(jarFile.toURI().toURL()).join("res").join("values");
+
+    assertThat(values.isDirectory()).isTrue();
+    assertThat(values.listFileNames()).containsOnly("deflated.txt", "stored.txt");
+    assertThat(new String(values.join("deflated.txt").getBytes(), StandardCharsets.UTF_8)).isEqualTo(text("deflated"));
+  }
+
+  @Test
+  public void jarFsShouldFallBackToJarFileForZip64Jars() throws Exception {
+    File zip64File = temporaryFolder.newFile("zip64.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip64File))) {
+      out.putNextEntry(new ZipEntry("res/"));
+      out.putNextEntry(new ZipEntry("res/values/"));
+      out.putNextEntry(new ZipEntry("res/values/deflated.txt"));
+      out.write(text("zip64").getBytes(StandardCharsets.UTF_8));
+      // more than 0xffff entries makes ZipOutputStream write a zip64 end of central directory
+      for (int i = 0; i < 0x10000; i++) {
+        out.putNextEntry(new ZipEntry("filler/" + i));
+      }
+    }
+
+    try {
+      MappedJar.open(zip64File);
+      fail("expected IOException");
+    } catch (IOException e) {
+      assertThat(e.getMessage()).contains("zip64");
+    }
+
+    FsFile values = Fs.fromJar(zip64File.toURI().toURL()).join("res").join("values");
+    assertThat(values.isDirectory()).isTrue();
+    assertThat(values.listFileNames()).containsOnly("deflated.txt");
+    assertThat(new String(values.join("deflated.txt").getBytes(), StandardCharsets.UTF_8)).isEqualTo(text("zip64"));
+  }
+
+  @Test
+  public void jarFsShouldFallBackToJarFileForJarsWithZip64Entries() throws Exception {
+    File zip64File = temporaryFolder.newFile("zip64-entry.jar");
+    writeJarWithZip64Entry(zip64File, "res/values/zip64.txt", text("zip64").getBytes(StandardCharsets.UTF_8));
+
+    try {
+      MappedJar.open(zip64File);
+      fail("expected IOException");
+    } catch (IOException e) {
+      assertThat(e.getMessage()).contains("zip64");
+    }
+
+    FsFile values = Fs.fromJar(zip64File.toURI().toURL()).join("res").join("values");
+    assertThat(new String(values.join("zip64.txt").getBytes(), StandardCharsets.UTF_8)).isEqualTo(text("zip64"));
+  }
+
+  @Test
+  public void shouldRejectJarsWithEntriesOutsideTheFile() throws Exception {
+    for (int field : new int[] {20, 24, 42}) {
+      File corruptFile = temporaryFolder.newFile("corrupt-" + field + ".jar");
+      writeJar(corruptFile, "corrupt");
+      patchCentralDirectory(corruptFile, "res/values/deflated.txt", field, 0x80000000);
+
+      try {
+        MappedJar.open(corruptFile);
+        fail("expected IOException for field at " + field);
+      } catch (IOException e) {
+        assertThat(e.getMessage()).contains("bad central directory");
+      }
+    }
+  }
+
+  /**
+   * Overwrites a four byte field of an entry's central directory header.
+   */
+  private static void patchCentralDirectory(File file, String entryName, int fieldOffset, int value) throws Exception {
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+    for (int offset = 0; offset < bytes.length - 46 - name.length; offset++) {
+      if (buffer.getInt(offset) == 0x02014b50
+          && Arrays.equals(Arrays.copyOfRange(bytes, offset + 46, offset + 46 + name.length), name)) {
+        buffer.putInt(offset + fieldOffset, value);
+        Files.write(file.toPath(), bytes);
+        return;
+      }
+    }
+    throw new AssertionError("no central directory header for " + entryName);
+  }
+
+  /**
+   * Writes a jar with one stored entry whose sizes are kept in a zip64 extra field, as they are for entries of 4GB or
+   * more, which ZipOutputStream only writes for entries that large.
+   */
+  private static void writeJarWithZip64Entry(File file, String entryName, byte[] contents) throws Exception {
+    byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    ByteBuffer buffer = ByteBuffer.allocate(2 * (46 + name.length + 20) + contents.length + 22).order(ByteOrder.LITTLE_ENDIAN);
+
+    buffer.putInt(0x04034b50).putShort((short) 45).putShort((short) 0).putShort((short) 0).putInt(0)
+        .putInt((int) crc.getValue()).putInt(0xffffffff).putInt(0xffffffff)
+        .putShort((short) name.length).putShort((short) 20).put(name);
+    putZip64Extra(buffer, contents.length);
+    buffer.put(contents);
+
+    int directoryOffset = buffer.position();
+    buffer.putInt(0x02014b50).putShort((short) 45).putShort((short) 45).putShort((short) 0).putShort((short) 0).putInt(0)
+        .putInt((int) crc.getValue()).putInt(0xffffffff).putInt(0xffffffff)
+        .putShort((short) name.length).putShort((short) 20).putShort((short) 0).putShort((short) 0).putShort((short) 0)
+        .putInt(0).putInt(0).put(name);
+    putZip64Extra(buffer, contents.length);
+    int directorySize = buffer.position() - directoryOffset;
+
+    buffer.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) 1).putShort((short) 1)
+        .putInt(directorySize).putInt(directoryOffset).putShort((short) 0);
+    Files.write(file.toPath(), Arrays.copyOf(buffer.array(), buffer.position()));
+  }
+
+  private static void putZip64Extra(ByteBuffer buffer, long size) {
+    buffer.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(size);
+  }
+
+  private static String text(String word) {
+    StringBuilder buf = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      buf.append(word).append(' ').append(i).append('\n');
+    }
+    return buf.toString();
+  }
+
+  private static void writeJar(File file, String word) throws Exception {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+      out.putNextEntry(new ZipEntry("res/"));
+      out.putNextEntry(new ZipEntry("res/values/"));
+      out.putNextEntry(new ZipEntry("res/values/deflated.txt"));
+      out.write(text(word).getBytes(StandardCharsets.UTF_8));
+
+      byte[] stored = "stored".getBytes(StandardCharsets.UTF_8);
+      ZipEntry storedEntry = new ZipEntry("res/values/stored.txt");
+      storedEntry.setMethod(ZipEntry.STORED);
+      storedEntry.setSize(stored.length);
+      CRC32 crc = new CRC32();
+      crc.update(stored);
+      storedEntry.setCrc(crc.getValue());
+      out.putNextEntry(storedEntry);
+      out.write(stored);
+      out.closeEntry();
+    }
+  }
+}
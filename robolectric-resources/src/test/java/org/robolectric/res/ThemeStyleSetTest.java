@@ -37,6 +37,31 @@ public class ThemeStyleSetTest {
     assertThat(themeStyleSet.getAttrValue(attrName("string2")).value).isEqualTo("string2 value from style1");
   }
 
+  @Test
+  public void shouldFindAttributesFromStylesAppliedAfterALookup() throws Exception {
+    themeStyleSet.apply(createStyle("style1", createAttribute("string1", "string1 value from style1")), false);
+    assertThat(themeStyleSet.getAttrValue(attrName("string2"))).isNull();
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style1");
+
+    themeStyleSet.apply(createStyle("style2",
+        createAttribute("string1", "string1 value from style2"),
+        createAttribute("string2", "string2 value from style2")
+    ), true);
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style2");
+    assertThat(themeStyleSet.getAttrValue(attrName("string2")).value).isEqualTo("string2 value from style2");
+  }
+
+  @Test
+  public void copy_shouldNotSeeStylesAppliedToTheOriginal() throws Exception {
+    themeStyleSet.apply(createStyle("style1", createAttribute("string1", "string1 value from style1")), false);
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style1");
+    ThemeStyleSet copy = themeStyleSet.copy();
+
+    themeStyleSet.apply(createStyle("style2", createAttribute("string1", "string1 value from style2")), true);
+    assertThat(copy.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style1");
+    assertThat(themeStyleSet.getAttrValue(attrName("string1")).value).isEqualTo("string1 value from style2");
+  }
+
   private StyleData createStyle(String styleName, AttributeResource... attributeResources) {
     StyleData styleData = new StyleData("package", styleName, null);
     for (AttributeResource attributeResource : attributeResources) {
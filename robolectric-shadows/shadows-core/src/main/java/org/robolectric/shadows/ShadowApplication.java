@@ -72,6 +72,7 @@ public class ShadowApplication extends ShadowContextWrapper {
   private List<ServiceConnection> boundServiceConnections = new ArrayList<>();
   private List<ServiceConnection> unboundServiceConnections = new ArrayList<>();
   private List<Wrapper> registeredReceivers = new ArrayList<>();
+  private final ReceiverIndex receiverIndex = new ReceiverIndex();
   private Map<String, Intent> stickyIntents = new LinkedHashMap<>();
   private Handler mainHandler;
   private Scheduler backgroundScheduler = RoboSettings.isUseGlobalScheduler() ? getForegroundThreadScheduler() : new Scheduler();
@@ -369,25 +370,22 @@ public class ShadowApplication extends ShadowContextWrapper {
   @Implementation
   public void sendOrderedBroadcast(Intent intent, String receiverPermission, BroadcastReceiver resultReceiver,
                                    Handler scheduler, int initialCode, String initialData, Bundle initialExtras) {
-    List<Wrapper> receivers = getAppropriateWrappers(intent, receiverPermission);
-    sortByPriority(receivers);
+    List<Wrapper> receivers = getAppropriateWrappers(intent, receiverPermission, true);
     receivers.add(new Wrapper(resultReceiver, null, this.realApplication, null, scheduler));
     postOrderedToWrappers(receivers, intent, initialCode, initialData, initialExtras);
   }
 
   /*
-    Returns the BroadcaseReceivers wrappers, matching intent's action and permissions.
+    Returns the BroadcaseReceivers wrappers, matching intent's action and permissions, either in the order they were
+    registered or by decreasing priority.
    */
-  private List<Wrapper> getAppropriateWrappers(Intent intent, String receiverPermission) {
+  private List<Wrapper> getAppropriateWrappers(Intent intent, String receiverPermission, boolean byPriority) {
     broadcastIntents.add(intent);
 
     List<Wrapper> result = new ArrayList<>();
 
-    List<Wrapper> copy = new ArrayList<>();
-    copy.addAll(registeredReceivers);
-    for (Wrapper wrapper : copy) {
-      if (hasMatchingPermission(wrapper.broadcastPermission, receiverPermission)
-          && wrapper.intentFilter.matchAction(intent.getAction())) {
+    for (Wrapper wrapper : receiverIndex.get(intent.getAction(), byPriority)) {
+      if (hasMatchingPermission(wrapper.broadcastPermission, receiverPermission)) {
         final int match = wrapper.intentFilter.matchData(intent.getType(), intent.getScheme(), intent.getData());
         if (match != IntentFilter.NO_MATCH_DATA && match != IntentFilter.NO_MATCH_TYPE) {
           result.add(wrapper);
@@ -503,27 +501,15 @@ public class ShadowApplication extends ShadowContextWrapper {
    *               todo: enqueue the Intent for later inspection
    */
   private void sendBroadcastWithPermission(Intent intent, String receiverPermission) {
-    List<Wrapper> wrappers = getAppropriateWrappers(intent, receiverPermission);
+    List<Wrapper> wrappers = getAppropriateWrappers(intent, receiverPermission, false);
     postToWrappers(wrappers, intent);
   }
 
   private void sendOrderedBroadcastWithPermission(Intent intent, String receiverPermission) {
-    List<Wrapper> wrappers = getAppropriateWrappers(intent, receiverPermission);
-    // sort by the decrease of priorities
-    sortByPriority(wrappers);
-
+    List<Wrapper> wrappers = getAppropriateWrappers(intent, receiverPermission, true);
     postOrderedToWrappers(wrappers, intent, 0, null, null);
   }
 
-  private void sortByPriority(List<Wrapper> wrappers) {
-    Collections.sort(wrappers, new Comparator<Wrapper>() {
-      @Override
-      public int compare(Wrapper o1, Wrapper o2) {
-        return Integer.compare(o2.getIntentFilter().getPriority(), o1.getIntentFilter().getPriority());
-      }
-    });
-  }
-
   public List<Intent> getBroadcastIntents() {
     return broadcastIntents;
   }
@@ -551,7 +537,9 @@ public class ShadowApplication extends ShadowContextWrapper {
 
   Intent registerReceiverWithContext(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission, Handler scheduler, Context context) {
     if (receiver != null) {
-      registeredReceivers.add(new Wrapper(receiver, filter, context, broadcastPermission, scheduler));
+      Wrapper wrapper = new Wrapper(receiver, filter, context, broadcastPermission, scheduler);
+      registeredReceivers.add(wrapper);
+      receiverIndex.add(wrapper);
     }
     return processStickyIntents(filter, receiver, context);
   }
@@ -587,6 +575,7 @@ public class ShadowApplication extends ShadowContextWrapper {
       Wrapper wrapper = iterator.next();
       if (wrapper.broadcastReceiver == broadcastReceiver) {
         iterator.remove();
+        receiverIndex.remove(wrapper);
         found = true;
       }
     }
@@ -613,20 +602,13 @@ public class ShadowApplication extends ShadowContextWrapper {
   }
 
   public boolean hasReceiverForIntent(Intent intent) {
-    for (Wrapper wrapper : registeredReceivers) {
-      if (wrapper.intentFilter.matchAction(intent.getAction())) {
-        return true;
-      }
-    }
-    return false;
+    return !receiverIndex.get(intent.getAction(), false).isEmpty();
   }
 
   public List<BroadcastReceiver> getReceiversForIntent(Intent intent) {
     ArrayList<BroadcastReceiver> broadcastReceivers = new ArrayList<>();
-    for (Wrapper wrapper : registeredReceivers) {
-      if (wrapper.intentFilter.matchAction(intent.getAction())) {
-        broadcastReceivers.add(wrapper.getBroadcastReceiver());
-      }
+    for (Wrapper wrapper : receiverIndex.get(intent.getAction(), false)) {
+      broadcastReceivers.add(wrapper.getBroadcastReceiver());
     }
     return broadcastReceivers;
   }
@@ -634,10 +616,10 @@ public class ShadowApplication extends ShadowContextWrapper {
   /**
    * Non-Android accessor.
    *
-   * @return list of {@link Wrapper}s for registered receivers
+   * @return unmodifiable list of {@link Wrapper}s for registered receivers
    */
   public List<Wrapper> getRegisteredReceivers() {
-    return registeredReceivers;
+    return Collections.unmodifiableList(registeredReceivers);
   }
 
   /**
@@ -798,6 +780,77 @@ public class ShadowApplication extends ShadowContextWrapper {
     return permission1 == null ? permission2 == null : permission1.equals(permission2);
   }
 
+  /**
+   * Registered receivers, indexed by the actions of their filters. Like the platform, the actions and priority of a
+   * filter are taken when the receiver is registered.
+   *
+   * Each action's receivers are kept both in the order they were registered and by decreasing priority. These lists
+   * are replaced rather than modified when receivers are registered or unregistered, so broadcasts can iterate over
+   * them without copying or sorting.
+   */
+  private static class ReceiverIndex {
+    private static final Comparator<Wrapper> BY_DECREASING_PRIORITY = new Comparator<Wrapper>() {
+      @Override
+      public int compare(Wrapper o1, Wrapper o2) {
+        return Integer.compare(o2.getIntentFilter().getPriority(), o1.getIntentFilter().getPriority());
+      }
+    };
+
+    private final Map<String, Receivers> byAction = new HashMap<>();
+
+    void add(Wrapper wrapper) {
+      Iterator<String> actions = wrapper.intentFilter.actionsIterator();
+      while (actions != null && actions.hasNext()) {
+        String action = actions.next();
+        Receivers receivers = byAction.get(action);
+        List<Wrapper> inRegistrationOrder = new ArrayList<>();
+        if (receivers != null) {
+          inRegistrationOrder.addAll(receivers.inRegistrationOrder);
+        }
+        inRegistrationOrder.add(wrapper);
+        byAction.put(action, new Receivers(inRegistrationOrder));
+      }
+    }
+
+    void remove(Wrapper wrapper) {
+      Iterator<Map.Entry<String, Receivers>> entries = byAction.entrySet().iterator();
+      while (entries.hasNext()) {
+        Map.Entry<String, Receivers> entry = entries.next();
+        if (!entry.getValue().inRegistrationOrder.contains(wrapper)) {
+          continue;
+        }
+        List<Wrapper> inRegistrationOrder = new ArrayList<>(entry.getValue().inRegistrationOrder);
+        inRegistrationOrder.remove(wrapper);
+        if (inRegistrationOrder.isEmpty()) {
+          entries.remove();
+        } else {
+          entry.setValue(new Receivers(inRegistrationOrder));
+        }
+      }
+    }
+
+    List<Wrapper> get(String action, boolean byPriority) {
+      Receivers receivers = action == null ? null : byAction.get(action);
+      if (receivers == null) {
+        return Collections.emptyList();
+      }
+      return byPriority ? receivers.byPriority : receivers.inRegistrationOrder;
+    }
+
+    private static class Receivers {
+      private final List<Wrapper> inRegistrationOrder;
+      private final List<Wrapper> byPriority;
+
+      Receivers(List<Wrapper> inRegistrationOrder) {
+        List<Wrapper> byPriority = new ArrayList<>(inRegistrationOrder);
+        // the sort is stable, so receivers with the same priority stay in the order they were registered
+        Collections.sort(byPriority, BY_DECREASING_PRIORITY);
+        this.inRegistrationOrder = Collections.unmodifiableList(inRegistrationOrder);
+        this.byPriority = Collections.unmodifiableList(byPriority);
+      }
+    }
+  }
+
   private static class ServiceConnectionDataWrapper {
     public final ComponentName componentNameForBindService;
     public final IBinder binderForBindService;
@@ -20,6 +20,7 @@ import org.robolectric.res.builder.XmlBlock;
 import org.robolectric.res.builder.XmlResourceParserImpl;
 import org.robolectric.util.Logger;
 import org.robolectric.util.ReflectionHelpers;
+import org.robolectric.util.Strings;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -54,6 +55,9 @@ public final class ShadowAssetManager {
 
   class NativeTheme {
     private ThemeStyleSet themeStyleSet;
+    // styles resolved against this theme, until a style is applied to it or it's replaced
+    private final Map<ResName, Style> resolvedStyles = new HashMap<>();
+    private String resolvedStylesQualifiers;
 
     public NativeTheme(ThemeStyleSet themeStyleSet) {
       this.themeStyleSet = themeStyleSet;
@@ -62,6 +66,24 @@ public final class ShadowAssetManager {
     public ShadowAssetManager getShadowAssetManager() {
       return ShadowAssetManager.this;
     }
+
+    Style resolveStyle(ResName styleName) {
+      String qualifiers = RuntimeEnvironment.getQualifiers();
+      if (!Strings.equals(qualifiers, resolvedStylesQualifiers)) {
+        resolvedStyles.clear();
+        resolvedStylesQualifiers = qualifiers;
+      }
+      Style style = resolvedStyles.get(styleName);
+      if (style == null && !resolvedStyles.containsKey(styleName)) {
+        style = ShadowAssetManager.this.resolveStyle(styleName, themeStyleSet);
+        resolvedStyles.put(styleName, style);
+      }
+      return style;
+    }
+
+    void invalidate() {
+      resolvedStyles.clear();
+    }
   }
 
   @RealObject
@@ -572,7 +594,8 @@ public final class ShadowAssetManager {
     NativeTheme nativeTheme = getNativeTheme(themePtr);
     Style style = nativeTheme.getShadowAssetManager().resolveStyle(styleRes, null);
     nativeTheme.themeStyleSet.apply(style, force);
-}
+    nativeTheme.invalidate();
+  }
 
   @HiddenApi @Implementation(maxSdk = KITKAT_WATCH)
   public static void copyTheme(int destPtr, int sourcePtr) {
@@ -584,6 +607,7 @@ public final class ShadowAssetManager {
     NativeTheme destNativeTheme = getNativeTheme(destPtr);
     NativeTheme sourceNativeTheme = getNativeTheme(sourcePtr);
     destNativeTheme.themeStyleSet = sourceNativeTheme.themeStyleSet.copy();
+    destNativeTheme.invalidate();
   }
 
   /////////////////////////
@@ -602,6 +626,13 @@ public final class ShadowAssetManager {
     return new StyleResolver(resourceTable, shadowOf(AssetManager.getSystem()).getResourceTable(), themeStyleData, themeStyleSet, themeStyleName, RuntimeEnvironment.getQualifiers());
   }
 
+  private Style resolveStyle(@NotNull ResName styleName, Style themeStyleSet, NativeTheme nativeTheme) {
+    if (nativeTheme != null && nativeTheme.getShadowAssetManager() == this) {
+      return nativeTheme.resolveStyle(styleName);
+    }
+    return resolveStyle(styleName, themeStyleSet);
+  }
+
   private TypedResource getAndResolve(int resId, String qualifiers, boolean resolveRefs) {
     TypedResource value = resourceTable.getValue(resId, qualifiers);
     if (resolveRefs) {
@@ -655,7 +686,7 @@ public final class ShadowAssetManager {
     return resolveResourceValue(value, qualifiers, resName);
   }
 
-  private TypedValue buildTypedValue(AttributeSet set, int resId, int defStyleAttr, Style themeStyleSet, int defStyleRes) {
+  private AppliedStyles resolveAppliedStyles(AttributeSet set, int defStyleAttr, int defStyleRes, Style themeStyleSet, NativeTheme nativeTheme) {
     /*
      * When determining the final value of a particular attribute, there are four inputs that come into play:
      *
@@ -685,7 +716,7 @@ public final class ShadowAssetManager {
 
         if (defStyleAttribute.isResourceReference()) {
           ResName defStyleResName = defStyleAttribute.getResourceReference();
-          defStyleFromAttr = resolveStyle(defStyleResName, themeStyleSet);
+          defStyleFromAttr = resolveStyle(defStyleResName, themeStyleSet, nativeTheme);
         }
       }
     }
@@ -705,7 +736,7 @@ public final class ShadowAssetManager {
           styleAttributeResName = attrValue.getStyleReference();
         }
       }
-      styleAttrStyle = resolveStyle(styleAttributeResName, themeStyleSet);
+      styleAttrStyle = resolveStyle(styleAttributeResName, themeStyleSet, nativeTheme);
     }
 
     if (defStyleRes != 0) {
@@ -720,10 +751,14 @@ public final class ShadowAssetManager {
           }
         }
       }
-      defStyleFromRes = resolveStyle(resName, themeStyleSet);
+      defStyleFromRes = resolveStyle(resName, themeStyleSet, nativeTheme);
     }
 
-    AttributeResource attribute = findAttributeValue(resId, set, styleAttrStyle, defStyleFromAttr, defStyleFromRes, themeStyleSet);
+    return new AppliedStyles(styleAttrStyle, defStyleFromAttr, defStyleFromRes);
+  }
+
+  private TypedValue buildTypedValue(AttributeSet set, int resId, AppliedStyles appliedStyles, Style themeStyleSet) {
+    AttributeResource attribute = findAttributeValue(resId, set, appliedStyles.styleAttrStyle, appliedStyles.defStyleFromAttr, appliedStyles.defStyleFromRes, themeStyleSet);
     while (attribute != null && attribute.isStyleReference()) {
       ResName otherAttrName = attribute.getStyleReference();
       if (attribute.resName.equals(otherAttrName)) {
@@ -764,14 +799,19 @@ public final class ShadowAssetManager {
     int[] indices = new int[attrs.length + 1];
     int nextIndex = 0;
 
-    Style themeStyleSet = nativeTheme == 0
+    NativeTheme theme = nativeTheme == 0 ? null : getNativeTheme(nativeTheme);
+    Style themeStyleSet = theme == null
         ? new EmptyStyle()
-        : getNativeTheme(nativeTheme).themeStyleSet;
+        : theme.themeStyleSet;
+
+    // the styles which apply don't depend on the attribute, so only look them up once
+    AppliedStyles appliedStyles = attrs.length == 0 ? null
+        : resolveAppliedStyles(set, defStyleAttr, defStyleRes, themeStyleSet, theme);
 
     for (int i = 0; i < attrs.length; i++) {
       int offset = i * ShadowAssetManager.STYLE_NUM_ENTRIES;
 
-      TypedValue typedValue = buildTypedValue(set, attrs[i], defStyleAttr, themeStyleSet, defStyleRes);
+      TypedValue typedValue = buildTypedValue(set, attrs[i], appliedStyles, themeStyleSet);
       if (typedValue != null) {
         //noinspection PointlessArithmeticExpression
         data[offset + ShadowAssetManager.STYLE_TYPE] = typedValue.type;
@@ -869,6 +909,21 @@ public final class ShadowAssetManager {
    return getResName(resid).name;
   }
 
+  /**
+   * The styles an attribute's value may come from, besides the attribute set and the theme.
+   */
+  private static class AppliedStyles {
+    private final Style styleAttrStyle;
+    private final Style defStyleFromAttr;
+    private final Style defStyleFromRes;
+
+    AppliedStyles(Style styleAttrStyle, Style defStyleFromAttr, Style defStyleFromRes) {
+      this.styleAttrStyle = styleAttrStyle;
+      this.defStyleFromAttr = defStyleFromAttr;
+      this.defStyleFromRes = defStyleFromRes;
+    }
+  }
+
   @Resetter
   public static void reset() {
     ReflectionHelpers.setStaticField(AssetManager.class, "sSystem", null);
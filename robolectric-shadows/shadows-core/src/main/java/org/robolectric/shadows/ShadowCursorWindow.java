@@ -11,8 +11,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -51,20 +50,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static byte[] nativeGetBlob(long windowPtr, int row, int column) {
-    Value value = WINDOW_DATA.get(windowPtr).value(row, column);
-
-    switch (value.type) {
-      case Cursor.FIELD_TYPE_NULL:
-        return null;
-      case Cursor.FIELD_TYPE_BLOB:
-        // This matches Android's behavior, which does not match the SQLite spec
-        byte[] blob = (byte[])value.value;
-        return blob == null ? new byte[]{} : blob;
-      case Cursor.FIELD_TYPE_STRING:
-        return ((String)value.value).getBytes();
-      default:
-        throw new android.database.sqlite.SQLiteException("Getting blob when column is non-blob. Row " + row + ", col " + column);
-    }
+    return WINDOW_DATA.get(windowPtr).getBlob(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -74,12 +60,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static String nativeGetString(long windowPtr, int row, int column) {
-    Value val = WINDOW_DATA.get(windowPtr).value(row, column);
-    if (val.type == Cursor.FIELD_TYPE_BLOB) {
-      throw new android.database.sqlite.SQLiteException("Getting string when column is blob. Row " + row + ", col " + column);
-    }
-    Object value = val.value;
-    return value == null ? null : String.valueOf(value);
+    return WINDOW_DATA.get(windowPtr).getString(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -89,7 +70,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static long nativeGetLong(long windowPtr, int row, int column) {
-    return nativeGetNumber(windowPtr, row, column).longValue();
+    return WINDOW_DATA.get(windowPtr).getLong(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -99,7 +80,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static double nativeGetDouble(long windowPtr, int row, int column) {
-    return nativeGetNumber(windowPtr, row, column).doubleValue();
+    return WINDOW_DATA.get(windowPtr).getDouble(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -109,7 +90,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static int nativeGetType(long windowPtr, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).value(row, column).type;
+    return WINDOW_DATA.get(windowPtr).getType(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -139,7 +120,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static boolean nativePutBlob(long windowPtr, byte[] value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_BLOB), row, column);
+    return WINDOW_DATA.get(windowPtr).putBlob(row, column, value);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -149,7 +130,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static boolean nativePutString(long windowPtr, String value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_STRING), row, column);
+    return WINDOW_DATA.get(windowPtr).putString(row, column, value);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -159,7 +140,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static boolean nativePutLong(long windowPtr, long value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_INTEGER), row, column);
+    return WINDOW_DATA.get(windowPtr).putLong(row, column, value);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -169,7 +150,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static boolean nativePutDouble(long windowPtr, double value, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(value, Cursor.FIELD_TYPE_FLOAT), row, column);
+    return WINDOW_DATA.get(windowPtr).putDouble(row, column, value);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -179,7 +160,7 @@ public class ShadowCursorWindow {
 
   @Implementation(minSdk = LOLLIPOP)
   public static boolean nativePutNull(long windowPtr, int row, int column) {
-    return WINDOW_DATA.get(windowPtr).putValue(new Value(null, Cursor.FIELD_TYPE_NULL), row, column);
+    return WINDOW_DATA.get(windowPtr).putNull(row, column);
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -216,94 +197,213 @@ public class ShadowCursorWindow {
     return WINDOW_DATA.setData(windowPtr, stmt);
   }
 
-  private static Number nativeGetNumber(long windowPtr, int row, int column) {
-    Value value = WINDOW_DATA.get(windowPtr).value(row, column);
-    switch (value.type) {
-      case Cursor.FIELD_TYPE_NULL:
-      case SQLiteConstants.SQLITE_NULL:
-        return 0;
-      case Cursor.FIELD_TYPE_INTEGER:
-      case Cursor.FIELD_TYPE_FLOAT:
-        return (Number) value.value;
-      case Cursor.FIELD_TYPE_STRING: {
-        try {
-          return Double.parseDouble((String) value.value);
-        } catch (NumberFormatException e) {
-          return 0;
-        }
-      }
-      case Cursor.FIELD_TYPE_BLOB:
-        throw new android.database.sqlite.SQLiteException("could not convert "+value);
-      default:
-        throw new android.database.sqlite.SQLiteException("unknown type: "+value.type);
-    }
-  }
-
+  /**
+   * Cell storage for one window, kept column by column in primitive arrays so that filling and reading a window
+   * doesn't allocate an object per cell. Strings and blobs are copied into window-wide buffers and referenced by
+   * offset and length; overwritten values leave their old contents behind until the window is cleared.
+   */
   private static class Data {
-    private final List<Row> rows;
+    private static final int INITIAL_ROW_CAPACITY = 16;
+
     private final String name;
+    private Column[] columns = new Column[0];
     private int numColumns;
+    private int numRows;
+    private int rowCapacity = INITIAL_ROW_CAPACITY;
+    private char[] chars = new char[256];
+    private int charsUsed;
+    private byte[] bytes = new byte[256];
+    private int bytesUsed;
 
     public Data(String name, int cursorWindowSize) {
       this.name = name;
-      this.rows = new ArrayList<Row>(cursorWindowSize);
     }
 
-    public Value value(int rowN, int colN) {
-      Row row = rows.get(rowN);
-      if (row == null) {
-        throw new IllegalArgumentException("Bad row number: " + rowN + ", count: " + rows.size());
-      }
-      return row.get(colN);
+    public int numRows() {
+      return numRows;
     }
 
-    public int numRows() {
-      return rows.size();
+    public int getType(int row, int col) {
+      return column(row, col).types[row];
+    }
+
+    public long getLong(int row, int col) {
+      Column column = column(row, col);
+      switch (column.types[row]) {
+        case Cursor.FIELD_TYPE_NULL:
+          return 0;
+        case Cursor.FIELD_TYPE_INTEGER:
+          return column.longs[row];
+        case Cursor.FIELD_TYPE_FLOAT:
+          return (long) column.doubles[row];
+        case Cursor.FIELD_TYPE_STRING:
+          return (long) parseDouble(string(column, row));
+        default:
+          throw new android.database.sqlite.SQLiteException("could not convert blob. Row " + row + ", col " + col);
+      }
     }
 
-    public boolean putValue(Value value, int rowN, int colN) {
-      return rows.get(rowN).set(colN, value);
+    public double getDouble(int row, int col) {
+      Column column = column(row, col);
+      switch (column.types[row]) {
+        case Cursor.FIELD_TYPE_NULL:
+          return 0;
+        case Cursor.FIELD_TYPE_INTEGER:
+          return column.longs[row];
+        case Cursor.FIELD_TYPE_FLOAT:
+          return column.doubles[row];
+        case Cursor.FIELD_TYPE_STRING:
+          return parseDouble(string(column, row));
+        default:
+          throw new android.database.sqlite.SQLiteException("could not convert blob. Row " + row + ", col " + col);
+      }
     }
 
-    public void fillWith(SQLiteStatement stmt) throws SQLiteException {
-      //Android caches results in the WindowedCursor to allow moveToPrevious() to function.
-      //Robolectric will have to cache the results too. In the rows list.
-      while (stmt.step()) {
-        rows.add(fillRowValues(stmt));
+    public String getString(int row, int col) {
+      Column column = column(row, col);
+      switch (column.types[row]) {
+        case Cursor.FIELD_TYPE_NULL:
+          return null;
+        case Cursor.FIELD_TYPE_INTEGER:
+          return String.valueOf(column.longs[row]);
+        case Cursor.FIELD_TYPE_FLOAT:
+          return String.valueOf(column.doubles[row]);
+        case Cursor.FIELD_TYPE_STRING:
+          return string(column, row);
+        default:
+          throw new android.database.sqlite.SQLiteException("Getting string when column is blob. Row " + row + ", col " + col);
       }
     }
 
-    private static int cursorValueType(final int sqliteType) {
-      switch (sqliteType) {
-        case SQLiteConstants.SQLITE_NULL:    return Cursor.FIELD_TYPE_NULL;
-        case SQLiteConstants.SQLITE_INTEGER: return Cursor.FIELD_TYPE_INTEGER;
-        case SQLiteConstants.SQLITE_FLOAT:   return Cursor.FIELD_TYPE_FLOAT;
-        case SQLiteConstants.SQLITE_TEXT:    return Cursor.FIELD_TYPE_STRING;
-        case SQLiteConstants.SQLITE_BLOB:    return Cursor.FIELD_TYPE_BLOB;
+    public byte[] getBlob(int row, int col) {
+      Column column = column(row, col);
+      switch (column.types[row]) {
+        case Cursor.FIELD_TYPE_NULL:
+          return null;
+        case Cursor.FIELD_TYPE_BLOB:
+          // This matches Android's behavior, which does not match the SQLite spec
+          int length = column.lengths[row];
+          if (length <= 0) {
+            return new byte[]{};
+          }
+          int offset = (int) column.longs[row];
+          return Arrays.copyOfRange(bytes, offset, offset + length);
+        case Cursor.FIELD_TYPE_STRING:
+          String string = string(column, row);
+          return string == null ? null : string.getBytes();
         default:
-          throw new IllegalArgumentException("Bad SQLite type " + sqliteType + ". See possible values in SQLiteConstants.");
+          throw new android.database.sqlite.SQLiteException("Getting blob when column is non-blob. Row " + row + ", col " + col);
+      }
+    }
+
+    public boolean putNull(int row, int col) {
+      column(row, col).types[row] = Cursor.FIELD_TYPE_NULL;
+      return true;
+    }
+
+    public boolean putLong(int row, int col, long value) {
+      Column column = column(row, col);
+      column.types[row] = Cursor.FIELD_TYPE_INTEGER;
+      column.longs[row] = value;
+      return true;
+    }
+
+    public boolean putDouble(int row, int col, double value) {
+      Column column = column(row, col);
+      column.types[row] = Cursor.FIELD_TYPE_FLOAT;
+      column.doubles[row] = value;
+      return true;
+    }
+
+    public boolean putString(int row, int col, String value) {
+      Column column = column(row, col);
+      column.types[row] = Cursor.FIELD_TYPE_STRING;
+      if (value == null) {
+        column.lengths[row] = -1;
+        return true;
+      }
+      int length = value.length();
+      if (charsUsed + length > chars.length) {
+        chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charsUsed + length));
+      }
+      value.getChars(0, length, chars, charsUsed);
+      column.longs[row] = charsUsed;
+      column.lengths[row] = length;
+      charsUsed += length;
+      return true;
+    }
+
+    public boolean putBlob(int row, int col, byte[] value) {
+      Column column = column(row, col);
+      column.types[row] = Cursor.FIELD_TYPE_BLOB;
+      if (value == null) {
+        column.lengths[row] = -1;
+        return true;
       }
+      int length = value.length;
+      if (bytesUsed + length > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, bytesUsed + length));
+      }
+      System.arraycopy(value, 0, bytes, bytesUsed, length);
+      column.longs[row] = bytesUsed;
+      column.lengths[row] = length;
+      bytesUsed += length;
+      return true;
     }
 
-    private static Row fillRowValues(SQLiteStatement stmt) throws SQLiteException {
+    public void fillWith(SQLiteStatement stmt) throws SQLiteException {
+      //Android caches results in the WindowedCursor to allow moveToPrevious() to function.
+      //Robolectric will have to cache the results too, in the columns.
       final int columnCount = stmt.columnCount();
-      Row row = new Row(columnCount);
-      for (int index = 0; index < columnCount; index++) {
-        row.set(index, new Value(stmt.columnValue(index), cursorValueType(stmt.columnType(index))));
+      if (columnCount > numColumns) {
+        setNumColumns(columnCount);
+      }
+      while (stmt.step()) {
+        int row = numRows;
+        allocRow();
+        for (int col = 0; col < columnCount; col++) {
+          int sqliteType = stmt.columnType(col);
+          switch (sqliteType) {
+            case SQLiteConstants.SQLITE_NULL:    break;
+            case SQLiteConstants.SQLITE_INTEGER: putLong(row, col, stmt.columnLong(col)); break;
+            case SQLiteConstants.SQLITE_FLOAT:   putDouble(row, col, stmt.columnDouble(col)); break;
+            case SQLiteConstants.SQLITE_TEXT:    putString(row, col, stmt.columnString(col)); break;
+            case SQLiteConstants.SQLITE_BLOB:    putBlob(row, col, stmt.columnBlob(col)); break;
+            default:
+              throw new IllegalArgumentException("Bad SQLite type " + sqliteType + ". See possible values in SQLiteConstants.");
+          }
+        }
       }
-      return row;
     }
 
     public void clear() {
-      rows.clear();
+      numRows = 0;
+      charsUsed = 0;
+      bytesUsed = 0;
     }
 
     public boolean allocRow() {
-      rows.add(new Row(numColumns));
+      if (numRows == rowCapacity) {
+        rowCapacity *= 2;
+        for (Column column : columns) {
+          column.grow(rowCapacity);
+        }
+      }
+      for (Column column : columns) {
+        column.types[numRows] = Cursor.FIELD_TYPE_NULL;
+      }
+      numRows++;
       return true;
     }
 
     public boolean setNumColumns(int numColumns) {
+      if (numColumns > columns.length) {
+        Column[] newColumns = Arrays.copyOf(columns, numColumns);
+        for (int i = columns.length; i < numColumns; i++) {
+          newColumns[i] = new Column(rowCapacity);
+        }
+        columns = newColumns;
+      }
       this.numColumns = numColumns;
       return true;
     }
@@ -311,35 +411,54 @@ public class ShadowCursorWindow {
     public String getName() {
       return name;
     }
-  }
-
-  private static class Row {
-    private final List<Value> values;
 
-    public Row(int length) {
-      values = new ArrayList<Value>(length);
-      for (int i=0; i<length; i++) {
-        values.add(new Value(null, Cursor.FIELD_TYPE_NULL));
+    private Column column(int row, int col) {
+      if (row < 0 || row >= numRows) {
+        throw new IllegalArgumentException("Bad row number: " + row + ", count: " + numRows);
       }
+      if (col < 0 || col >= numColumns) {
+        throw new IllegalArgumentException("Bad column number: " + col + ", count: " + numColumns);
+      }
+      return columns[col];
     }
 
-    public Value get(int n) {
-      return values.get(n);
+    private String string(Column column, int row) {
+      int length = column.lengths[row];
+      return length < 0 ? null : new String(chars, (int) column.longs[row], length);
     }
 
-    public boolean set(int colN, Value value) {
-      values.set(colN, value);
-      return true;
+    private static double parseDouble(String value) {
+      if (value == null) {
+        return 0;
+      }
+      try {
+        return Double.parseDouble(value);
+      } catch (NumberFormatException e) {
+        return 0;
+      }
     }
   }
 
-  private static class Value {
-    private final Object value;
-    private final int type;
+  private static class Column {
+    private byte[] types;
+    // integer values, or the offset of string and blob values in the window's buffers
+    private long[] longs;
+    private double[] doubles;
+    // length of string and blob values, -1 for null
+    private int[] lengths;
+
+    public Column(int capacity) {
+      types = new byte[capacity];
+      longs = new long[capacity];
+      doubles = new double[capacity];
+      lengths = new int[capacity];
+    }
 
-    public Value(final Object value, final int type) {
-      this.value = value;
-      this.type = type;
+    public void grow(int capacity) {
+      types = Arrays.copyOf(types, capacity);
+      longs = Arrays.copyOf(longs, capacity);
+      doubles = Arrays.copyOf(doubles, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
     }
   }
 
@@ -9,18 +9,37 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Shadow for {@link android.util.Log}.
+ *
+ * Logs are recorded without locking, so threads which log a lot don't hold each other up. To limit the memory used by
+ * chatty code, the number of logs kept for each tag can be limited with {@link #setMaxLogsPerTag(int)}, and logs below
+ * a given level can be dropped with {@link #setMinimumRecordedLevel(int)}.
  */
 @Implements(Log.class)
 public class ShadowLog {
   private static final int extraLogLength = "l/: \n".length();
-  private static Map<String,List<LogItem>> logsByTag = new HashMap<>();
-  private static List<LogItem> logs = new ArrayList<>();
+  private static final ConcurrentMap<String, TagLogs> logsByTag = new ConcurrentHashMap<>();
+  // ConcurrentHashMap doesn't allow null keys, but log tags may be null
+  private static final TagLogs nullTagLogs = new TagLogs();
+  private static final AtomicLong nextSequence = new AtomicLong();
+  private static volatile int maxLogsPerTag = -1;
+  private static volatile int minimumRecordedLevel = Log.VERBOSE;
+  private static volatile AsyncStreamWriter asyncStreamWriter;
   public static PrintStream stream;
   private static final Map<String, Integer> tagToLevel = new HashMap<>();
 
@@ -115,23 +134,82 @@ public class ShadowLog {
     tagToLevel.put(tag, level);
   }
 
-  private static synchronized void addLog(int level, String tag, String msg, Throwable throwable) {
-    if (stream != null) {
-      logToStream(stream, level, tag, msg, throwable);
+  /**
+   * Sets how many logs are kept for each tag. Once a tag has that many, its oldest log is dropped for each new one.
+   *
+   * @param maxLogsPerTag The number of logs to keep for each tag, or a negative number to keep all of them (the default).
+   */
+  public static void setMaxLogsPerTag(int maxLogsPerTag) {
+    ShadowLog.maxLogsPerTag = maxLogsPerTag;
+  }
+
+  /**
+   * Sets the lowest level of logs which are kept, so that e.g. verbose and debug logs don't use up memory. Logs below
+   * this level are still written to {@link #stream}.
+   *
+   * @param level A log level, from {@link android.util.Log}; {@link Log#VERBOSE} (the default) keeps every log.
+   */
+  public static void setMinimumRecordedLevel(int level) {
+    ShadowLog.minimumRecordedLevel = level;
+  }
+
+  /**
+   * Writes logs to the given stream in batches on a background thread, rather than on the thread which logs them.
+   * Logs still waiting to be written are written when the JVM shuts down. Setting {@link #stream} afterwards, or
+   * {@link #reset()}, stops the background thread once it has written them, and logs go back to being written as
+   * they're made.
+   *
+   * @param stream The stream to write logs to.
+   */
+  public static synchronized void setStreamAsynchronously(PrintStream stream) {
+    closeAsyncStreamWriter(asyncStreamWriter);
+    asyncStreamWriter = stream == null ? null : new AsyncStreamWriter(stream);
+    ShadowLog.stream = stream;
+  }
+
+  private static synchronized void closeAsyncStreamWriter(AsyncStreamWriter writer) {
+    if (writer != null && writer == asyncStreamWriter) {
+      asyncStreamWriter = null;
+      writer.close();
     }
+  }
 
+  private static void addLog(int level, String tag, String msg, Throwable throwable) {
     LogItem item = new LogItem(level, tag, msg, throwable);
-    List<LogItem> itemList;
 
-    if (!logsByTag.containsKey(tag)) {
-      itemList = new ArrayList<>();
-      logsByTag.put(tag, itemList);
-    } else {
-      itemList = logsByTag.get(tag);
+    PrintStream ps = stream;
+    AsyncStreamWriter writer = asyncStreamWriter;
+    if (writer != null && writer.stream != ps) {
+      // stream has been set directly since setStreamAsynchronously()
+      closeAsyncStreamWriter(writer);
+      writer = null;
+    }
+    if (ps != null) {
+      if (writer != null) {
+        writer.write(item);
+      } else {
+        synchronized (ps) {
+          logToStream(ps, item);
+        }
+      }
+    }
+
+    if (level < minimumRecordedLevel) {
+      return;
+    }
+    TagLogs tagLogs = tag == null ? nullTagLogs : logsByTag.get(tag);
+    if (tagLogs == null) {
+      TagLogs newTagLogs = new TagLogs();
+      tagLogs = logsByTag.putIfAbsent(tag, newTagLogs);
+      if (tagLogs == null) {
+        tagLogs = newTagLogs;
+      }
     }
+    tagLogs.add(new SequencedLogItem(nextSequence.getAndIncrement(), item), maxLogsPerTag);
+  }
 
-    itemList.add(item);
-    logs.add(item);
+  private static void logToStream(PrintStream ps, LogItem item) {
+    logToStream(ps, item.type, item.tag, item.msg, item.throwable);
   }
 
   private static void logToStream(PrintStream ps, int level, String tag, String msg, Throwable throwable) {
@@ -155,8 +233,13 @@ public class ShadowLog {
    * Non-Android accessor.  Returns ordered list of all log entries.
    * @return List of log items
    */
-  public static synchronized List<LogItem> getLogs() {
-    return logs;
+  public static List<LogItem> getLogs() {
+    List<SequencedLogItem> sequencedItems = new ArrayList<>();
+    for (TagLogs tagLogs : logsByTag.values()) {
+      sequencedItems.addAll(tagLogs.items);
+    }
+    sequencedItems.addAll(nullTagLogs.items);
+    return inSequence(sequencedItems);
   }
 
   /**
@@ -165,15 +248,40 @@ public class ShadowLog {
    * @param tag The tag to get logs for
    * @return The list of log items for the tag
    */
-  public static synchronized List<LogItem> getLogsForTag( String tag ) {
-    return logsByTag.get(tag);
+  public static List<LogItem> getLogsForTag( String tag ) {
+    TagLogs tagLogs = tag == null ? nullTagLogs : logsByTag.get(tag);
+    return tagLogs == null || tagLogs.items.isEmpty() ? null : inSequence(new ArrayList<>(tagLogs.items));
+  }
+
+  private static List<LogItem> inSequence(List<SequencedLogItem> sequencedItems) {
+    Collections.sort(sequencedItems, SEQUENCE_ORDER);
+    List<LogItem> items = new ArrayList<>(sequencedItems.size());
+    for (SequencedLogItem sequencedItem : sequencedItems) {
+      items.add(sequencedItem.item);
+    }
+    return items;
   }
 
   @Resetter
   public static synchronized void reset() {
-    logs.clear();
+    closeAsyncStreamWriter(asyncStreamWriter);
     logsByTag.clear();
+    nullTagLogs.clear();
     tagToLevel.clear();
+    maxLogsPerTag = -1;
+    minimumRecordedLevel = Log.VERBOSE;
+  }
+
+  /**
+   * Blocks until logs written with {@link #setStreamAsynchronously(PrintStream)} have reached the stream.
+   */
+  static void flushStream() {
+    AsyncStreamWriter writer = asyncStreamWriter;
+    if (writer != null && writer.stream != stream) {
+      closeAsyncStreamWriter(writer);
+    } else if (writer != null) {
+      writer.flush();
+    }
   }
 
   public static void setupLogging() {
@@ -204,6 +312,163 @@ public class ShadowLog {
     }
   }
 
+  private static final Comparator<SequencedLogItem> SEQUENCE_ORDER = new Comparator<SequencedLogItem>() {
+    @Override
+    public int compare(SequencedLogItem o1, SequencedLogItem o2) {
+      return Long.compare(o1.sequence, o2.sequence);
+    }
+  };
+
+  private static class SequencedLogItem {
+    private final long sequence;
+    private final LogItem item;
+
+    SequencedLogItem(long sequence, LogItem item) {
+      this.sequence = sequence;
+      this.item = item;
+    }
+  }
+
+  /**
+   * The logs of one tag. When limited, this is a ring buffer: adding a log beyond the limit drops the oldest one.
+   */
+  private static class TagLogs {
+    private final ConcurrentLinkedQueue<SequencedLogItem> items = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    void add(SequencedLogItem item, int maxSize) {
+      items.add(item);
+      size.incrementAndGet();
+      while (maxSize >= 0 && size.get() > maxSize && items.poll() != null) {
+        size.decrementAndGet();
+      }
+    }
+
+    void clear() {
+      while (items.poll() != null) {
+        size.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Writes logs to a stream on a daemon thread, as many at a time as have been queued, flushing after each batch.
+   * Only that thread writes to the stream: closing the writer, which the shutdown hook also does, queues a marker
+   * telling the thread to stop once it has written everything before it, and waits for it to.
+   */
+  private static class AsyncStreamWriter implements Runnable {
+    private static final LogItem STOP = new LogItem(Log.ASSERT, null, null, null);
+    private static final long STOP_TIMEOUT_MILLIS = 10000;
+
+    private final PrintStream stream;
+    private final BlockingQueue<LogItem> queue = new LinkedBlockingQueue<>();
+    private final Object lock = new Object();
+    private final Thread thread;
+    private final Thread shutdownHook;
+    private long queued;
+    private long written;
+
+    AsyncStreamWriter(PrintStream stream) {
+      this.stream = stream;
+      thread = new Thread(this, "robolectric-log-writer");
+      thread.setDaemon(true);
+      thread.start();
+      shutdownHook = new Thread() {
+        @Override public void run() {
+          stop();
+        }
+      };
+      Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    void write(LogItem item) {
+      synchronized (lock) {
+        queued++;
+      }
+      queue.add(item);
+    }
+
+    @Override
+    public void run() {
+      List<LogItem> batch = new ArrayList<>();
+      try {
+        boolean stopping = false;
+        while (!stopping) {
+          batch.add(queue.take());
+          queue.drainTo(batch);
+          stopping = removeStop(batch);
+          if (stopping) {
+            // logs made while the writer was being closed
+            queue.drainTo(batch);
+          }
+          writeBatch(batch);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private static boolean removeStop(List<LogItem> batch) {
+      // by identity, since an empty log item equals STOP
+      for (Iterator<LogItem> iterator = batch.iterator(); iterator.hasNext(); ) {
+        if (iterator.next() == STOP) {
+          iterator.remove();
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void writeBatch(List<LogItem> batch) {
+      if (batch.isEmpty()) {
+        return;
+      }
+      synchronized (stream) {
+        for (LogItem item : batch) {
+          logToStream(stream, item);
+        }
+        stream.flush();
+      }
+      synchronized (lock) {
+        written += batch.size();
+        lock.notifyAll();
+      }
+      batch.clear();
+    }
+
+    void close() {
+      stop();
+      try {
+        Runtime.getRuntime().removeShutdownHook(shutdownHook);
+      } catch (IllegalStateException ignored) {
+        // already shutting down
+      }
+    }
+
+    private void stop() {
+      queue.add(STOP);
+      try {
+        thread.join(STOP_TIMEOUT_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    void flush() {
+      synchronized (lock) {
+        long target = queued;
+        while (written < target) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    }
+  }
+
   public static class LogItem {
     public final int type;
     public final String tag;
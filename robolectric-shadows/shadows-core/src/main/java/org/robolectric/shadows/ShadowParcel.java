@@ -1,23 +1,16 @@
 package org.robolectric.shadows;
 
 import android.os.Parcel;
-import android.text.TextUtils;
-import android.util.Pair;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.RealObject;
 import org.robolectric.annotation.HiddenApi;
 import org.robolectric.util.ReflectionHelpers;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.ArrayList;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 import static android.os.Build.VERSION_CODES;
@@ -347,18 +340,39 @@ public class ShadowParcel {
     }
   }
 
+  /**
+   * The contents of a parcel, laid out the way the native Parcel does it: little-endian values, each padded to a
+   * multiple of four bytes, with byte arrays and UTF-16 strings prefixed by their length.
+   *
+   * The type of each value written is also remembered, so that reading it back as something else fails with a
+   * {@link ClassCastException} instead of returning garbage. Data from {@link #fromByteArray} has no types.
+   */
   private static class ByteBuffer {
-
-    // List of elements where a pair is a piece of data and the sizeof that data
-    private List<Pair<Integer, ?>> buffer = new ArrayList<>();
-    private int index;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final byte UNTYPED = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte FLOAT = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final String[] TYPE_NAMES = {"untyped", "int", "long", "float", "double", "string"};
+
+    private java.nio.ByteBuffer data = wrap(new byte[INITIAL_CAPACITY]);
+    // type of the value starting in each four byte slot
+    private byte[] types = new byte[INITIAL_CAPACITY / 4];
+    private int dataSize;
+    private int dataPosition;
+    // capacity requested with setDataCapacity(); the backing array may be larger
+    private int requestedCapacity;
 
     /**
      * Removes all elements from the byte buffer
      */
     public void clear() {
-      index = 0;
-      buffer.clear();
+      dataSize = 0;
+      dataPosition = 0;
+      requestedCapacity = 0;
     }
 
     /**
@@ -366,110 +380,120 @@ public class ShadowParcel {
      */
     public byte[] readByteArray() {
       int length = readInt();
-      if (length == -1) {
+      if (length < 0 || length > dataAvailable()) {
         return null;
       }
       byte[] array = new byte[length];
-      for (int i = 0; i < length; i++) {
-        array[i] = readByte();
-      }
+      System.arraycopy(data.array(), dataPosition, array, 0, length);
+      dataPosition = Math.min(dataPosition + pad(length), dataSize);
       return array;
     }
 
-    /**
-     * Writes a byte to the byte buffer at the current data position
-     */
-    public void writeByte(byte b) {
-      writeValue(Byte.SIZE / 8, b);
-    }
-
     /**
      * Writes a byte array starting at offset for length bytes to the byte buffer at the current
      * data position
      */
     public void writeByteArray(byte[] b, int offset, int length) {
-      writeInt(b.length);
-      for (int i = offset; i < offset + length && i < b.length; i++) {
-        writeByte(b[i]);
-      }
-    }
-
-    /**
-     * Reads a byte from the byte buffer based on the current data position
-     */
-    public byte readByte() {
-      return readValue((byte) 0);
+      writeInt(length);
+      int start = writeInPlace(length);
+      System.arraycopy(b, offset, data.array(), start, length);
     }
 
     /**
      * Writes an int to the byte buffer at the current data position
      */
     public void writeInt(int i) {
-      writeValue(Integer.SIZE / 8, i);
+      int start = beginWrite(4, INT);
+      data.putInt(start, i);
     }
 
     /**
      * Reads a int from the byte buffer based on the current data position
      */
     public int readInt() {
-      return readValue(0);
+      return canRead(4, INT) ? data.getInt(endRead(4)) : 0;
     }
 
     /**
      * Writes a long to the byte buffer at the current data position
      */
     public void writeLong(long l) {
-      writeValue(Long.SIZE / 8, l);
+      int start = beginWrite(8, LONG);
+      data.putLong(start, l);
     }
 
     /**
      * Reads a long from the byte buffer based on the current data position
      */
     public long readLong() {
-      return readValue(0l);
+      return canRead(8, LONG) ? data.getLong(endRead(8)) : 0L;
     }
 
     /**
      * Writes a float to the byte buffer at the current data position
      */
     public void writeFloat(float f) {
-      writeValue(Float.SIZE / 8, f);
+      int start = beginWrite(4, FLOAT);
+      data.putFloat(start, f);
     }
 
     /**
      * Reads a float from the byte buffer based on the current data position
      */
     public float readFloat() {
-      return readValue(0f);
+      return canRead(4, FLOAT) ? data.getFloat(endRead(4)) : 0f;
     }
 
     /**
      * Writes a double to the byte buffer at the current data position
      */
     public void writeDouble(double d) {
-      writeValue(Double.SIZE / 8, d);
+      int start = beginWrite(8, DOUBLE);
+      data.putDouble(start, d);
     }
 
     /**
      * Reads a double from the byte buffer based on the current data position
      */
     public double readDouble() {
-      return readValue(0d);
+      return canRead(8, DOUBLE) ? data.getDouble(endRead(8)) : 0d;
     }
 
     /**
      * Writes a String to the byte buffer at the current data position
      */
     public void writeString(String s) {
-      int length = TextUtils.isEmpty(s) ? Integer.SIZE / 8 : s.length();
-      writeValue(length, s);
+      int lengthPosition = beginWrite(4, STRING);
+      if (s == null) {
+        data.putInt(lengthPosition, -1);
+        return;
+      }
+      int length = s.length();
+      data.putInt(lengthPosition, length);
+      int start = writeInPlace((length + 1) * 2);
+      for (int i = 0; i < length; i++) {
+        data.putChar(start + i * 2, s.charAt(i));
+      }
+      data.putChar(start + length * 2, (char) 0);
     }
 
     /**
      * Reads a String from the byte buffer based on the current data position
      */
     public String readString() {
-      return readValue(null);
+      if (!canRead(4, STRING)) {
+        return null;
+      }
+      int length = data.getInt(endRead(4));
+      if (length < 0 || !canRead(pad((length + 1) * 2), UNTYPED)) {
+        return null;
+      }
+      int start = endRead(pad((length + 1) * 2));
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = data.getChar(start + i * 2);
+      }
+      return new String(chars);
     }
 
     /**
@@ -481,12 +505,11 @@ public class ShadowParcel {
      * @param length number of bytes to copy
      */
     public void appendFrom(ByteBuffer other, int offset, int length) {
-      int otherIndex = other.toIndex(offset);
-      int otherEndIndex = other.toIndex(offset + length);
-      for (int i = otherIndex; i < otherEndIndex && i < other.buffer.size(); i++) {
-        int elementSize = other.buffer.get(i).first;
-        Object elementValue = other.buffer.get(i).second;
-        writeValue(elementSize, elementValue);
+      length = Math.max(0, Math.min(length, other.dataSize - offset));
+      int start = beginWrite(length, UNTYPED);
+      System.arraycopy(other.data.array(), offset, data.array(), start, length);
+      if (offset % 4 == 0 && start % 4 == 0) {
+        System.arraycopy(other.types, offset / 4, types, start / 4, length / 4);
       }
     }
 
@@ -499,21 +522,10 @@ public class ShadowParcel {
      */
     public static ByteBuffer fromByteArray(byte[] array, int offset, int length) {
       ByteBuffer byteBuffer = new ByteBuffer();
-
-      try {
-        ByteArrayInputStream bis = new ByteArrayInputStream(array, offset,
-            length);
-        ObjectInputStream ois = new ObjectInputStream(bis);
-        int numElements = ois.readInt();
-        for (int i = 0; i < numElements; i++) {
-          int sizeOf = ois.readInt();
-          Object value = ois.readObject();
-          byteBuffer.buffer.add(Pair.create(sizeOf, value));
-        }
-        return byteBuffer;
-      } catch (Exception e) {
-        throw new RuntimeException(e);
-      }
+      byteBuffer.ensureCapacity(length);
+      System.arraycopy(array, offset, byteBuffer.data.array(), 0, length);
+      byteBuffer.dataSize = length;
+      return byteBuffer;
     }
 
     /**
@@ -521,49 +533,35 @@ public class ShadowParcel {
      * symmetrical with fromByteArray.
      */
     public byte[] toByteArray() {
-      try {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(bos);
-        int length = buffer.size();
-        oos.writeInt(length);
-        for (Pair<Integer, ?> element : buffer) {
-          oos.writeInt(element.first);
-          oos.writeObject(element.second);
-        }
-        return bos.toByteArray();
-      } catch (IOException e) {
-        throw new RuntimeException(e);
-      }
+      return Arrays.copyOf(data.array(), dataSize);
     }
 
     /**
      * Number of unused bytes in this byte buffer.
      */
     public int dataAvailable() {
-      return dataSize() - dataPosition();
+      return Math.max(0, dataSize - dataPosition);
     }
 
     /**
      * Total buffer size in bytes of byte buffer included unused space.
      */
     public int dataCapacity() {
-      return dataSize();
+      return Math.max(requestedCapacity, dataSize());
     }
 
     /**
      * Current data position of byte buffer in bytes. Reads / writes are from this position.
      */
     public int dataPosition() {
-      return toDataPosition(index);
+      return dataPosition;
     }
 
     /**
      * Current amount of bytes currently written for ByteBuffer.
      */
     public int dataSize() {
-      int totalSize = totalSize();
-      int dataPosition = dataPosition();
-      return totalSize > dataPosition ? totalSize : dataPosition;
+      return dataSize > dataPosition ? dataSize : dataPosition;
     }
 
     /**
@@ -573,54 +571,93 @@ public class ShadowParcel {
      *          Desired position in bytes
      */
     public void setDataPosition(int pos) {
-      index = toIndex(pos);
+      dataPosition = Math.max(0, pos);
     }
 
+    /**
+     * Grows or truncates the data; new bytes are zero. The data position is moved back if it was past the new end.
+     */
     public void setDataSize(int size) {
-      // TODO
+      ensureCapacity(size);
+      if (size > dataSize) {
+        erase(dataSize, size);
+      }
+      dataSize = size;
+      dataPosition = Math.min(dataPosition, size);
+      requestedCapacity = Math.max(requestedCapacity, size);
     }
 
     public void setDataCapacity(int size) {
-      // TODO
+      ensureCapacity(size);
+      requestedCapacity = Math.max(requestedCapacity, size);
     }
 
-    private int totalSize() {
-      int size = 0;
-      for (Pair<Integer, ?> element : buffer) {
-        size += element.first;
+    /**
+     * Reserves {@code length} bytes, padded to a multiple of four with zeros, for the caller to fill in.
+     *
+     * @return The offset of the reserved bytes.
+     */
+    private int writeInPlace(int length) {
+      int padded = pad(length);
+      int start = beginWrite(padded, UNTYPED);
+      Arrays.fill(data.array(), start + length, start + padded, (byte) 0);
+      return start;
+    }
+
+    private int beginWrite(int length, byte type) {
+      int start = dataPosition;
+      int end = start + length;
+      ensureCapacity(end);
+      if (start > dataSize) {
+        erase(dataSize, start);
       }
-      return size;
+      Arrays.fill(types, start / 4, (end + 3) / 4, UNTYPED);
+      if (length > 0) {
+        types[start / 4] = type;
+      }
+      dataPosition = end;
+      dataSize = Math.max(dataSize, end);
+      return start;
     }
 
-    private <T> T readValue(T defaultValue) {
-      return (index < buffer.size()) ? (T) buffer.get(index++).second : defaultValue;
+    private boolean canRead(int length, byte type) {
+      if (length < 0 || dataPosition + length > dataSize) {
+        return false;
+      }
+      byte actual = dataPosition % 4 == 0 ? types[dataPosition / 4] : UNTYPED;
+      if (type != UNTYPED && actual != UNTYPED && actual != type) {
+        throw new ClassCastException("Reading " + TYPE_NAMES[type] + " at position " + dataPosition
+            + ", but a " + TYPE_NAMES[actual] + " was written there");
+      }
+      return true;
     }
 
-    private void writeValue(int i, Object o) {
-      Pair<Integer, ?> value = Pair.create(i, o);
-      if (index < buffer.size()) {
-        buffer.set(index, value);
-      } else {
-        buffer.add(value);
-      }
-      index++;
+    private int endRead(int length) {
+      int start = dataPosition;
+      dataPosition += length;
+      return start;
     }
 
-    private int toDataPosition(int index) {
-      int pos = 0;
-      for (int i = 0; i < index; i++) {
-        pos += buffer.get(i).first;
-      }
-      return pos;
+    private void erase(int from, int to) {
+      Arrays.fill(data.array(), from, to, (byte) 0);
+      Arrays.fill(types, from / 4, (to + 3) / 4, UNTYPED);
     }
 
-    private int toIndex(int dataPosition) {
-      int calculatedPos = 0;
-      int i = 0;
-      for (; i < buffer.size() && calculatedPos < dataPosition; i++) {
-        calculatedPos += buffer.get(i).first;
+    private void ensureCapacity(int capacity) {
+      byte[] array = data.array();
+      if (capacity > array.length) {
+        int newCapacity = pad(Math.max(capacity, array.length * 3 / 2));
+        data = wrap(Arrays.copyOf(array, newCapacity));
+        types = Arrays.copyOf(types, newCapacity / 4);
       }
-      return i;
+    }
+
+    private static int pad(int length) {
+      return (length + 3) & ~3;
+    }
+
+    private static java.nio.ByteBuffer wrap(byte[] array) {
+      return java.nio.ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN);
     }
   }
 }
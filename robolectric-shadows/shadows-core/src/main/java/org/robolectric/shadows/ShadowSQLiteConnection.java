@@ -1,6 +1,5 @@
 package org.robolectric.shadows;
 
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import android.database.sqlite.SQLiteAbortException;
@@ -21,6 +20,7 @@ import android.database.sqlite.SQLiteOutOfMemoryException;
 import android.database.sqlite.SQLiteReadOnlyDatabaseException;
 import android.database.sqlite.SQLiteTableLockedException;
 import android.os.OperationCanceledException;
+import com.almworks.sqlite4java.SQLiteBackup;
 import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteConstants;
 import com.almworks.sqlite4java.SQLiteException;
@@ -33,12 +33,17 @@ import org.robolectric.annotation.Resetter;
 import org.robolectric.shadows.util.SQLiteLibraryLoader;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -62,7 +67,13 @@ public class ShadowSQLiteConnection {
   // indicates an ignored statement
   private static final int IGNORED_REINDEX_STMT = -2;
 
+  private static final boolean DIRECT_EXECUTION_DEFAULT = Boolean.getBoolean("robolectric.sqlite.direct");
+
+  // databases to copy when a database with the same file name is opened; kept across tests
+  private static final Map<String, File> databaseTemplates = new ConcurrentHashMap<>();
+
   private static boolean useInMemoryDatabase;
+  private static boolean useDirectExecution = DIRECT_EXECUTION_DEFAULT;
 
   private static SQLiteConnection connection(long pointer) {
     return CONNECTIONS.getConnection(pointer);
@@ -76,6 +87,35 @@ public class ShadowSQLiteConnection {
     useInMemoryDatabase = value;
   }
 
+  /**
+   * Runs SQLite calls on the calling thread instead of handing each one to the shared database thread. This avoids a
+   * thread switch per statement, but sqlite4java confines every connection to the thread which opened it, so it only
+   * works for tests which use their databases from a single thread. Must be set before the test opens any database;
+   * defaults to the {@code robolectric.sqlite.direct} system property and is restored to it after every test.
+   */
+  public static void setUseDirectExecution(boolean value) {
+    useDirectExecution = value;
+  }
+
+  /**
+   * Snapshots the database which is open at {@code path}, using SQLite's backup API. In this and all later tests,
+   * opening a database with the same file name starts from a copy of the snapshot instead of an empty database, so
+   * that a {@link android.database.sqlite.SQLiteOpenHelper} finds its schema already created.
+   */
+  public static void saveDatabaseTemplate(String path) {
+    databaseTemplates.put(new File(path).getName(), CONNECTIONS.backup(path));
+  }
+
+  /**
+   * Forgets all templates saved with {@link #saveDatabaseTemplate(String)}.
+   */
+  public static void clearDatabaseTemplates() {
+    for (File template : databaseTemplates.values()) {
+      template.delete();
+    }
+    databaseTemplates.clear();
+  }
+
   @Implementation
   public static Number nativeOpen(String path, int openFlags, String label, boolean enableTrace, boolean enableProfile) {
     SQLiteLibraryLoader.load();
@@ -105,6 +145,7 @@ public class ShadowSQLiteConnection {
   public static void reset() {
     CONNECTIONS.reset();
     useInMemoryDatabase = false;
+    useDirectExecution = DIRECT_EXECUTION_DEFAULT;
   }
 
   @Implementation(maxSdk = KITKAT_WATCH)
@@ -473,7 +514,39 @@ static class Connections {
   private final AtomicLong pointerCounter = new AtomicLong(0);
   private final Map<Long, SQLiteStatement> statementsMap = new ConcurrentHashMap<>();
   private final Map<Long, SQLiteConnection> connectionsMap = new ConcurrentHashMap<>();
-  private ExecutorService dbExecutor = Executors.newSingleThreadExecutor();
+  private final Map<Long, String> pathsMap = new ConcurrentHashMap<>();
+  private final Map<Long, File> scratchFilesMap = new ConcurrentHashMap<>();
+
+  private static final long IDLE_THREAD_TIMEOUT_MILLIS = 10000;
+
+  // sqlite4java connections may only be used from the thread which opened them, so all work runs on one thread. It's
+  // kept while any connection is open and reused across tests, but stops once every connection is closed and it has
+  // been idle for a while, so it doesn't keep this classloader reachable after its environment is discarded.
+  private final ThreadPoolExecutor dbExecutor;
+  private int openConnectionCount;
+
+  Connections() {
+    this(IDLE_THREAD_TIMEOUT_MILLIS);
+  }
+
+  // VisibleForTesting
+  Connections(long idleThreadTimeoutMillis) {
+    dbExecutor = new ThreadPoolExecutor(1, 1, idleThreadTimeoutMillis, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), new DbThreadFactory());
+    dbExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  private synchronized void retainDbThread() {
+    if (openConnectionCount++ == 0) {
+      dbExecutor.allowCoreThreadTimeOut(false);
+    }
+  }
+
+  private synchronized void releaseDbThread() {
+    if (--openConnectionCount == 0) {
+      dbExecutor.allowCoreThreadTimeOut(true);
+    }
+  }
 
   public SQLiteConnection getConnection(final long pointer) {
     SQLiteConnection connection = connectionsMap.get(pointer);
@@ -499,21 +572,104 @@ static class Connections {
   }
 
   public long open(final String path) {
-    SQLiteConnection dbConnection = execute("open SQLite connection", new Callable<SQLiteConnection>() {
+    // before opening, so the thread the connection is confined to can't time out under it
+    retainDbThread();
+    OpenedConnection opened;
+    try {
+      opened = openConnection(path);
+    } catch (RuntimeException e) {
+      releaseDbThread();
+      throw e;
+    }
+
+    long ptr = pointerCounter.incrementAndGet();
+    connectionsMap.put(ptr, opened.connection);
+    pathsMap.put(ptr, path);
+    if (opened.scratchFile != null) {
+      scratchFilesMap.put(ptr, opened.scratchFile);
+    }
+    return ptr;
+  }
+
+  private OpenedConnection openConnection(final String path) {
+    return execute("open SQLite connection", new Callable<OpenedConnection>() {
       @Override
-      public SQLiteConnection call() throws Exception {
-        SQLiteConnection connection = useInMemoryDatabase || IN_MEMORY_PATH.equals(path)
-            ? new SQLiteConnection()
-            : new SQLiteConnection(new File(path));
+      public OpenedConnection call() throws Exception {
+        File template = IN_MEMORY_PATH.equals(path) ? null : databaseTemplates.get(new File(path).getName());
+        SQLiteConnection connection;
+        File scratchFile = null;
+        if (template != null && useInMemoryDatabase) {
+          scratchFile = copyTemplateToScratchFile(template);
+          connection = new SQLiteConnection(scratchFile);
+        } else if (template != null) {
+          connection = new SQLiteConnection(copyTemplate(template, new File(path)));
+        } else {
+          connection = useInMemoryDatabase || IN_MEMORY_PATH.equals(path)
+              ? new SQLiteConnection()
+              : new SQLiteConnection(new File(path));
+        }
 
-        connection.open();
-        return connection;
+        try {
+          connection.open();
+        } catch (Exception e) {
+          if (scratchFile != null) {
+            scratchFile.delete();
+          }
+          throw e;
+        }
+        return new OpenedConnection(connection, scratchFile);
       }
     });
+  }
 
-    long ptr = pointerCounter.incrementAndGet();
-    connectionsMap.put(ptr, dbConnection);
-    return ptr;
+  /**
+   * sqlite4java can only back up into a file, so an in-memory database which starts from a template is backed by a
+   * scratch copy of it instead, which is deleted when the connection is closed.
+   */
+  private static File copyTemplateToScratchFile(File template) throws IOException {
+    File scratchFile = File.createTempFile("robolectric-sqlite", ".db");
+    scratchFile.deleteOnExit();
+    Files.copy(template.toPath(), scratchFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    return scratchFile;
+  }
+
+  /**
+   * Seeds a database from a template, unless it already exists.
+   */
+  private static File copyTemplate(File template, File target) throws IOException {
+    if (!target.exists()) {
+      Files.copy(template.toPath(), target.toPath());
+    }
+    return target;
+  }
+
+  public File backup(final String path) {
+    return execute("back up database", new Callable<File>() {
+      @Override
+      public File call() throws Exception {
+        SQLiteConnection connection = null;
+        for (Map.Entry<Long, String> entry : pathsMap.entrySet()) {
+          if (entry.getValue().equals(path)) {
+            connection = connectionsMap.get(entry.getKey());
+          }
+        }
+        if (connection == null) {
+          throw new IllegalStateException("No open database at " + path + ". Open databases: " + pathsMap.values());
+        }
+
+        File template = File.createTempFile("robolectric-sqlite-template", ".db");
+        template.deleteOnExit();
+        SQLiteBackup backup = connection.initializeBackup(template);
+        try {
+          while (!backup.backupStep(-1)) {
+            // keep copying until all pages are done
+          }
+        } finally {
+          backup.dispose();
+        }
+        return template;
+      }
+    });
   }
 
   public long prepareStatement(final long connectionPtr, final String sql) {
@@ -544,21 +700,22 @@ static class Connections {
         return null;
       }
     });
+    if (pathsMap.remove(ptr) != null) {
+      releaseDbThread();
+    }
+    File scratchFile = scratchFilesMap.remove(ptr);
+    if (scratchFile != null) {
+      scratchFile.delete();
+    }
   }
 
   public void reset() {
     for (long connectionPtr : connectionsMap.keySet()) {
       close(connectionPtr);
     }
-    dbExecutor.shutdown();
-    try {
-      dbExecutor.awaitTermination(30, TimeUnit.SECONDS);
-    } catch (InterruptedException e) {
-      throw new RuntimeException(e);
-    }
-    dbExecutor = Executors.newSingleThreadExecutor();
     connectionsMap.clear();
     statementsMap.clear();
+    pathsMap.clear();
   }
 
   public void finalizeStmt(final long connectionPtr, final long statementPtr) {
@@ -592,19 +749,39 @@ static class Connections {
   }
 
   public <T> T execute(final String comment, final Callable<T> work) {
+    if (useDirectExecution) {
+      try {
+        return work.call();
+      } catch (Exception e) {
+        throw translateException(comment, e, e);
+      }
+    }
+
     try {
       return Uninterruptibles.getUninterruptibly(dbExecutor.submit(work));
       // No need to catch cancellationexception - we never cancel these futures
     } catch (ExecutionException e) {
-      Throwable t = e.getCause();
-      if (t instanceof SQLiteException) {
-        RuntimeException sqlException = getSqliteException("Cannot " + comment,
-            ((SQLiteException) t).getBaseErrorCode());
-        sqlException.initCause(e);
-        throw sqlException;
-      } else {
-        throw new RuntimeException(e);
-      }
+      throw translateException(comment, e.getCause(), e);
+    }
+  }
+
+  private static class DbThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Robolectric SQLite");
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  private RuntimeException translateException(String comment, Throwable t, Exception cause) {
+    if (t instanceof SQLiteException) {
+      RuntimeException sqlException = getSqliteException("Cannot " + comment,
+          ((SQLiteException) t).getBaseErrorCode());
+      sqlException.initCause(cause);
+      return sqlException;
+    } else {
+      return new RuntimeException(cause);
     }
   }
 
@@ -634,4 +811,14 @@ static class Connections {
     }
   }
 }
+
+  private static class OpenedConnection {
+    private final SQLiteConnection connection;
+    private final File scratchFile;
+
+    OpenedConnection(SQLiteConnection connection, File scratchFile) {
+      this.connection = connection;
+      this.scratchFile = scratchFile;
+    }
+  }
 }
@@ -4,6 +4,8 @@ import org.apache.http.Header;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 /**
@@ -164,6 +166,17 @@ public class FakeHttp {
     getFakeHttpLayer().addHttpResponseRule(requestMatcher, responses);
   }
 
+  /**
+   * Adds an HTTP response rule for each request recorded in a HAR (HTTP Archive) file. The recorded responses
+   * will be returned when a request with the same method and URL is made.
+   *
+   * @param har reader for the HAR file's JSON.
+   * @throws IOException if the file can't be read or isn't valid.
+   */
+  public static void addHttpResponseRulesFromHar(Reader har) throws IOException {
+    getFakeHttpLayer().addHttpResponseRulesFromHar(har);
+  }
+
   public static FakeHttpLayer getFakeHttpLayer() {
     return instance;
   }
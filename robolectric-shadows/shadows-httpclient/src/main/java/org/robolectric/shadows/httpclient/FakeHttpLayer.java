@@ -1,43 +1,50 @@
 package org.robolectric.shadows.httpclient;
 
+import android.util.Base64;
+import android.util.JsonReader;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.RequestLine;
 import org.apache.http.client.RequestDirector;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 public class FakeHttpLayer {
-  private final List<HttpResponseGenerator> pendingHttpResponses = new ArrayList<>();
-  private final List<HttpRequestInfo> httpRequestInfos = new ArrayList<>();
-  private final List<HttpResponse> httpResponses = new ArrayList<>();
-  private final List<HttpEntityStub.ResponseRule> httpResponseRules = new ArrayList<>();
+  private final Deque<HttpResponseGenerator> pendingHttpResponses = new ArrayDeque<>();
+  private final Deque<HttpRequestInfo> httpRequestInfos = new ArrayDeque<>();
+  private final Deque<HttpResponse> httpResponses = new ArrayDeque<>();
+  private final ResponseRules httpResponseRules = new ResponseRules();
   private HttpResponse defaultHttpResponse;
   private boolean interceptHttpRequests = true;
   private boolean logHttpRequests = false;
   private List<byte[]> httpResposeContent = new ArrayList<>();
   private boolean interceptResponseContent;
+  private int maxRecordedHttpTraffic = -1;
 
   public HttpRequestInfo getLastSentHttpRequestInfo() {
-    List<HttpRequestInfo> requestInfos = getSentHttpRequestInfos();
-    if (requestInfos.isEmpty()) {
-      return null;
-    }
-    return requestInfos.get(requestInfos.size() - 1);
+    return httpRequestInfos.peekLast();
   }
 
   public void addPendingHttpResponse(int statusCode, String responseBody, Header... headers) {
@@ -84,7 +91,151 @@ public class FakeHttpLayer {
   }
 
   public void addHttpResponseRule(HttpEntityStub.ResponseRule responseRule) {
-    httpResponseRules.add(0, responseRule);
+    httpResponseRules.add(responseRule);
+  }
+
+  /**
+   * Adds a response rule for every request recorded in a HAR (HTTP Archive) file, matching the request's method and
+   * URL. Where the same request was recorded more than once, its responses are returned in the order they were
+   * recorded. Only each response's status, headers and content are used.
+   *
+   * @param har Reader for the HAR file's JSON.
+   * @throws IOException If the file can't be read or isn't valid JSON.
+   */
+  public void addHttpResponseRulesFromHar(Reader har) throws IOException {
+    Map<String, List<HttpResponse>> responsesByRequest = new LinkedHashMap<>();
+    JsonReader reader = new JsonReader(har);
+    try {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (!reader.nextName().equals("log")) {
+          reader.skipValue();
+          continue;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+          if (!reader.nextName().equals("entries")) {
+            reader.skipValue();
+            continue;
+          }
+          reader.beginArray();
+          while (reader.hasNext()) {
+            readHarEntry(reader, responsesByRequest);
+          }
+          reader.endArray();
+        }
+        reader.endObject();
+      }
+      reader.endObject();
+    } catch (IllegalStateException e) {
+      throw new IOException("malformed HAR file", e);
+    } finally {
+      reader.close();
+    }
+
+    for (Map.Entry<String, List<HttpResponse>> entry : responsesByRequest.entrySet()) {
+      String[] methodAndUri = entry.getKey().split(" ", 2);
+      RequestMatcher requestMatcher = new DefaultRequestMatcher(methodAndUri[0], methodAndUri[1]);
+      List<HttpResponse> responses = entry.getValue();
+      if (responses.size() == 1) {
+        addHttpResponseRule(requestMatcher, responses.get(0));
+      } else {
+        addHttpResponseRule(requestMatcher, responses);
+      }
+    }
+  }
+
+  private static void readHarEntry(JsonReader reader, Map<String, List<HttpResponse>> responsesByRequest) throws IOException {
+    String method = null;
+    String url = null;
+    HttpResponse response = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("request")) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String field = reader.nextName();
+          if (field.equals("method")) {
+            method = reader.nextString();
+          } else if (field.equals("url")) {
+            url = reader.nextString();
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      } else if (name.equals("response")) {
+        response = readHarResponse(reader);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    if (method == null || url == null || response == null) {
+      throw new IOException("HAR entry without request method, URL or response");
+    }
+    String key = method + " " + url;
+    List<HttpResponse> responses = responsesByRequest.get(key);
+    if (responses == null) {
+      responses = new ArrayList<>();
+      responsesByRequest.put(key, responses);
+    }
+    responses.add(response);
+  }
+
+  private static HttpResponse readHarResponse(JsonReader reader) throws IOException {
+    int status = 200;
+    List<Header> headers = new ArrayList<>();
+    String text = "";
+    boolean base64 = false;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String field = reader.nextName();
+      if (field.equals("status")) {
+        status = reader.nextInt();
+      } else if (field.equals("headers")) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          String headerName = null;
+          String headerValue = null;
+          reader.beginObject();
+          while (reader.hasNext()) {
+            String headerField = reader.nextName();
+            if (headerField.equals("name")) {
+              headerName = reader.nextString();
+            } else if (headerField.equals("value")) {
+              headerValue = reader.nextString();
+            } else {
+              reader.skipValue();
+            }
+          }
+          reader.endObject();
+          headers.add(new BasicHeader(headerName, headerValue));
+        }
+        reader.endArray();
+      } else if (field.equals("content")) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String contentField = reader.nextName();
+          if (contentField.equals("text")) {
+            text = reader.nextString();
+          } else if (contentField.equals("encoding")) {
+            base64 = "base64".equals(reader.nextString());
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+
+    byte[] body = base64 ? Base64.decode(text, Base64.DEFAULT) : text.getBytes(StandardCharsets.UTF_8);
+    return new TestHttpResponse(status, body, headers.toArray(new Header[headers.size()]));
   }
 
   public void setDefaultHttpResponse(HttpResponse defaultHttpResponse) {
@@ -97,13 +248,12 @@ public class FakeHttpLayer {
 
   private HttpResponse findResponse(HttpRequest httpRequest) throws HttpException, IOException {
     if (!pendingHttpResponses.isEmpty()) {
-      return pendingHttpResponses.remove(0).getResponse(httpRequest);
+      return pendingHttpResponses.removeFirst().getResponse(httpRequest);
     }
 
-    for (HttpEntityStub.ResponseRule httpResponseRule : httpResponseRules) {
-      if (httpResponseRule.matches(httpRequest)) {
-        return httpResponseRule.getResponse();
-      }
+    HttpEntityStub.ResponseRule httpResponseRule = httpResponseRules.find(httpRequest);
+    if (httpResponseRule != null) {
+      return httpResponseRule.getResponse();
     }
 
     System.err.println("Unexpected HTTP call " + httpRequest.getRequestLine());
@@ -159,7 +309,7 @@ public class FakeHttpLayer {
    * @param requestInfo Request info object to add.
    */
   public void addRequestInfo(HttpRequestInfo requestInfo) {
-    httpRequestInfos.add(requestInfo);
+    record(httpRequestInfos, requestInfo);
   }
 
   public boolean hasResponseRules() {
@@ -176,11 +326,24 @@ public class FakeHttpLayer {
   }
 
   public HttpRequestInfo getSentHttpRequestInfo(int index) {
-    return httpRequestInfos.get(index);
+    if (index < 0 || index >= httpRequestInfos.size()) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + httpRequestInfos.size());
+    }
+    // requests are usually looked up from the end, so walk from whichever end is nearer
+    int steps = index;
+    Iterator<HttpRequestInfo> iterator = httpRequestInfos.iterator();
+    if (index >= httpRequestInfos.size() / 2) {
+      steps = httpRequestInfos.size() - 1 - index;
+      iterator = httpRequestInfos.descendingIterator();
+    }
+    for (int i = 0; i < steps; i++) {
+      iterator.next();
+    }
+    return iterator.next();
   }
 
   public HttpRequestInfo getNextSentHttpRequestInfo() {
-    return httpRequestInfos.size() > 0 ? httpRequestInfos.remove(0) : null;
+    return httpRequestInfos.pollFirst();
   }
 
   public void logHttpRequests() {
@@ -223,10 +386,14 @@ public class FakeHttpLayer {
    * @param response The final response received by the server
    */
   public void addHttpResponse(HttpResponse response) {
-    this.httpResponses.add(response);
+    record(this.httpResponses, response);
   }
 
   public void addHttpResponseContent(byte[] content) {
+    if (maxRecordedHttpTraffic == 0) return;
+    if (maxRecordedHttpTraffic > 0 && httpResposeContent.size() >= maxRecordedHttpTraffic) {
+      httpResposeContent.remove(0);
+    }
     this.httpResposeContent.add(content);
   }
 
@@ -239,8 +406,7 @@ public class FakeHttpLayer {
    * @return The latest HTTP response or null, if no responses are available
    */
   public HttpResponse getLastHttpResponse() {
-    if (httpResponses.isEmpty()) return null;
-    return httpResponses.get(httpResponses.size()-1) ;
+    return httpResponses.peekLast();
   }
 
   /**
@@ -265,6 +431,30 @@ public class FakeHttpLayer {
     return interceptHttpRequests;
   }
 
+  /**
+   * Limits how many sent requests, responses and response contents are kept, so that long-running tests which
+   * make many requests don't hold on to all of them. Once the limit is reached the oldest are dropped.
+   *
+   * @param maxRecordedHttpTraffic The number of each to keep, 0 to keep none, or a negative number to keep all of them
+   *                               (the default).
+   */
+  public void setMaxRecordedHttpTraffic(int maxRecordedHttpTraffic) {
+    this.maxRecordedHttpTraffic = maxRecordedHttpTraffic;
+    if (maxRecordedHttpTraffic >= 0) {
+      while (httpRequestInfos.size() > maxRecordedHttpTraffic) httpRequestInfos.removeFirst();
+      while (httpResponses.size() > maxRecordedHttpTraffic) httpResponses.removeFirst();
+      while (httpResposeContent.size() > maxRecordedHttpTraffic) httpResposeContent.remove(0);
+    }
+  }
+
+  private <T> void record(Deque<T> recorded, T item) {
+    if (maxRecordedHttpTraffic == 0) return;
+    if (maxRecordedHttpTraffic > 0 && recorded.size() >= maxRecordedHttpTraffic) {
+      recorded.removeFirst();
+    }
+    recorded.add(item);
+  }
+
   public void interceptResponseContent(boolean interceptResponseContent) {
     this.interceptResponseContent = interceptResponseContent;
   }
@@ -273,6 +463,76 @@ public class FakeHttpLayer {
     return interceptResponseContent;
   }
 
+  /**
+   * Response rules, of which the most recently added matching one wins. Rules matching an exact method and URI, or an
+   * exact URI, are indexed by those so that finding a response doesn't need to check every rule; other rules are
+   * checked in turn.
+   */
+  private static class ResponseRules {
+    private final Map<String, IndexedRule> byMethodAndUri = new HashMap<>();
+    private final Map<String, IndexedRule> byUri = new HashMap<>();
+    private final List<IndexedRule> unindexed = new ArrayList<>();
+    private long nextOrder;
+
+    void add(HttpEntityStub.ResponseRule rule) {
+      IndexedRule indexedRule = new IndexedRule(rule, nextOrder++);
+      RequestMatcher requestMatcher = rule.getClass() == RequestMatcherResponseRule.class
+          ? ((RequestMatcherResponseRule) rule).requestMatcher
+          : null;
+      if (requestMatcher != null && requestMatcher.getClass() == DefaultRequestMatcher.class
+          && ((DefaultRequestMatcher) requestMatcher).method != null && ((DefaultRequestMatcher) requestMatcher).uri != null) {
+        DefaultRequestMatcher defaultRequestMatcher = (DefaultRequestMatcher) requestMatcher;
+        byMethodAndUri.put(defaultRequestMatcher.method + " " + defaultRequestMatcher.uri, indexedRule);
+      } else if (requestMatcher != null && requestMatcher.getClass() == UriRequestMatcher.class
+          && ((UriRequestMatcher) requestMatcher).uri != null) {
+        byUri.put(((UriRequestMatcher) requestMatcher).uri, indexedRule);
+      } else {
+        unindexed.add(indexedRule);
+      }
+    }
+
+    HttpEntityStub.ResponseRule find(HttpRequest request) {
+      RequestLine requestLine = request.getRequestLine();
+      IndexedRule found = byMethodAndUri.get(requestLine.getMethod() + " " + requestLine.getUri());
+      IndexedRule foundByUri = byUri.get(requestLine.getUri());
+      if (foundByUri != null && (found == null || foundByUri.order > found.order)) {
+        found = foundByUri;
+      }
+
+      // an unindexed rule only takes precedence if it was added later
+      for (int i = unindexed.size() - 1; i >= 0; i--) {
+        IndexedRule candidate = unindexed.get(i);
+        if (found != null && candidate.order < found.order) {
+          break;
+        }
+        if (candidate.rule.matches(request)) {
+          return candidate.rule;
+        }
+      }
+      return found == null ? null : found.rule;
+    }
+
+    boolean isEmpty() {
+      return byMethodAndUri.isEmpty() && byUri.isEmpty() && unindexed.isEmpty();
+    }
+
+    void clear() {
+      byMethodAndUri.clear();
+      byUri.clear();
+      unindexed.clear();
+    }
+  }
+
+  private static class IndexedRule {
+    private final HttpEntityStub.ResponseRule rule;
+    private final long order;
+
+    IndexedRule(HttpEntityStub.ResponseRule rule, long order) {
+      this.rule = rule;
+      this.order = order;
+    }
+  }
+
   public static class RequestMatcherResponseRule implements HttpEntityStub.ResponseRule {
     private RequestMatcher requestMatcher;
     private HttpResponse responseToGive;
@@ -27,6 +27,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.URI;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -204,6 +205,88 @@ public class ShadowDefaultRequestDirectorTest {
     assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo("no such page");
   }
 
+  @Test
+  public void shouldReturnRequestsByMostRecentlyAddedRule() throws Exception {
+    FakeHttp.addHttpResponseRule(new RequestMatcher() {
+      @Override
+      public boolean matches(HttpRequest request) {
+        return request.getRequestLine().getUri().startsWith("http://some.uri");
+      }
+    }, new TestHttpResponse(200, "custom matcher"));
+    FakeHttp.addHttpResponseRule(HttpGet.METHOD_NAME, "http://some.uri", new TestHttpResponse(200, "method and uri"));
+
+    HttpResponse response = requestDirector.execute(null, new HttpGet("http://some.uri"), null);
+    assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo("method and uri");
+
+    FakeHttp.addHttpResponseRule("http://some.uri", "any method");
+    response = requestDirector.execute(null, new HttpGet("http://some.uri"), null);
+    assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo("any method");
+
+    FakeHttp.addHttpResponseRule(new RequestMatcher() {
+      @Override
+      public boolean matches(HttpRequest request) {
+        return request.getRequestLine().getUri().startsWith("http://some.uri");
+      }
+    }, new TestHttpResponse(200, "newer custom matcher"));
+    response = requestDirector.execute(null, new HttpGet("http://some.uri"), null);
+    assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo("newer custom matcher");
+  }
+
+  @Test
+  public void shouldReturnRequestsByRule_WithManyRules() throws Exception {
+    FakeHttp.setDefaultHttpResponse(404, "no such page");
+    for (int i = 0; i < 1000; i++) {
+      FakeHttp.addHttpResponseRule(HttpGet.METHOD_NAME, "http://some.uri/" + i, new TestHttpResponse(200, "response " + i));
+    }
+
+    HttpResponse response = requestDirector.execute(null, new HttpGet("http://some.uri/500"), null);
+    assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo("response 500");
+
+    response = requestDirector.execute(null, new HttpPost("http://some.uri/500"), null);
+    assertThat(response.getStatusLine().getStatusCode()).isEqualTo(404);
+  }
+
+  @Test
+  public void shouldReturnRequestsByRulesFromHar() throws Exception {
+    String har = "{\"log\": {\"version\": \"1.2\", \"entries\": [\n" +
+        "  {\"request\": {\"method\": \"GET\", \"url\": \"http://some.uri/a\", \"headers\": []},\n" +
+        "   \"response\": {\"status\": 200, \"headers\": [{\"name\": \"Content-Type\", \"value\": \"text/plain\"}],\n" +
+        "                \"content\": {\"size\": 5, \"text\": \"first\"}}},\n" +
+        "  {\"request\": {\"method\": \"GET\", \"url\": \"http://some.uri/a\"},\n" +
+        "   \"response\": {\"status\": 304, \"content\": {}}},\n" +
+        "  {\"request\": {\"method\": \"POST\", \"url\": \"http://some.uri/b\"},\n" +
+        "   \"response\": {\"status\": 201, \"content\": {\"text\": \"Y3JlYXRlZA==\", \"encoding\": \"base64\"}}}\n" +
+        "]}}";
+    FakeHttp.addHttpResponseRulesFromHar(new StringReader(har));
+
+    HttpResponse response = requestDirector.execute(null, new HttpGet("http://some.uri/a"), null);
+    assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+    assertThat(response.getFirstHeader("Content-Type").getValue()).isEqualTo("text/plain");
+    assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo("first");
+
+    response = requestDirector.execute(null, new HttpGet("http://some.uri/a"), null);
+    assertThat(response.getStatusLine().getStatusCode()).isEqualTo(304);
+
+    response = requestDirector.execute(null, new HttpPost("http://some.uri/b"), null);
+    assertThat(response.getStatusLine().getStatusCode()).isEqualTo(201);
+    assertThat(Strings.fromStream(response.getEntity().getContent())).isEqualTo("created");
+  }
+
+  @Test
+  public void setMaxRecordedHttpTraffic_shouldKeepOnlyTheMostRecentRequestsAndResponses() throws Exception {
+    FakeHttp.getFakeHttpLayer().setMaxRecordedHttpTraffic(2);
+    for (int i = 0; i < 3; i++) {
+      FakeHttp.addPendingHttpResponse(200, "response " + i);
+      requestDirector.execute(null, new HttpGet("http://some.uri/" + i), null);
+    }
+
+    assertThat(FakeHttp.getFakeHttpLayer().getSentHttpRequestInfos()).hasSize(2);
+    assertThat(FakeHttp.getSentHttpRequest(0).getRequestLine().getUri()).isEqualTo("http://some.uri/1");
+    assertThat(FakeHttp.getLatestSentHttpRequest().getRequestLine().getUri()).isEqualTo("http://some.uri/2");
+    assertThat(FakeHttp.getFakeHttpLayer().getHttpResponses()).hasSize(2);
+    assertThat(Strings.fromStream(FakeHttp.getFakeHttpLayer().getLastHttpResponse().getEntity().getContent())).isEqualTo("response 2");
+  }
+
   @Test
   public void shouldGetHttpResponseFromExecuteSimpleApi() throws Exception {
     FakeHttp.addPendingHttpResponse(200, "a happy response body");
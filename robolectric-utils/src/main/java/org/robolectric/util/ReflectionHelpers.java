@@ -1,6 +1,9 @@
 package org.robolectric.util;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
@@ -8,9 +11,12 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Collection of helper methods for calling methods and accessing fields reflectively.
@@ -27,6 +33,16 @@ public class ReflectionHelpers {
         put("byte", (byte) 0);
       }});
 
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final Object[] NO_VALUES = new Object[0];
+
+  private static final ClassValue<MethodCache> METHOD_CACHE = new ClassValue<MethodCache>() {
+    @Override
+    protected MethodCache computeValue(Class<?> type) {
+      return new MethodCache(type);
+    }
+  };
+
   public static <T> T createNullProxy(Class<T> clazz) {
     return (T) Proxy.newProxyInstance(clazz.getClassLoader(),
         new Class[]{clazz}, new InvocationHandler() {
@@ -185,30 +201,10 @@ public class ReflectionHelpers {
    * @return The return value of the method.
    */
   public static <R> R callInstanceMethod(final Object instance, final String methodName, ClassParameter<?>... classParameters) {
-    try {
-      final Class<?>[] classes = ClassParameter.getClasses(classParameters);
-      final Object[] values = ClassParameter.getValues(classParameters);
-
-      return traverseClassHierarchy(instance.getClass(), NoSuchMethodException.class, new InsideTraversal<R>() {
-        @Override
-        @SuppressWarnings("unchecked")
-        public R run(Class<?> traversalClass) throws Exception {
-          Method declaredMethod = traversalClass.getDeclaredMethod(methodName, classes);
-          declaredMethod.setAccessible(true);
-          return (R) declaredMethod.invoke(instance, values);
-        }
-      });
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
-      if (e.getTargetException() instanceof Error) {
-        throw (Error) e.getTargetException();
-      }
-      throw new RuntimeException(e.getTargetException());
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+    if (instance == null) {
+      throw new RuntimeException(new NullPointerException("null instance calling " + methodName));
     }
+    return invoke(METHOD_CACHE.get(instance.getClass()).findInherited(methodName, classParameters), instance, classParameters);
   }
 
   /**
@@ -222,24 +218,7 @@ public class ReflectionHelpers {
    * @return The return value of the method.
    */
   public static <R> R callInstanceMethod(Class<?> cl, final Object instance, final String methodName, ClassParameter<?>... classParameters) {
-    try {
-      final Class<?>[] classes = ClassParameter.getClasses(classParameters);
-      final Object[] values = ClassParameter.getValues(classParameters);
-
-      Method declaredMethod = cl.getDeclaredMethod(methodName, classes);
-      declaredMethod.setAccessible(true);
-      return (R) declaredMethod.invoke(instance, values);
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
-      if (e.getTargetException() instanceof Error) {
-        throw (Error) e.getTargetException();
-      }
-      throw new RuntimeException(e.getTargetException());
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+    return invoke(METHOD_CACHE.get(cl).findDeclared(methodName, classParameters), instance, classParameters);
   }
 
   /**
@@ -251,26 +230,8 @@ public class ReflectionHelpers {
    * @param <R> The return type.
    * @return The return value of the method.
    */
-  @SuppressWarnings("unchecked")
   public static <R> R callStaticMethod(Class<?> clazz, String methodName, ClassParameter<?>... classParameters) {
-    try {
-      Class<?>[] classes = ClassParameter.getClasses(classParameters);
-      Object[] values = ClassParameter.getValues(classParameters);
-
-      Method method = clazz.getDeclaredMethod(methodName, classes);
-      method.setAccessible(true);
-      return (R) method.invoke(null, values);
-    } catch (InvocationTargetException e) {
-      if (e.getTargetException() instanceof RuntimeException) {
-        throw (RuntimeException) e.getTargetException();
-      }
-      if (e.getTargetException() instanceof Error) {
-        throw (Error) e.getTargetException();
-      }
-      throw new RuntimeException(e.getTargetException());
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+    return invoke(METHOD_CACHE.get(clazz).findDeclared(methodName, classParameters), null, classParameters);
   }
 
   /**
@@ -334,6 +295,25 @@ public class ReflectionHelpers {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private static <R> R invoke(CachedMethod method, Object instance, ClassParameter<?>... classParameters) {
+    Object[] values = classParameters.length == 0 ? NO_VALUES : ClassParameter.getValues(classParameters);
+    try {
+      return (R) (Object) method.invoker.invokeExact(instance, values);
+    } catch (NullPointerException | ClassCastException e) {
+      // thrown before the call if the instance or arguments are wrong, which reflection reports as below
+      Exception invalidCall = method.checkCall(instance, values);
+      if (invalidCall != null) {
+        throw new RuntimeException(invalidCall);
+      }
+      throw e;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
   private static <R, E extends Exception> R traverseClassHierarchy(Class<?> targetClass, Class<? extends E> exceptionClass, InsideTraversal<R> insideTraversal) throws Exception {
     Class<?> hierarchyTraversalClass = targetClass;
     while (true) {
@@ -363,6 +343,146 @@ public class ReflectionHelpers {
     R run(Class<?> traversalClass) throws Exception;
   }
 
+  /**
+   * Methods called reflectively, per class. Lookups compare the requested parameter types with those of the cached
+   * methods directly, so a method which has been called before is found without allocating.
+   */
+  private static class MethodCache {
+    private static final CachedMethod[] NONE = new CachedMethod[0];
+
+    private final Class<?> clazz;
+    private final ConcurrentMap<String, CachedMethod[]> declared = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CachedMethod[]> inherited = new ConcurrentHashMap<>();
+
+    MethodCache(Class<?> clazz) {
+      this.clazz = clazz;
+    }
+
+    /**
+     * @return The method declared by this class.
+     */
+    CachedMethod findDeclared(String name, ClassParameter<?>... classParameters) {
+      CachedMethod method = find(declared, name, classParameters);
+      if (method == null) {
+        try {
+          Method declaredMethod = clazz.getDeclaredMethod(name, ClassParameter.getClasses(classParameters));
+          method = add(declared, name, new CachedMethod(declaredMethod, toInvoker(declaredMethod)));
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+      return method;
+    }
+
+    /**
+     * @return The method declared by this class or the nearest superclass declaring it.
+     */
+    CachedMethod findInherited(String name, ClassParameter<?>... classParameters) {
+      CachedMethod method = find(inherited, name, classParameters);
+      if (method == null) {
+        Class<?> superclass = clazz.getSuperclass();
+        try {
+          method = findDeclared(name, classParameters);
+        } catch (RuntimeException e) {
+          if (superclass == null || !(e.getCause() instanceof NoSuchMethodException)) {
+            throw e;
+          }
+          method = METHOD_CACHE.get(superclass).findInherited(name, classParameters);
+        }
+        method = add(inherited, name, method);
+      }
+      return method;
+    }
+
+    private static CachedMethod find(ConcurrentMap<String, CachedMethod[]> methods, String name, ClassParameter<?>... classParameters) {
+      CachedMethod[] candidates = methods.get(name);
+      if (candidates != null) {
+        for (CachedMethod candidate : candidates) {
+          if (candidate.accepts(classParameters)) {
+            return candidate;
+          }
+        }
+      }
+      return null;
+    }
+
+    private synchronized CachedMethod add(ConcurrentMap<String, CachedMethod[]> methods, String name, CachedMethod method) {
+      CachedMethod[] candidates = methods.get(name);
+      if (candidates == null) {
+        candidates = NONE;
+      }
+      CachedMethod[] updated = Arrays.copyOf(candidates, candidates.length + 1);
+      updated[candidates.length] = method;
+      methods.put(name, updated);
+      return method;
+    }
+
+    /**
+     * Adapts a method to the type {@code (Object instance, Object[] values)Object}, boxing and unboxing as needed. The
+     * instance is ignored for static methods.
+     */
+    private static MethodHandle toInvoker(Method method) throws IllegalAccessException {
+      method.setAccessible(true);
+      int parameterCount = method.getParameterTypes().length;
+      MethodHandle handle = LOOKUP.unreflect(method).asFixedArity();
+      if (Modifier.isStatic(method.getModifiers())) {
+        handle = MethodHandles.dropArguments(handle, 0, Object.class);
+      }
+      return handle
+          .asType(MethodType.genericMethodType(parameterCount + 1))
+          .asSpreader(Object[].class, parameterCount);
+    }
+  }
+
+  private static class CachedMethod {
+    private final Class<?> declaringClass;
+    private final boolean isStatic;
+    private final Class<?>[] parameterTypes;
+    private final MethodHandle invoker;
+
+    CachedMethod(Method method, MethodHandle invoker) {
+      this.declaringClass = method.getDeclaringClass();
+      this.isStatic = Modifier.isStatic(method.getModifiers());
+      this.parameterTypes = method.getParameterTypes();
+      this.invoker = invoker;
+    }
+
+    /**
+     * @return The exception {@link Method#invoke} would throw for calling this method with the given instance and
+     *     values without calling it, or null if the call is valid.
+     */
+    Exception checkCall(Object instance, Object[] values) {
+      if (!isStatic) {
+        if (instance == null) {
+          return new NullPointerException("null instance for " + declaringClass.getName() + " method");
+        }
+        if (!declaringClass.isInstance(instance)) {
+          return new IllegalArgumentException("object is not an instance of declaring class");
+        }
+      }
+      for (int i = 0; i < parameterTypes.length; i++) {
+        Class<?> type = parameterTypes[i].isPrimitive()
+            ? MethodType.methodType(parameterTypes[i]).wrap().returnType() : parameterTypes[i];
+        if (values[i] == null ? parameterTypes[i].isPrimitive() : !type.isInstance(values[i])) {
+          return new IllegalArgumentException("argument type mismatch");
+        }
+      }
+      return null;
+    }
+
+    boolean accepts(ClassParameter<?>... classParameters) {
+      if (classParameters.length != parameterTypes.length) {
+        return false;
+      }
+      for (int i = 0; i < parameterTypes.length; i++) {
+        if (classParameters[i].clazz != parameterTypes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   /**
    * Typed parameter used with reflective method calls.
    *
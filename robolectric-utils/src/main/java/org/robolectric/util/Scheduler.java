@@ -1,9 +1,10 @@
 package org.robolectric.util;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import static org.robolectric.util.Scheduler.IdleState.*;
@@ -50,7 +51,12 @@ public class Scheduler {
   private long currentTime = 100;
   private boolean isExecutingRunnable = false;
   private final Thread associatedThread = Thread.currentThread();
-  private final List<ScheduledRunnable> runnables = new ArrayList<>();
+  // Ordered by scheduled time, then by the order in which runnables were posted.
+  private final TreeSet<ScheduledRunnable> runnables = new TreeSet<>();
+  // Queued entries for each runnable, so remove() doesn't need to scan the whole queue.
+  private final Map<Runnable, List<ScheduledRunnable>> runnableIndex = new IdentityHashMap<>();
+  private long nextSequence = 0;
+  private long nextFrontSequence = -1;
   private IdleState idleState = UNPAUSED;
 
   /**
@@ -160,7 +166,8 @@ public class Scheduler {
    */
   public synchronized void postAtFrontOfQueue(Runnable runnable) {
     if (isPaused() || Thread.currentThread() != associatedThread) {
-      runnables.add(0, new ScheduledRunnable(runnable, currentTime));
+      long sortTime = runnables.isEmpty() ? currentTime : Math.min(currentTime, runnables.first().sortTime);
+      enqueue(new ScheduledRunnable(runnable, currentTime, sortTime, nextFrontSequence--));
     } else {
       runOrQueueRunnable(runnable, currentTime);
     }
@@ -172,12 +179,9 @@ public class Scheduler {
    * @param runnable  Runnable to remove.
    */
   public synchronized void remove(Runnable runnable) {
-    ListIterator<ScheduledRunnable> iterator = runnables.listIterator();
-    while (iterator.hasNext()) {
-      ScheduledRunnable next = iterator.next();
-      if (next.runnable == runnable) {
-        iterator.remove();
-      }
+    List<ScheduledRunnable> scheduledRunnables = runnableIndex.remove(runnable);
+    if (scheduledRunnables != null) {
+      runnables.removeAll(scheduledRunnables);
     }
   }
 
@@ -187,7 +191,7 @@ public class Scheduler {
    * @return  True if a runnable was executed.
    */
   public synchronized boolean advanceToLastPostedRunnable() {
-    return size() >= 1 && advanceTo(runnables.get(runnables.size() - 1).scheduledTime);
+    return size() >= 1 && advanceTo(runnables.last().scheduledTime);
   }
 
   /**
@@ -196,7 +200,7 @@ public class Scheduler {
    * @return  True if a runnable was executed.
    */
   public synchronized boolean advanceToNextPostedRunnable() {
-    return size() >= 1 && advanceTo(runnables.get(0).scheduledTime);
+    return size() >= 1 && advanceTo(runnables.first().scheduledTime);
   }
 
   /**
@@ -252,7 +256,7 @@ public class Scheduler {
       return false;
     }
 
-    ScheduledRunnable postedRunnable = runnables.remove(0);
+    ScheduledRunnable postedRunnable = dequeue();
     currentTime = postedRunnable.scheduledTime;
     postedRunnable.run();
     return true;
@@ -272,6 +276,7 @@ public class Scheduler {
    */
   public synchronized void reset() {
     runnables.clear();
+    runnableIndex.clear();
     idleState = UNPAUSED;
   }
 
@@ -300,7 +305,7 @@ public class Scheduler {
   }
 
   private boolean nextTaskIsScheduledBefore(long endingTime) {
-    return size() > 0 && runnables.get(0).scheduledTime <= endingTime;
+    return size() > 0 && runnables.first().scheduledTime <= endingTime;
   }
 
   private void runOrQueueRunnable(Runnable runnable, long scheduledTime) {
@@ -331,22 +336,47 @@ public class Scheduler {
   }
 
   private void queueRunnableAndSort(Runnable runnable, long scheduledTime) {
-    runnables.add(new ScheduledRunnable(runnable, scheduledTime));
-    Collections.sort(runnables);
+    enqueue(new ScheduledRunnable(runnable, scheduledTime, scheduledTime, nextSequence++));
+  }
+
+  private void enqueue(ScheduledRunnable scheduledRunnable) {
+    runnables.add(scheduledRunnable);
+    List<ScheduledRunnable> scheduledRunnables = runnableIndex.get(scheduledRunnable.runnable);
+    if (scheduledRunnables == null) {
+      scheduledRunnables = new ArrayList<>(1);
+      runnableIndex.put(scheduledRunnable.runnable, scheduledRunnables);
+    }
+    scheduledRunnables.add(scheduledRunnable);
+  }
+
+  private ScheduledRunnable dequeue() {
+    ScheduledRunnable scheduledRunnable = runnables.pollFirst();
+    List<ScheduledRunnable> scheduledRunnables = runnableIndex.get(scheduledRunnable.runnable);
+    scheduledRunnables.remove(scheduledRunnable);
+    if (scheduledRunnables.isEmpty()) {
+      runnableIndex.remove(scheduledRunnable.runnable);
+    }
+    return scheduledRunnable;
   }
 
   private class ScheduledRunnable implements Comparable<ScheduledRunnable> {
     private final Runnable runnable;
     private final long scheduledTime;
+    // Position in the queue; differs from scheduledTime only for runnables posted at the front.
+    private final long sortTime;
+    private final long sequence;
 
-    private ScheduledRunnable(Runnable runnable, long scheduledTime) {
+    private ScheduledRunnable(Runnable runnable, long scheduledTime, long sortTime, long sequence) {
       this.runnable = runnable;
       this.scheduledTime = scheduledTime;
+      this.sortTime = sortTime;
+      this.sequence = sequence;
     }
 
     @Override
     public int compareTo(ScheduledRunnable runnable) {
-      return (int) (scheduledTime - runnable.scheduledTime);
+      int result = Long.compare(sortTime, runnable.sortTime);
+      return result != 0 ? result : Long.compare(sequence, runnable.sequence);
     }
 
     public void run() {
@@ -171,6 +171,63 @@ public class ReflectionHelpersTest {
     }
   }
 
+  @Test
+  public void callInstanceMethodReflectively_whenCalledRepeatedly_callsMethodWithCorrectSignature() {
+    ExampleDescendant example = new ExampleDescendant();
+    for (int i = 0; i < 3; i++) {
+      assertThat(ReflectionHelpers.callInstanceMethod(example, "returnNumber")).isEqualTo(1337);
+      assertThat(ReflectionHelpers.callInstanceMethod(example, "returnNumber", ClassParameter.from(int.class, i))).isEqualTo(i);
+      assertThat(ReflectionHelpers.callInstanceMethod(ExampleDescendant.class, example, "returnNumber", ClassParameter.from(int.class, i))).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void callInstanceMethodReflectively_callsInheritedMethodsOnEveryClassInTheHierarchy() {
+    assertThat(ReflectionHelpers.callInstanceMethod(new ExampleDescendant(), "returnNegativeNumber")).isEqualTo(-46);
+    assertThat(ReflectionHelpers.callInstanceMethod(new ExampleBase(), "returnNegativeNumber")).isEqualTo(-46);
+    assertThat(ReflectionHelpers.callInstanceMethod(new ExampleDescendant(), "returnNegativeNumber")).isEqualTo(-46);
+  }
+
+  @Test
+  public void callInstanceMethodReflectively_callsVarargsAndVoidMethods() {
+    ExampleDescendant example = new ExampleDescendant();
+    assertThat(ReflectionHelpers.callInstanceMethod(example, "countArgs", ClassParameter.from(String[].class, new String[] {"a", "b"}))).isEqualTo(2);
+    assertThat(ReflectionHelpers.callInstanceMethod(example, "setNotOverridden", ClassParameter.from(int.class, 3))).isNull();
+    assertThat(example.getNotOverridden()).isEqualTo(3);
+  }
+
+  @Test
+  public void callInstanceMethodReflectively_wrapsNullInstance() {
+    try {
+      ReflectionHelpers.callInstanceMethod(ExampleDescendant.class, null, "returnNumber");
+      Assertions.failBecauseExceptionWasNotThrown(RuntimeException.class);
+    } catch (RuntimeException e) {
+      assertThat(e.getCause()).isInstanceOf(NullPointerException.class);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void callInstanceMethodReflectively_wrapsArgumentsOfTheWrongType() {
+    ExampleDescendant example = new ExampleDescendant();
+    try {
+      ReflectionHelpers.callInstanceMethod(example, "returnNumber", ClassParameter.from((Class) int.class, "5"));
+      Assertions.failBecauseExceptionWasNotThrown(RuntimeException.class);
+    } catch (RuntimeException e) {
+      assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  @Test
+  public void callInstanceMethodReflectively_rethrowsNullPointerExceptionFromMethod() {
+    ExampleDescendant example = new ExampleDescendant();
+    try {
+      ReflectionHelpers.callInstanceMethod(example, "countArgs", ClassParameter.from(String[].class, null));
+      Assertions.failBecauseExceptionWasNotThrown(NullPointerException.class);
+    } catch (NullPointerException e) {
+    }
+  }
+
   @Test
   public void callStaticMethodReflectively_callsPrivateStaticMethodsReflectively() {
     assertThat(ReflectionHelpers.callStaticMethod(ExampleDescendant.class, "getConstantNumber")).isEqualTo(1);
@@ -299,6 +356,10 @@ public class ReflectionHelpersTest {
       return n;
     }
 
+    private int countArgs(String... args) {
+      return args.length;
+    }
+
     private static int getConstantNumber() {
       return 1;
     }
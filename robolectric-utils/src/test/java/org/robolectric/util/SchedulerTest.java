@@ -444,6 +444,57 @@ public class SchedulerTest {
     assertThat(runnablesThatWereRun).containsExactly(1, 2);
   }
 
+  @Test
+  public void postDelayed_withVeryLongDelays_runsJobsInTimeOrder() throws Exception {
+    scheduler.postDelayed(new AddToTranscript("later"), Integer.MAX_VALUE + 10L);
+    scheduler.postDelayed(new AddToTranscript("sooner"), 10);
+
+    scheduler.advanceToLastPostedRunnable();
+    transcript.assertEventsSoFar("sooner", "later");
+  }
+
+  @Test
+  public void postDelayed_withEqualTimes_runsJobsInPostOrder() throws Exception {
+    scheduler.postDelayed(new AddToTranscript("one"), 100);
+    scheduler.postDelayed(new AddToTranscript("zero"), 50);
+    scheduler.postDelayed(new AddToTranscript("two"), 100);
+    scheduler.postDelayed(new AddToTranscript("three"), 100);
+
+    scheduler.advanceBy(100);
+    transcript.assertEventsSoFar("zero", "one", "two", "three");
+  }
+
+  @Test
+  public void remove_shouldLeaveRunnablesPostedAfterwardsInTheQueue() throws Exception {
+    TestRunnable runnable = new TestRunnable();
+    scheduler.post(runnable);
+    scheduler.runOneTask();
+    scheduler.post(runnable);
+    scheduler.remove(runnable);
+    scheduler.post(runnable);
+
+    assertThat(scheduler.size()).isEqualTo(1);
+  }
+
+  @Test(timeout = 10000)
+  public void manyPostsAndRemovals_shouldNotTakeQuadraticTime() throws Exception {
+    List<TestRunnable> runnables = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      TestRunnable runnable = new TestRunnable();
+      runnables.add(runnable);
+      scheduler.postDelayed(runnable, (i * 7919) % 1000);
+    }
+    for (int i = 0; i < runnables.size(); i += 2) {
+      scheduler.remove(runnables.get(i));
+    }
+    assertThat(scheduler.size()).isEqualTo(50000);
+
+    scheduler.advanceToLastPostedRunnable();
+    assertThat(scheduler.size()).isEqualTo(0);
+    assertThat(runnables.get(0).wasRun).isFalse();
+    assertThat(runnables.get(1).wasRun).isTrue();
+  }
+
   private class AddToTranscript implements Runnable {
     private String event;
 
@@ -23,6 +23,7 @@ import org.robolectric.internal.dependency.*;
 import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.res.*;
 import org.robolectric.util.Logger;
+import org.robolectric.util.Pair;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.io.File;
@@ -33,6 +34,7 @@ import java.lang.reflect.Method;
 import java.net.URL;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Installs a {@link org.robolectric.internal.bytecode.InstrumentingClassLoader} and
@@ -49,14 +51,15 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   private final SdkPicker sdkPicker;
   private final ConfigMerger configMerger;
 
-  private TestLifecycle<Application> testLifecycle;
+  private final ThreadLocal<TestLifecycle<Application>> testLifecycle = new ThreadLocal<>();
   private DependencyResolver dependencyResolver;
 
   static {
     new SecureRandom(); // this starts up the Poller SunPKCS11-Darwin thread early, outside of any Robolectric classloader
   }
 
-  private final HashSet<Class<?>> loadedTestClasses = new HashSet<>();
+  private final Set<Class<?>> loadedTestClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+  private final List<RobolectricFrameworkMethod> configuredChildren = new ArrayList<>();
 
   /**
    * Creates a runner to run {@code testClass}. Looks in your working directory for your AndroidManifest.xml file
@@ -69,19 +72,22 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     super(testClass);
     this.configMerger = createConfigMerger();
     this.sdkPicker = createSdkPicker();
+    if (RoboSettings.getParallelThreads() > 1) {
+      setScheduler(ParallelTestExecutor.getInstance(RoboSettings.getParallelThreads()).newScheduler());
+    }
   }
 
   @SuppressWarnings("unchecked")
   private void assureTestLifecycle(SdkEnvironment sdkEnvironment) {
     try {
       ClassLoader robolectricClassLoader = sdkEnvironment.getRobolectricClassLoader();
-      testLifecycle = (TestLifecycle) robolectricClassLoader.loadClass(getTestLifecycleClass().getName()).newInstance();
+      testLifecycle.set((TestLifecycle) robolectricClassLoader.loadClass(getTestLifecycleClass().getName()).newInstance());
     } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
       throw new RuntimeException(e);
     }
   }
 
-  protected DependencyResolver getJarResolver() {
+  protected synchronized DependencyResolver getJarResolver() {
     if (dependencyResolver == null) {
       if (Boolean.getBoolean("robolectric.offline")) {
         String dependencyDir = System.getProperty("robolectric.dependency.dir", ".");
@@ -116,7 +122,8 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   /**
    * Create a {@link ClassHandler} appropriate for the given arguments.
    *
-   * Robolectric may chose to cache the returned instance, keyed by <tt>shadowMap</tt> and <tt>sdkConfig</tt>.
+   * Robolectric caches the returned instance in each {@link SdkEnvironment}, keyed by <tt>shadowMap</tt>, and uses it
+   * again for later tests with an equal shadow map.
    *
    * Custom TestRunner subclasses may wish to override this method to provide alternate configuration.
    *
@@ -195,6 +202,9 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     return new Statement() {
       @Override
       public void evaluate() throws Throwable {
+        if (RoboSettings.isPrewarmSdkEnvironments()) {
+          prewarmSdkEnvironments();
+        }
         try {
           statement.evaluate();
           for (Class<?> testClass : loadedTestClasses) {
@@ -208,9 +218,20 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     };
   }
 
+  private void prewarmSdkEnvironments() {
+    Set<Pair<InstrumentationConfiguration, SdkConfig>> environments = new LinkedHashSet<>();
+    for (RobolectricFrameworkMethod child : configuredChildren) {
+      environments.add(Pair.create(createClassLoaderConfig(child.config), child.sdkConfig));
+    }
+    for (Pair<InstrumentationConfiguration, SdkConfig> environment : environments) {
+      new InstrumentingClassLoaderFactory(environment.first, getJarResolver()).prewarm(environment.second);
+    }
+  }
+
   @Override
   protected List<FrameworkMethod> getChildren() {
     List<FrameworkMethod> children = new ArrayList<>();
+    configuredChildren.clear();
     for (FrameworkMethod frameworkMethod : super.getChildren()) {
       try {
         Config config = getConfig(frameworkMethod.getMethod());
@@ -220,6 +241,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
         for (SdkConfig sdkConfig : sdksToRun) {
           last = new RobolectricFrameworkMethod(frameworkMethod.getMethod(), appManifest, sdkConfig, config);
           children.add(last);
+          configuredChildren.add(last);
         }
         if (last != null) {
           last.dontIncludeApiLevelInName();
@@ -271,7 +293,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
    * Returns the ResourceProvider for the compile time SDK.
    */
   @NotNull
-  private static PackageResourceTable getCompiletimeSdkResourceTable() {
+  private static synchronized PackageResourceTable getCompiletimeSdkResourceTable() {
     if (compiletimeSdkResourceTable == null) {
       compiletimeSdkResourceTable = ResourceTableFactory.newFrameworkResourceTable(new ResourcePath(android.R.class, null, null));
     }
@@ -282,7 +304,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     return method.getAnnotation(Ignore.class) != null;
   }
 
-  private ParallelUniverseInterface parallelUniverseInterface;
+  private final ThreadLocal<ParallelUniverseInterface> currentParallelUniverseInterface = new ThreadLocal<>();
 
   Statement methodBlock(final FrameworkMethod method, final Config config, final AndroidManifest appManifest, final SdkEnvironment sdkEnvironment) {
     return new Statement() {
@@ -306,7 +328,8 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
           throw new RuntimeException(e);
         }
 
-        parallelUniverseInterface = getHooksInterface(sdkEnvironment);
+        final ParallelUniverseInterface parallelUniverseInterface = getHooksInterface(sdkEnvironment);
+        currentParallelUniverseInterface.set(parallelUniverseInterface);
         try {
           try {
             // Only invoke @BeforeClass once per class
@@ -326,8 +349,8 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
             PackageResourceTable systemResourceTable = sdkEnvironment.getSystemResourceTable(getJarResolver());
             PackageResourceTable appResourceTable = getAppResourceTable(appManifest);
 
-            parallelUniverseInterface.setUpApplicationState(bootstrappedMethod, testLifecycle, appManifest, config, new RoutingResourceTable(getCompiletimeSdkResourceTable(), appResourceTable), new RoutingResourceTable(systemResourceTable, appResourceTable), new RoutingResourceTable(systemResourceTable));
-            testLifecycle.beforeTest(bootstrappedMethod);
+            parallelUniverseInterface.setUpApplicationState(bootstrappedMethod, testLifecycle.get(), appManifest, config, new RoutingResourceTable(getCompiletimeSdkResourceTable(), appResourceTable), new RoutingResourceTable(systemResourceTable, appResourceTable), new RoutingResourceTable(systemResourceTable));
+            testLifecycle.get().beforeTest(bootstrappedMethod);
           } catch (Exception e) {
             throw new RuntimeException(e);
           }
@@ -350,7 +373,8 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
           }
         } finally {
           Thread.currentThread().setContextClassLoader(RobolectricTestRunner.class.getClassLoader());
-          parallelUniverseInterface = null;
+          currentParallelUniverseInterface.remove();
+          testLifecycle.remove();
         }
       }
     };
@@ -459,7 +483,11 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
       sdkEnvironment.getShadowInvalidator().invalidateClasses(invalidatedClasses);
     }
 
-    ClassHandler classHandler = createClassHandler(shadowMap, sdkEnvironment.getSdkConfig());
+    // reusing the class handler keeps the plans it has already worked out for this environment
+    ClassHandler classHandler = sdkEnvironment.getClassHandler(shadowMap);
+    if (classHandler == null) {
+      classHandler = sdkEnvironment.addClassHandler(shadowMap, createClassHandler(shadowMap, sdkEnvironment.getSdkConfig()));
+    }
     injectEnvironment(sdkEnvironment.getRobolectricClassLoader(), classHandler, sdkEnvironment.getShadowInvalidator());
   }
 
@@ -476,16 +504,16 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   }
 
   public void internalAfterTest(final Method method) {
-    testLifecycle.afterTest(method);
+    testLifecycle.get().afterTest(method);
   }
 
   private void afterClass() {
-    testLifecycle = null;
+    testLifecycle.remove();
   }
 
   @TestOnly
   boolean allStateIsCleared() {
-    return testLifecycle == null;
+    return testLifecycle.get() == null;
   }
 
   @Override
@@ -494,13 +522,15 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   }
 
   private final PackageResourceTable getAppResourceTable(final AndroidManifest appManifest) {
-    PackageResourceTable resourceTable = appResourceTableCache.get(appManifest);
-    if (resourceTable == null) {
-      resourceTable = ResourceMerger.buildResourceTable(appManifest);
+    synchronized (appResourceTableCache) {
+      PackageResourceTable resourceTable = appResourceTableCache.get(appManifest);
+      if (resourceTable == null) {
+        resourceTable = ResourceMerger.buildResourceTable(appManifest);
 
-      appResourceTableCache.put(appManifest, resourceTable);
+        appResourceTableCache.put(appManifest, resourceTable);
+      }
+      return resourceTable;
     }
-    return resourceTable;
   }
 
   protected ShadowMap createShadowMap() {
@@ -514,7 +544,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
 
     @Override protected Object createTest() throws Exception {
       Object test = super.createTest();
-      testLifecycle.prepareTest(test);
+      testLifecycle.get().prepareTest(test);
       return test;
     }
 
@@ -529,6 +559,8 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     @Override
     protected Statement methodInvoker(FrameworkMethod method, Object test) {
       final Statement invoker = super.methodInvoker(method, test);
+      // Look this up now: with @Test(timeout=...) the statement is evaluated on another thread.
+      final ParallelUniverseInterface parallelUniverseInterface = currentParallelUniverseInterface.get();
       return new Statement() {
         @Override
         public void evaluate() throws Throwable {
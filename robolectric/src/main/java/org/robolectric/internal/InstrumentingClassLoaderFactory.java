@@ -1,31 +1,80 @@
 package org.robolectric.internal;
 
+import org.robolectric.RoboSettings;
+import org.robolectric.internal.bytecode.ClassLoadProfile;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.internal.bytecode.InstrumentedClassCache;
 import org.robolectric.internal.bytecode.InstrumentingClassLoader;
-import org.robolectric.internal.dependency.DependencyJar;
+import org.robolectric.internal.bytecode.PreinstrumentedJar;
 import org.robolectric.internal.dependency.DependencyResolver;
+import org.robolectric.util.Logger;
 import org.robolectric.util.Pair;
 
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.net.URL;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class InstrumentingClassLoaderFactory {
 
-  /** The factor for cache size. See {@link #CACHE_SIZE} for details. */
+  /** The factor for cache size. See {@link #getCacheSize()} for details. */
   private static final int CACHE_SIZE_FACTOR = 3;
 
-  /** We need to set the cache size of class loaders more than the number of supported APIs as different tests may have different configurations. */
-  private static final int CACHE_SIZE = SdkConfig.getSupportedApis().size() * CACHE_SIZE_FACTOR;
+  /**
+   * When less than this fraction of the old generation is free after its last collection, creating an environment
+   * evicts the least recently used one.
+   */
+  private static final double MIN_FREE_HEAP_FRACTION = 0.125;
 
-  // Simple LRU Cache. SdkEnvironments are unique across InstrumentingClassloaderConfig and SdkConfig
-  private static final LinkedHashMap<Pair<InstrumentationConfiguration, SdkConfig>, SdkEnvironment> sdkToEnvironment = new LinkedHashMap<Pair<InstrumentationConfiguration, SdkConfig>, SdkEnvironment>() {
+  /** The number of profiled classes each preloading task prepares. See {@link #preload(InstrumentingClassLoader, List)}. */
+  private static final int PRELOAD_CHUNK_SIZE = 64;
+
+  private static final AtomicInteger hits = new AtomicInteger();
+  private static final AtomicInteger misses = new AtomicInteger();
+  private static final AtomicInteger evictions = new AtomicInteger();
+
+  // LRU Cache. SdkEnvironments are unique across InstrumentingClassloaderConfig, SdkConfig, and universe.
+  // Environments are created outside the lock; concurrent callers for the same key wait on the same task.
+  private static final LinkedHashMap<Pair<Pair<InstrumentationConfiguration, SdkConfig>, Integer>, FutureTask<SdkEnvironment>> sdkToEnvironment =
+      new LinkedHashMap<Pair<Pair<InstrumentationConfiguration, SdkConfig>, Integer>, FutureTask<SdkEnvironment>>(16, 0.75f, true) {
     @Override
-    protected boolean removeEldestEntry(Map.Entry<Pair<InstrumentationConfiguration, SdkConfig>, SdkEnvironment> eldest) {
-      return size() > CACHE_SIZE;
+    protected boolean removeEldestEntry(Map.Entry<Pair<Pair<InstrumentationConfiguration, SdkConfig>, Integer>, FutureTask<SdkEnvironment>> eldest) {
+      // evicts as many environments as needed, since the limit may have been lowered since the last one was created
+      int excess = size() - getCacheSize();
+      if (excess <= 0 && size() > 1 && isLowOnMemory()) {
+        excess = 1;
+      }
+
+      Iterator<Pair<Pair<InstrumentationConfiguration, SdkConfig>, Integer>> keys = keySet().iterator();
+      for (; excess > 0; excess--) {
+        Pair<Pair<InstrumentationConfiguration, SdkConfig>, Integer> key = keys.next();
+        keys.remove();
+        evictions.incrementAndGet();
+        Logger.debug("evicting SDK environment for %s in universe %d", key.first.second, key.second);
+      }
+      return false;
     }
   };
 
+  private static final ExecutorService prewarmExecutor =
+      Executors.newSingleThreadExecutor(daemonThreadFactory("Robolectric environment pre-warmer"));
+
+  private static final ExecutorService preloadExecutor = Executors.newFixedThreadPool(
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1), daemonThreadFactory("Robolectric class preloader"));
+
   private final InstrumentationConfiguration instrumentationConfig;
   private final DependencyResolver dependencyResolver;
 
@@ -34,18 +83,197 @@ public class InstrumentingClassLoaderFactory {
     this.dependencyResolver = dependencyResolver;
   }
 
-  public synchronized SdkEnvironment getSdkEnvironment(SdkConfig sdkConfig) {
+  /**
+   * Returns the {@link SdkEnvironment} for the given SDK in the calling thread's universe (see {@link ParallelTestExecutor}).
+   */
+  public SdkEnvironment getSdkEnvironment(SdkConfig sdkConfig) {
+    return getSdkEnvironment(sdkConfig, ParallelTestExecutor.currentUniverse());
+  }
+
+  SdkEnvironment getSdkEnvironment(final SdkConfig sdkConfig, int universe) {
+    Pair<Pair<InstrumentationConfiguration, SdkConfig>, Integer> key =
+        Pair.create(Pair.create(instrumentationConfig, sdkConfig), universe);
+
+    FutureTask<SdkEnvironment> task;
+    synchronized (sdkToEnvironment) {
+      task = sdkToEnvironment.get(key);
+      if (task == null) {
+        misses.incrementAndGet();
+        task = new FutureTask<>(new Callable<SdkEnvironment>() {
+          @Override
+          public SdkEnvironment call() throws Exception {
+            return createSdkEnvironment(sdkConfig);
+          }
+        });
+        sdkToEnvironment.put(key, task);
+      } else {
+        hits.incrementAndGet();
+      }
+    }
+
+    // no-op if another thread has already started creating this environment
+    task.run();
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      synchronized (sdkToEnvironment) {
+        if (sdkToEnvironment.get(key) == task) {
+          sdkToEnvironment.remove(key);
+        }
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /**
+   * Creates the {@link SdkEnvironment} for the given SDK and loads its framework resources on a background thread, in
+   * every universe tests may run in, so that tests which need it later don't have to wait for it.
+   */
+  public void prewarm(final SdkConfig sdkConfig) {
+    // tests run in universe 0 on the calling thread, or in the workers' universes when run in parallel
+    int parallelThreads = RoboSettings.getParallelThreads();
+    final int firstUniverse = parallelThreads > 1 ? ParallelTestExecutor.FIRST_WORKER_UNIVERSE : 0;
+    final int universes = Math.max(1, parallelThreads);
+    prewarmExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (int universe = firstUniverse; universe < firstUniverse + universes; universe++) {
+          try {
+            getSdkEnvironment(sdkConfig, universe).getSystemResourceTable(dependencyResolver);
+          } catch (Throwable e) {
+            // the test which needs this environment will report the problem
+            Logger.debug("failed to pre-warm SDK environment for %s: %s", sdkConfig, e);
+          }
+        }
+      }
+    });
+  }
+
+  private SdkEnvironment createSdkEnvironment(SdkConfig sdkConfig) {
+    URL url = dependencyResolver.getLocalArtifactUrl(sdkConfig.getAndroidSdkDependency());
+
+    InstrumentedClassCache classCache = null;
+    if (RoboSettings.getCacheDirectory() != null) {
+      classCache = new InstrumentedClassCache(new File(RoboSettings.getCacheDirectory()), instrumentationConfig, url);
+    }
+
+    PreinstrumentedJar preinstrumentedJar = null;
+    if (RoboSettings.getPreinstrumentedJarDirectory() != null) {
+      preinstrumentedJar = PreinstrumentedJar.find(new File(RoboSettings.getPreinstrumentedJarDirectory()), instrumentationConfig, url);
+    }
+
+    ClassLoadProfile classLoadProfile = null;
+    if (RoboSettings.getCacheDirectory() != null) {
+      classLoadProfile = ClassLoadProfile.forJars(new File(RoboSettings.getCacheDirectory()), instrumentationConfig, url);
+    }
+
+    InstrumentingClassLoader robolectricClassLoader = new InstrumentingClassLoader(instrumentationConfig, classCache, preinstrumentedJar, classLoadProfile, url);
+    if (classLoadProfile != null) {
+      Logger.debug("preloading %d classes for %s", classLoadProfile.getPreviousClassNames().size(), sdkConfig);
+      preload(robolectricClassLoader, classLoadProfile.getPreviousClassNames());
+    }
+    return new SdkEnvironment(sdkConfig, robolectricClassLoader);
+  }
+
+  /**
+   * Instruments the classes earlier runs needed on a pool of background threads, so that's done while the runner is
+   * still setting up rather than one at a time as tests first use them. Classes are only prepared, not defined: tests
+   * still load them, so the profile records what this run actually used, in the order it used it, and a class that
+   * isn't needed any more drops out of the next profile. The class loader is parallel capable, so a test which needs
+   * a class before its turn comes simply loads it itself. Once every class has been prepared, any the tests haven't
+   * loaded yet are discarded rather than kept for the life of the environment.
+   */
+  private static void preload(final InstrumentingClassLoader classLoader, List<String> classNames) {
+    final AtomicInteger remainingChunks = new AtomicInteger((classNames.size() + PRELOAD_CHUNK_SIZE - 1) / PRELOAD_CHUNK_SIZE);
+    for (int start = 0; start < classNames.size(); start += PRELOAD_CHUNK_SIZE) {
+      final List<String> chunk = classNames.subList(start, Math.min(start + PRELOAD_CHUNK_SIZE, classNames.size()));
+      preloadExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (String className : chunk) {
+              try {
+                classLoader.prepare(className);
+              } catch (ClassNotFoundException | RuntimeException e) {
+                // the class is gone or broken; if a test needs it, loading it will report the problem
+                Logger.debug("couldn't preload %s: %s", className, e);
+              }
+            }
+          } finally {
+            if (remainingChunks.decrementAndGet() == 0) {
+              classLoader.discardPreparedClasses();
+            }
+          }
+        }
+      });
+    }
+  }
 
-    Pair<InstrumentationConfiguration, SdkConfig> key = Pair.create(instrumentationConfig, sdkConfig);
+  private static ThreadFactory daemonThreadFactory(final String name) {
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
 
-    SdkEnvironment sdkEnvironment = sdkToEnvironment.get(key);
-    if (sdkEnvironment == null) {
-      URL url = dependencyResolver.getLocalArtifactUrl(sdkConfig.getAndroidSdkDependency());
+  /**
+   * We need to set the cache size of class loaders more than the number of supported APIs as different tests may have different configurations.
+   * When running tests in parallel, every universe needs its own set. Can be overridden with {@link RoboSettings#getMaxSdkEnvironments()}.
+   */
+  private static int getCacheSize() {
+    int maxSdkEnvironments = RoboSettings.getMaxSdkEnvironments();
+    if (maxSdkEnvironments > 0) {
+      return maxSdkEnvironments;
+    }
+    return SdkConfig.getSupportedApis().size() * CACHE_SIZE_FACTOR * Math.max(1, RoboSettings.getParallelThreads());
+  }
 
-      ClassLoader robolectricClassLoader = new InstrumentingClassLoader(instrumentationConfig, url);
-      sdkEnvironment = new SdkEnvironment(sdkConfig, robolectricClassLoader);
-      sdkToEnvironment.put(key, sdkEnvironment);
+  /**
+   * Looks at heap usage as of the last collection of each pool, rather than current usage, so garbage which just hasn't
+   * been collected yet doesn't count. Only pools which support usage thresholds are considered, which in HotSpot means
+   * the old generation; the young generation's pools are routinely full.
+   */
+  private static boolean isLowOnMemory() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()) {
+        continue;
+      }
+      MemoryUsage usage = pool.getCollectionUsage();
+      if (usage != null && usage.getMax() > 0 && usage.getMax() - usage.getUsed() < usage.getMax() * MIN_FREE_HEAP_FRACTION) {
+        return true;
+      }
     }
-    return sdkEnvironment;
+    return false;
+  }
+
+  /**
+   * @return The number of requests served by an environment which already existed.
+   */
+  public static int getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return The number of requests which had to create a new environment.
+   */
+  public static int getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return The number of environments dropped to make room for new ones.
+   */
+  public static int getEvictionCount() {
+    return evictions.get();
   }
 }
@@ -0,0 +1,109 @@
+package org.robolectric.internal;
+
+import org.junit.runners.model.RunnerScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs test methods concurrently on a fixed set of worker threads.
+ *
+ * Each worker is bound to its own universe number for its whole life, and
+ * {@link InstrumentingClassLoaderFactory} keeps a separate {@link SdkEnvironment} per universe, so
+ * the static state inside a Robolectric classloader is only ever touched by one thread at a time.
+ * Workers are numbered from {@link #FIRST_WORKER_UNIVERSE}; threads which aren't workers (e.g. the
+ * JUnit main thread) are in universe 0.
+ */
+public class ParallelTestExecutor {
+  static final int FIRST_WORKER_UNIVERSE = 1;
+
+  private static final ThreadLocal<Integer> currentUniverse = new ThreadLocal<Integer>() {
+    @Override
+    protected Integer initialValue() {
+      return 0;
+    }
+  };
+
+  private static ParallelTestExecutor instance;
+
+  private final int threadCount;
+  private final ExecutorService executorService;
+
+  ParallelTestExecutor(int threadCount) {
+    this.threadCount = threadCount;
+    final AtomicInteger nextUniverse = new AtomicInteger(FIRST_WORKER_UNIVERSE);
+    executorService = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable runnable) {
+        final int universe = nextUniverse.getAndIncrement();
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            currentUniverse.set(universe);
+            runnable.run();
+          }
+        }, "Robolectric universe " + universe);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * @return The shared executor, which is sized for {@code threadCount} workers on first use.
+   * @throws IllegalStateException If the executor was already created with a different number of workers.
+   */
+  public static synchronized ParallelTestExecutor getInstance(int threadCount) {
+    if (instance == null) {
+      instance = new ParallelTestExecutor(threadCount);
+    } else if (instance.threadCount != threadCount) {
+      throw new IllegalStateException("parallel test executor already has " + instance.threadCount
+          + " threads; can't change it to " + threadCount);
+    }
+    return instance;
+  }
+
+  /**
+   * @return The universe of the calling thread.
+   */
+  public static int currentUniverse() {
+    return currentUniverse.get();
+  }
+
+  /**
+   * Creates a {@link RunnerScheduler} which runs a runner's children on this executor and waits
+   * for all of them to complete.
+   */
+  public RunnerScheduler newScheduler() {
+    return new RunnerScheduler() {
+      private final List<Future<?>> futures = new ArrayList<>();
+
+      @Override
+      public void schedule(Runnable childStatement) {
+        futures.add(executorService.submit(childStatement));
+      }
+
+      @Override
+      public void finished() {
+        try {
+          for (Future<?> future : futures) {
+            future.get();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+          throw new RuntimeException(e.getCause());
+        } finally {
+          futures.clear();
+        }
+      }
+    };
+  }
+}
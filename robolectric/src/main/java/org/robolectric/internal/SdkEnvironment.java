@@ -1,17 +1,30 @@
 package org.robolectric.internal;
 
 import org.jetbrains.annotations.NotNull;
+import org.robolectric.internal.bytecode.ClassHandler;
 import org.robolectric.internal.bytecode.ShadowInvalidator;
 import org.robolectric.internal.dependency.DependencyResolver;
 import org.robolectric.internal.bytecode.ShadowMap;
 import org.robolectric.res.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class SdkEnvironment {
+  private static final int MAX_CLASS_HANDLERS = 8;
+
   private final SdkConfig sdkConfig;
   private final ClassLoader robolectricClassLoader;
   private final ShadowInvalidator shadowInvalidator;
   private ShadowMap shadowMap = ShadowMap.EMPTY;
   private PackageResourceTable systemResourceTable;
+  /** Class handlers for the shadow maps most recently used in this environment, so their plans outlive a test. */
+  private final Map<ShadowMap, ClassHandler> classHandlers = new LinkedHashMap<ShadowMap, ClassHandler>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<ShadowMap, ClassHandler> eldest) {
+      return size() > MAX_CLASS_HANDLERS;
+    }
+  };
 
   public SdkEnvironment(SdkConfig sdkConfig, ClassLoader robolectricClassLoader) {
     this.sdkConfig = sdkConfig;
@@ -61,6 +74,27 @@ public class SdkEnvironment {
     return sdkConfig;
   }
 
+  /**
+   * @return The class handler last used with an equal shadow map in this environment, or null if there isn't one.
+   */
+  public synchronized ClassHandler getClassHandler(ShadowMap shadowMap) {
+    return classHandlers.get(shadowMap);
+  }
+
+  /**
+   * Keeps a class handler to use again with equal shadow maps.
+   *
+   * @return The class handler to use: the given one, or one another thread added for an equal shadow map first.
+   */
+  public synchronized ClassHandler addClassHandler(ShadowMap shadowMap, ClassHandler classHandler) {
+    ClassHandler existing = classHandlers.get(shadowMap);
+    if (existing != null) {
+      return existing;
+    }
+    classHandlers.put(shadowMap, classHandler);
+    return classHandler;
+  }
+
   public ShadowMap replaceShadowMap(ShadowMap shadowMap) {
     ShadowMap oldMap = this.shadowMap;
     this.shadowMap = shadowMap;
@@ -0,0 +1,190 @@
+package org.robolectric.internal.bytecode;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.robolectric.util.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The classes an {@link InstrumentingClassLoader} acquired, in the order it loaded them, persisted between JVM runs so
+ * that later runs can load them ahead of the tests which need them.
+ *
+ * Profiles are stored in a directory under the cache root, named by a digest of the {@link InstrumentationConfiguration}
+ * and the jars being instrumented. Every environment with the same configuration and jars shares one profile. When the
+ * JVM exits, the classes this run loaded are merged into the profile on disk: they come first, in the order this run
+ * loaded them, followed by the classes earlier runs loaded but this one didn't. Runs of a single test, or forks running
+ * different parts of a suite, so add to the profile rather than replace it. Classes which {@value #MAX_UNUSED_RUNS} runs
+ * in a row haven't loaded, such as ones which no longer exist, are dropped.
+ */
+public class ClassLoadProfile {
+  static final int MAX_UNUSED_RUNS = 10;
+  private static final char UNUSED_RUNS_SEPARATOR = '\t';
+
+  private static final ConcurrentMap<Path, ClassLoadProfile> profiles = new ConcurrentHashMap<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread("Robolectric class load profile writer") {
+      @Override
+      public void run() {
+        for (ClassLoadProfile profile : profiles.values()) {
+          profile.save();
+        }
+      }
+    });
+  }
+
+  private final Path file;
+  private final List<String> previousClassNames;
+  private final Set<String> recordedClassNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final Queue<String> recordedInOrder = new ConcurrentLinkedQueue<>();
+
+  // VisibleForTesting
+  ClassLoadProfile(Path file) {
+    this.file = file;
+    this.previousClassNames = Collections.unmodifiableList(new ArrayList<>(load(file).keySet()));
+  }
+
+  /**
+   * @return The profile for environments instrumenting {@code urls} with {@code config}.
+   */
+  public static ClassLoadProfile forJars(File cacheRoot, InstrumentationConfiguration config, URL... urls) {
+    Hasher hasher = Hashing.sha1().newHasher()
+        .putString(config.fingerprint(), StandardCharsets.UTF_8);
+    for (URL url : urls) {
+      hasher.putString(url.toString(), StandardCharsets.UTF_8);
+    }
+    Path file = new File(new File(cacheRoot, "class-load-profiles"), hasher.hash().toString() + ".txt").toPath();
+
+    ClassLoadProfile profile = profiles.get(file);
+    if (profile == null) {
+      ClassLoadProfile newProfile = new ClassLoadProfile(file);
+      profile = profiles.putIfAbsent(file, newProfile);
+      if (profile == null) {
+        profile = newProfile;
+      }
+    }
+    return profile;
+  }
+
+  /**
+   * Stops a profile from {@link #forJars} being saved when the JVM exits.
+   */
+  // VisibleForTesting
+  static void unregister(ClassLoadProfile profile) {
+    profiles.remove(profile.file, profile);
+  }
+
+  /**
+   * @return The classes loaded by earlier runs, in the order they were first loaded.
+   */
+  public List<String> getPreviousClassNames() {
+    return previousClassNames;
+  }
+
+  void record(String className) {
+    if (recordedClassNames.add(className)) {
+      recordedInOrder.add(className);
+    }
+  }
+
+  /**
+   * @return The classes loaded by this run so far, in the order they were first loaded.
+   */
+  public List<String> getRecordedClassNames() {
+    return new ArrayList<>(recordedInOrder);
+  }
+
+  /**
+   * Merges the classes loaded by this run into the profile on disk. The profile is locked while it's merged, and
+   * written to a temporary file which is then moved into place, so concurrent JVMs neither lose each other's classes
+   * nor observe a partially written profile.
+   */
+  void save() {
+    List<String> classNames = getRecordedClassNames();
+    if (classNames.isEmpty()) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(file.getParent());
+      Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+      try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+           FileLock ignored = lockChannel.lock()) {
+        List<String> lines = merge(classNames, load(file));
+        if (Files.isRegularFile(file) && lines.equals(Files.readAllLines(file, StandardCharsets.UTF_8))) {
+          return;
+        }
+
+        Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+          Files.write(tmpFile, lines, StandardCharsets.UTF_8);
+          Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+          Files.deleteIfExists(tmpFile);
+        }
+      }
+    } catch (IOException | UnsupportedOperationException e) {
+      Logger.debug("couldn't write class load profile %s: %s", file, e);
+    }
+  }
+
+  /**
+   * @return Profile lines for this run's classes followed by the earlier runs' classes this run didn't load, each with
+   *     the number of runs in a row which haven't loaded it.
+   */
+  private List<String> merge(List<String> classNames, Map<String, Integer> previousUnusedRuns) {
+    List<String> lines = new ArrayList<>(classNames);
+    for (Map.Entry<String, Integer> previous : previousUnusedRuns.entrySet()) {
+      int unusedRuns = previous.getValue() + 1;
+      if (!recordedClassNames.contains(previous.getKey()) && unusedRuns < MAX_UNUSED_RUNS) {
+        lines.add(previous.getKey() + UNUSED_RUNS_SEPARATOR + unusedRuns);
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * @return The classes in a profile, in order, with the number of runs in a row which haven't loaded each.
+   */
+  private static Map<String, Integer> load(Path file) {
+    Map<String, Integer> unusedRuns = new LinkedHashMap<>();
+    if (!Files.isRegularFile(file)) {
+      return unusedRuns;
+    }
+    try {
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        int separator = line.indexOf(UNUSED_RUNS_SEPARATOR);
+        if (separator == -1) {
+          unusedRuns.put(line, 0);
+        } else {
+          unusedRuns.put(line.substring(0, separator), Integer.parseInt(line.substring(separator + 1)));
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      Logger.debug("couldn't read class load profile %s: %s", file, e);
+      unusedRuns.clear();
+    }
+    unusedRuns.remove("");
+    return unusedRuns;
+  }
+}
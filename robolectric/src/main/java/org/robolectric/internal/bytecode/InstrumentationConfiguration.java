@@ -271,6 +271,34 @@ public class InstrumentationConfiguration {
     return false;
   }
 
+  /**
+   * Returns a description of this configuration which is stable across JVMs, suitable for keying
+   * persistent caches of instrumented classes.
+   */
+  String fingerprint() {
+    StringBuilder buf = new StringBuilder();
+    appendSorted(buf, "instrumentedPackages", instrumentedPackages);
+    appendSorted(buf, "instrumentedClasses", instrumentedClasses);
+    appendSorted(buf, "classesToNotInstrument", classesToNotInstrument);
+    appendSorted(buf, "classesToNotAcquire", classesToNotAcquire);
+    appendSorted(buf, "packagesToNotAcquire", packagesToNotAcquire);
+    List<String> translations = new ArrayList<>();
+    for (Map.Entry<String, String> entry : classNameTranslations.entrySet()) {
+      translations.add(entry.getKey() + "=" + entry.getValue());
+    }
+    appendSorted(buf, "classNameTranslations", translations);
+    List<String> methods = new ArrayList<>();
+    for (MethodRef methodRef : interceptedMethods) {
+      methods.add(methodRef.className + "#" + methodRef.methodName);
+    }
+    appendSorted(buf, "interceptedMethods", methods);
+    return buf.toString();
+  }
+
+  private static void appendSorted(StringBuilder buf, String name, Collection<String> values) {
+    buf.append(name).append(new TreeSet<>(values)).append('\n');
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -0,0 +1,191 @@
+package org.robolectric.internal.bytecode;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.robolectric.util.Logger;
+import org.robolectric.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Persistent, content-addressed cache of instrumented class bytes, shared between JVM runs.
+ *
+ * Entries are named by a digest of the original class bytes and stored in a directory named by a
+ * digest of the {@link InstrumentationConfiguration}, the jars being instrumented, whether
+ * invokedynamic is in use, the JDK, and the {@link #INSTRUMENTER_FINGERPRINT}. Any change to those
+ * simply misses and the class is instrumented again.
+ */
+public class InstrumentedClassCache {
+  /**
+   * Identifies the code which instruments classes: the Robolectric version and a digest of this package's class files.
+   * Every development build has the same snapshot version, so the version alone doesn't tell their output apart. Null
+   * if the class files can't be read, in which case nothing is cached.
+   */
+  static final String INSTRUMENTER_FINGERPRINT = instrumenterFingerprint();
+
+  /**
+   * Instrumentation reads superclasses, which for android-all classes may be the JDK's.
+   */
+  static final String JDK = System.getProperty("java.vendor") + " " + System.getProperty("java.version");
+
+  private final Path directory;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  public InstrumentedClassCache(File cacheRoot, InstrumentationConfiguration config, URL... urls) {
+    if (INSTRUMENTER_FINGERPRINT == null) {
+      // classes instrumented by another build of this version couldn't be told apart
+      this.directory = null;
+      return;
+    }
+    Hasher hasher = Hashing.sha1().newHasher()
+        .putString(INSTRUMENTER_FINGERPRINT, StandardCharsets.UTF_8)
+        .putBoolean(InvokeDynamic.ENABLED)
+        .putString(config.fingerprint(), StandardCharsets.UTF_8)
+        .putString(JDK, StandardCharsets.UTF_8);
+    for (URL url : urls) {
+      hasher.putString(url.toString(), StandardCharsets.UTF_8);
+    }
+    this.directory = new File(new File(cacheRoot, "instrumented-classes"), hasher.hash().toString()).toPath();
+  }
+
+  /**
+   * Computes the key under which the instrumented form of the given class bytes is stored.
+   */
+  public String keyFor(byte[] origClassBytes) {
+    return Hashing.sha1().hashBytes(origClassBytes).toString();
+  }
+
+  /**
+   * @return The cached instrumented bytes, or null if there is no usable entry.
+   */
+  public byte[] get(String key) {
+    if (directory == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    Path file = directory.resolve(key + ".class");
+    if (Files.isRegularFile(file)) {
+      try {
+        byte[] bytes = Files.readAllBytes(file);
+        hits.incrementAndGet();
+        return bytes;
+      } catch (IOException e) {
+        Logger.debug("couldn't read cached class %s: %s", file, e);
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Stores instrumented bytes. Entries are written to a temporary file and then moved into place, so
+   * concurrent JVMs never observe a partially written entry.
+   */
+  public void put(String key, byte[] instrumentedBytes) {
+    if (directory == null) {
+      return;
+    }
+    try {
+      Files.createDirectories(directory);
+      Path tmpFile = Files.createTempFile(directory, key, ".tmp");
+      try {
+        Files.write(tmpFile, instrumentedBytes);
+        Files.move(tmpFile, directory.resolve(key + ".class"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tmpFile);
+      }
+    } catch (IOException e) {
+      Logger.debug("couldn't write cached class %s: %s", key, e);
+    }
+  }
+
+  public int getHitCount() {
+    return hits.get();
+  }
+
+  public int getMissCount() {
+    return misses.get();
+  }
+
+  private static String instrumenterFingerprint() {
+    try {
+      return instrumenterFingerprint(new File(InstrumentedClassCache.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+    } catch (URISyntaxException | RuntimeException e) {
+      Logger.debug("couldn't find Robolectric's instrumentation classes: %s", e);
+      return null;
+    }
+  }
+
+  /**
+   * @param location The directory or jar containing this package's classes.
+   */
+  static String instrumenterFingerprint(File location) {
+    Hasher hasher = Hashing.sha1().newHasher().putString(readRobolectricVersion(), StandardCharsets.UTF_8);
+    String packagePath = InstrumentedClassCache.class.getPackage().getName().replace('.', '/') + '/';
+    try {
+      if (location.isDirectory()) {
+        Path packageDirectory = location.toPath().resolve(packagePath);
+        List<Path> classFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(packageDirectory, "*.class")) {
+          for (Path file : files) {
+            classFiles.add(file);
+          }
+        }
+        Collections.sort(classFiles);
+        for (Path classFile : classFiles) {
+          hasher.putString(classFile.getFileName().toString(), StandardCharsets.UTF_8).putBytes(Files.readAllBytes(classFile));
+        }
+      } else {
+        try (JarFile jarFile = new JarFile(location)) {
+          List<String> classFiles = new ArrayList<>();
+          for (JarEntry entry : Collections.list(jarFile.entries())) {
+            String name = entry.getName();
+            if (name.startsWith(packagePath) && name.endsWith(".class") && name.indexOf('/', packagePath.length()) == -1) {
+              classFiles.add(name);
+            }
+          }
+          Collections.sort(classFiles);
+          for (String classFile : classFiles) {
+            try (InputStream in = jarFile.getInputStream(jarFile.getJarEntry(classFile))) {
+              hasher.putString(classFile, StandardCharsets.UTF_8).putBytes(Util.readBytes(in));
+            }
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      Logger.debug("couldn't read Robolectric's instrumentation classes: %s", e);
+      return null;
+    }
+    return hasher.hash().toString();
+  }
+
+  private static String readRobolectricVersion() {
+    try (InputStream in = InstrumentedClassCache.class.getClassLoader().getResourceAsStream("robolectric-version.properties")) {
+      if (in != null) {
+        Properties properties = new Properties();
+        properties.load(in);
+        return properties.getProperty("robolectric.version", "unknown");
+      }
+    } catch (IOException e) {
+      Logger.debug("couldn't read Robolectric version: %s", e);
+    }
+    return "unknown";
+  }
+}
@@ -27,8 +27,10 @@ import org.objectweb.asm.tree.VarInsnNode;
 import org.robolectric.internal.Shadow;
 import org.robolectric.internal.ShadowConstants;
 import org.robolectric.internal.ShadowedObject;
+import org.robolectric.res.MappedJar;
 import org.robolectric.util.Logger;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.CallSite;
@@ -36,6 +38,7 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
@@ -45,6 +48,11 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.invoke.MethodType.methodType;
 import static org.objectweb.asm.Type.ARRAY;
@@ -54,8 +62,18 @@ import static org.robolectric.util.Util.readBytes;
 
 /**
  * Class loader that modifies the bytecode of Android classes to insert calls to Robolectric's shadow classes.
+ *
+ * The loader is parallel capable: classes are loaded under a lock per class name, so different classes can be
+ * instrumented on different threads at the same time.
+ *
+ * When every url is a local jar, such as an android-all jar, class bytes are read from a shared {@link MappedJar}, so
+ * loaders for the same SDK in different environments read from one mapping.
  */
 public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
+  static {
+    registerAsParallelCapable();
+  }
+
   private static final Type OBJECT_TYPE = Type.getType(Object.class);
   private static final Type ROBOLECTRIC_INTERNALS_TYPE = Type.getType(RobolectricInternals.class);
   private static final Type PLAN_TYPE = Type.getType(ClassHandler.Plan.class);
@@ -91,15 +109,53 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
   }
 
   private final URLClassLoader urls;
+  private final List<MappedJar> mappedJars;
   private final InstrumentationConfiguration config;
-  private final Map<String, Class> classes = new HashMap<>();
+  private final InstrumentedClassCache classCache;
+  private final PreinstrumentedJar preinstrumentedJar;
+  private final ClassLoadProfile classLoadProfile;
+  private final Map<String, Class> classes = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, TypeInfo> typeInfos = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, byte[]> preparedClasses = new ConcurrentHashMap<>();
+  private final AtomicInteger typeInfoReads = new AtomicInteger();
+  private final AtomicInteger instrumentedClassCount = new AtomicInteger();
+  private final AtomicLong instrumentationNanos = new AtomicLong();
   private final Map<String, String> classesToRemap;
   private final Set<MethodRef> methodsToIntercept;
 
   public InstrumentingClassLoader(InstrumentationConfiguration config, URL... urls) {
+    this(config, null, urls);
+  }
+
+  /**
+   * @param classCache Persistent cache for instrumented classes loaded from {@code urls}, or null.
+   */
+  public InstrumentingClassLoader(InstrumentationConfiguration config, InstrumentedClassCache classCache, URL... urls) {
+    this(config, classCache, null, urls);
+  }
+
+  /**
+   * @param classCache Persistent cache for instrumented classes loaded from {@code urls}, or null.
+   * @param preinstrumentedJar Classes from {@code urls} instrumented ahead of time with the same configuration, or null.
+   */
+  public InstrumentingClassLoader(InstrumentationConfiguration config, InstrumentedClassCache classCache, PreinstrumentedJar preinstrumentedJar, URL... urls) {
+    this(config, classCache, preinstrumentedJar, null, urls);
+  }
+
+  /**
+   * @param classCache Persistent cache for instrumented classes loaded from {@code urls}, or null.
+   * @param preinstrumentedJar Classes from {@code urls} instrumented ahead of time with the same configuration, or null.
+   * @param classLoadProfile Profile to record each acquired class in, or null.
+   */
+  public InstrumentingClassLoader(InstrumentationConfiguration config, InstrumentedClassCache classCache, PreinstrumentedJar preinstrumentedJar,
+                                  ClassLoadProfile classLoadProfile, URL... urls) {
     super(InstrumentingClassLoader.class.getClassLoader());
     this.config = config;
+    this.classCache = classCache;
+    this.preinstrumentedJar = preinstrumentedJar;
+    this.classLoadProfile = classLoadProfile;
     this.urls = new URLClassLoader(urls, null);
+    this.mappedJars = mapJars(urls);
     classesToRemap = convertToSlashes(config.classNameTranslations());
     methodsToIntercept = convertToSlashes(config.methodsToIntercept());
     for (URL url : urls) {
@@ -108,28 +164,44 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
   }
 
   @Override
-  synchronized public Class loadClass(String name) throws ClassNotFoundException {
-    Class<?> theClass = classes.get(name);
+  public Class loadClass(String name) throws ClassNotFoundException {
+    Class<?> theClass = loadedClass(name);
     if (theClass != null) {
-      if (theClass == MissingClassMarker.class) {
-        throw new ClassNotFoundException(name);
-      } else {
+      return theClass;
+    }
+
+    synchronized (getClassLoadingLock(name)) {
+      theClass = loadedClass(name);
+      if (theClass != null) {
         return theClass;
       }
-    }
 
-    try {
-      if (config.shouldAcquire(name)) {
-        theClass = findClass(name);
-      } else {
-        theClass = getParent().loadClass(name);
+      try {
+        if (config.shouldAcquire(name)) {
+          theClass = findClass(name);
+          if (classLoadProfile != null) {
+            classLoadProfile.record(name);
+          }
+        } else {
+          theClass = getParent().loadClass(name);
+        }
+      } catch (ClassNotFoundException e) {
+        classes.put(name, MissingClassMarker.class);
+        throw e;
       }
-    } catch (ClassNotFoundException e) {
-      classes.put(name, MissingClassMarker.class);
-      throw e;
+
+      classes.put(name, theClass);
+      // in case prepare() stored it after findClass looked
+      preparedClasses.remove(name);
+      return theClass;
     }
+  }
 
-    classes.put(name, theClass);
+  private Class<?> loadedClass(String name) throws ClassNotFoundException {
+    Class<?> theClass = classes.get(name);
+    if (theClass == MissingClassMarker.class) {
+      throw new ClassNotFoundException(name);
+    }
     return theClass;
   }
 
@@ -142,77 +214,255 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
     return urls.getResource(name);
   }
 
-  private InputStream getClassBytesAsStreamPreferringLocalUrls(String resName) {
-    InputStream fromUrlsClassLoader = urls.getResourceAsStream(resName);
-    if (fromUrlsClassLoader != null)  {
-      return fromUrlsClassLoader;
+  /**
+   * @return The class file's bytes from our own urls, or else from the parent, or null if neither has it.
+   */
+  private byte[] getClassBytesPreferringLocalUrls(String resName) throws IOException {
+    if (mappedJars != null) {
+      for (MappedJar mappedJar : mappedJars) {
+        byte[] bytes = mappedJar.read(resName);
+        if (bytes != null) {
+          return bytes;
+        }
+      }
+    }
+
+    InputStream fromUrlsClassLoader = mappedJars == null ? urls.getResourceAsStream(resName) : null;
+    try (InputStream classBytesStream = fromUrlsClassLoader != null ? fromUrlsClassLoader : super.getResourceAsStream(resName)) {
+      return classBytesStream == null ? null : readBytes(classBytesStream);
+    }
+  }
+
+  private boolean isInLocalUrls(String resName) {
+    if (mappedJars != null) {
+      for (MappedJar mappedJar : mappedJars) {
+        if (mappedJar.contains(resName)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return urls.findResource(resName) != null;
+  }
+
+  /**
+   * Maps our urls if they're all local jars, so class bytes can be read without going through {@link #urls}.
+   *
+   * @return The mapped jars, in the same order as {@code urls}, or null if any of them can't be mapped.
+   */
+  private static List<MappedJar> mapJars(URL[] urls) {
+    List<MappedJar> mappedJars = new ArrayList<>();
+    for (URL url : urls) {
+      if (!"file".equals(url.getProtocol()) || !url.getPath().endsWith(".jar")) {
+        return null;
+      }
+      try {
+        mappedJars.add(MappedJar.open(new File(url.toURI())));
+      } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+        Logger.debug("couldn't map %s: %s", url, e);
+        return null;
+      }
     }
-    return super.getResourceAsStream(resName);
+    return mappedJars;
   }
 
   @Override
   protected Class<?> findClass(final String className) throws ClassNotFoundException {
     if (config.shouldAcquire(className)) {
-      final byte[] origClassBytes = getByteCode(className);
+      byte[] bytes = preparedClasses.remove(className);
+      if (bytes == null) {
+        bytes = bytesToDefine(className);
+      }
+      ensurePackage(className);
+      return defineClass(className, bytes, 0, bytes.length);
+    } else {
+      throw new IllegalStateException("how did we get here? " + className);
+    }
+  }
 
-      ClassNode classNode = new ClassNode(Opcodes.ASM4) {
-        @Override
-        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
-          desc = remapParamType(desc);
-          return super.visitField(access, name, desc, signature, value);
-        }
+  /**
+   * Reads and instruments an acquired class ahead of time, without defining it, so loading it later only has to define
+   * it. Since the class isn't loaded, it isn't recorded in the {@link ClassLoadProfile} unless something loads it.
+   */
+  public void prepare(String className) throws ClassNotFoundException {
+    if (!config.shouldAcquire(className) || classes.containsKey(className) || preparedClasses.containsKey(className)) {
+      return;
+    }
+    preparedClasses.putIfAbsent(className, bytesToDefine(className));
+    // a test may have loaded the class while it was being instrumented; findClass won't be called for it again
+    if (classes.containsKey(className)) {
+      preparedClasses.remove(className);
+    }
+  }
 
-        @Override
-        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-          MethodVisitor methodVisitor = super.visitMethod(access, name, remapParams(desc), signature, exceptions);
-          return new JSRInlinerAdapter(methodVisitor, access, name, desc, signature, exceptions);
-        }
-      };
+  /**
+   * Drops the classes {@link #prepare(String)} has prepared which haven't been loaded yet, so classes earlier runs used
+   * but this one doesn't don't keep their bytes for the life of the loader.
+   */
+  public void discardPreparedClasses() {
+    preparedClasses.clear();
+  }
 
-      final ClassReader classReader = new ClassReader(origClassBytes);
-      classReader.accept(classNode, 0);
+  private byte[] bytesToDefine(String className) throws ClassNotFoundException {
+    if (preinstrumentedJar != null) {
+      byte[] preinstrumentedBytes = preinstrumentedJar.get(className);
+      if (preinstrumentedBytes != null) {
+        return preinstrumentedBytes;
+      }
+    }
 
-      classNode.interfaces.add(Type.getInternalName(ShadowedObject.class));
+    final byte[] origClassBytes = getByteCode(className);
 
-      try {
-        byte[] bytes;
-        ClassInfo classInfo = new ClassInfo(className, classNode);
-        if (config.shouldInstrument(classInfo)) {
-          bytes = getInstrumentedBytes(classNode, config.containsStubs(classInfo));
-        } else {
-          bytes = origClassBytes;
-        }
-        ensurePackage(className);
-        return defineClass(className, bytes, 0, bytes.length);
-      } catch (Exception e) {
-        throw new ClassNotFoundException("couldn't load " + className, e);
-      } catch (OutOfMemoryError e) {
-        System.err.println("[ERROR] couldn't load " + className + " in " + this);
-        throw e;
+    // Only classes from our own urls are cached. Their instrumentation also reads their superclasses,
+    // which may come from the parent loader; for android-all those are the JDK's, which is also part
+    // of the cache's key.
+    String cacheKey = null;
+    if (classCache != null && isInLocalUrls(className.replace('.', '/') + ".class")) {
+      cacheKey = classCache.keyFor(origClassBytes);
+      byte[] cachedBytes = classCache.get(cacheKey);
+      if (cachedBytes != null) {
+        return cachedBytes;
       }
-    } else {
-      throw new IllegalStateException("how did we get here? " + className);
     }
+
+    try {
+      byte[] bytes = transform(className, origClassBytes);
+      if (cacheKey != null) {
+        classCache.put(cacheKey, bytes);
+      }
+      return bytes;
+    } catch (Exception e) {
+      throw new ClassNotFoundException("couldn't load " + className, e);
+    } catch (OutOfMemoryError e) {
+      System.err.println("[ERROR] couldn't load " + className + " in " + this);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the bytes to define for an acquired class: instrumented if the configuration says it should be, and
+   * otherwise the original bytes.
+   */
+  byte[] transform(String className, byte[] origClassBytes) throws ClassNotFoundException {
+    ClassNode classNode = new ClassNode(Opcodes.ASM4) {
+      @Override
+      public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+        desc = remapParamType(desc);
+        return super.visitField(access, name, desc, signature, value);
+      }
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        MethodVisitor methodVisitor = super.visitMethod(access, name, remapParams(desc), signature, exceptions);
+        return new JSRInlinerAdapter(methodVisitor, access, name, desc, signature, exceptions);
+      }
+    };
+
+    final ClassReader classReader = new ClassReader(origClassBytes);
+    classReader.accept(classNode, 0);
+
+    classNode.interfaces.add(Type.getInternalName(ShadowedObject.class));
+
+    ClassInfo classInfo = new ClassInfo(className, classNode);
+    if (!config.shouldInstrument(classInfo)) {
+      return origClassBytes;
+    }
+    long startNanos = System.nanoTime();
+    byte[] bytes = getInstrumentedBytes(classNode, config.containsStubs(classInfo));
+    long elapsedNanos = System.nanoTime() - startNanos;
+    instrumentedClassCount.incrementAndGet();
+    instrumentationNanos.addAndGet(elapsedNanos);
+    Logger.debug("Instrumented %s in %.2f ms", className, elapsedNanos / 1e6);
+    return bytes;
   }
 
   protected byte[] getByteCode(String className) throws ClassNotFoundException {
     String classFilename = className.replace('.', '/') + ".class";
-    try (InputStream classBytesStream = getClassBytesAsStreamPreferringLocalUrls(classFilename)) {
-      if (classBytesStream == null) throw new ClassNotFoundException(className);
+    try {
+      byte[] classBytes = getClassBytesPreferringLocalUrls(classFilename);
+      if (classBytes == null) throw new ClassNotFoundException(className);
 
-      return readBytes(classBytesStream);
+      return classBytes;
     } catch (IOException e) {
       throw new ClassNotFoundException("couldn't load " + className, e);
     }
   }
 
+  /**
+   * @return The number of classes this loader has instrumented, not counting those found in the persistent cache or a
+   * pre-instrumented jar.
+   */
+  public int getInstrumentedClassCount() {
+    return instrumentedClassCount.get();
+  }
+
+  /**
+   * @return The total time this loader has spent instrumenting classes.
+   */
+  public long getInstrumentationTime(TimeUnit unit) {
+    return unit.convert(instrumentationNanos.get(), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return The number of class files read to find class hierarchies while instrumenting.
+   */
+  int getTypeInfoReadCount() {
+    return typeInfoReads.get();
+  }
+
+  /**
+   * Returns the hierarchy information for a type, reading its class file only the first time it's needed.
+   */
+  private TypeInfo typeInfo(String type) throws IOException {
+    TypeInfo typeInfo = typeInfos.get(type);
+    if (typeInfo == null) {
+      typeInfoReads.incrementAndGet();
+      byte[] classBytes = getClassBytesPreferringLocalUrls(type + ".class");
+      if (classBytes == null) {
+        typeInfo = TypeInfo.MISSING;
+      } else {
+        ClassReader classReader = new ClassReader(classBytes);
+        typeInfo = new TypeInfo(classReader.getAccess(), classReader.getSuperName(), classReader.getInterfaces());
+      }
+      TypeInfo existing = typeInfos.putIfAbsent(type, typeInfo);
+      if (existing != null) {
+        typeInfo = existing;
+      }
+    }
+    if (typeInfo == TypeInfo.MISSING) {
+      throw new IOException("Class not found: " + type);
+    }
+    return typeInfo;
+  }
+
+  /**
+   * The parts of a class file needed to find a class's ancestors.
+   */
+  private static class TypeInfo {
+    private static final TypeInfo MISSING = new TypeInfo(0, null, new String[0]);
+
+    private final int access;
+    private final String superName;
+    private final String[] interfaces;
+
+    TypeInfo(int access, String superName, String[] interfaces) {
+      this.access = access;
+      this.superName = superName;
+      this.interfaces = interfaces;
+    }
+  }
+
   private void ensurePackage(final String className) {
     int lastDotIndex = className.lastIndexOf('.');
     if (lastDotIndex != -1) {
       String pckgName = className.substring(0, lastDotIndex);
       Package pckg = getPackage(pckgName);
       if (pckg == null) {
-        definePackage(pckgName, null, null, null, null, null, null, null);
+        try {
+          definePackage(pckgName, null, null, null, null, null, null, null);
+        } catch (IllegalArgumentException e) {
+          // another thread defined it first
+        }
       }
     }
   }
@@ -790,6 +1040,7 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
   /**
    * ClassWriter implementation that verifies classes by comparing type information obtained
    * from loading the classes as resources. This was taken from the ASM ClassWriter unit tests.
+   * Type information is shared by every class the loader instruments.
    */
   private class InstrumentingClassWriter extends ClassWriter {
 
@@ -819,20 +1070,20 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
     @Override
     protected String getCommonSuperClass(final String type1, final String type2) {
       try {
-        ClassReader info1 = typeInfo(type1);
-        ClassReader info2 = typeInfo(type2);
-        if ((info1.getAccess() & Opcodes.ACC_INTERFACE) != 0) {
+        TypeInfo info1 = typeInfo(type1);
+        TypeInfo info2 = typeInfo(type2);
+        if ((info1.access & Opcodes.ACC_INTERFACE) != 0) {
           if (typeImplements(type2, info2, type1)) {
             return type1;
           }
-          if ((info2.getAccess() & Opcodes.ACC_INTERFACE) != 0) {
+          if ((info2.access & Opcodes.ACC_INTERFACE) != 0) {
             if (typeImplements(type1, info1, type2)) {
               return type2;
             }
           }
           return "java/lang/Object";
         }
-        if ((info2.getAccess() & Opcodes.ACC_INTERFACE) != 0) {
+        if ((info2.access & Opcodes.ACC_INTERFACE) != 0) {
           if (typeImplements(type1, info1, type2)) {
             return type2;
           } else {
@@ -867,19 +1118,19 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
       }
     }
 
-    private StringBuilder typeAncestors(String type, ClassReader info) throws IOException {
+    private StringBuilder typeAncestors(String type, TypeInfo info) throws IOException {
       StringBuilder b = new StringBuilder();
       while (!"java/lang/Object".equals(type)) {
         b.append(';').append(type);
-        type = info.getSuperName();
+        type = info.superName;
         info = typeInfo(type);
       }
       return b;
     }
 
-    private boolean typeImplements(String type, ClassReader info, String itf) throws IOException {
+    private boolean typeImplements(String type, TypeInfo info, String itf) throws IOException {
       while (!"java/lang/Object".equals(type)) {
-        String[] itfs = info.getInterfaces();
+        String[] itfs = info.interfaces;
         for (String itf2 : itfs) {
           if (itf2.equals(itf)) {
             return true;
@@ -890,17 +1141,11 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
             return true;
           }
         }
-        type = info.getSuperName();
+        type = info.superName;
         info = typeInfo(type);
       }
       return false;
     }
-
-    private ClassReader typeInfo(final String type) throws IOException {
-      try (InputStream is = getClassBytesAsStreamPreferringLocalUrls(type + ".class")) {
-        return new ClassReader(is);
-      }
-    }
   }
 
   /**
@@ -0,0 +1,192 @@
+package org.robolectric.internal.bytecode;
+
+import com.google.common.hash.Hashing;
+import org.robolectric.RoboSettings;
+import org.robolectric.res.MappedJar;
+import org.robolectric.util.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.robolectric.util.Util.readBytes;
+
+/**
+ * A jar of android-all classes instrumented ahead of time, so tests don't have to instrument them as they're loaded.
+ *
+ * Jars are made by {@link #main(String[])}, which the {@code preinstrumentAndroidAll} Gradle task runs for each SDK,
+ * and are looked for in {@link RoboSettings#getPreinstrumentedJarDirectory()}. A jar is only used if it was made from
+ * the same android-all jar with the same {@link InstrumentationConfiguration}, instrumentation code, JDK and
+ * invokedynamic setting; classes from other jars, such as the app's and its libraries', are instrumented as they're
+ * loaded as usual. Jars are read through the shared {@link MappedJar} for their file.
+ */
+public class PreinstrumentedJar {
+  private static final Attributes.Name FINGERPRINT = new Attributes.Name("Robolectric-Instrumentation-Fingerprint");
+
+  private final MappedJar jar;
+
+  private PreinstrumentedJar(MappedJar jar) {
+    this.jar = jar;
+  }
+
+  /**
+   * @return The class's bytes as they should be defined, or null if the jar doesn't contain it.
+   */
+  public byte[] get(String className) {
+    try {
+      return jar.read(className.replace('.', '/') + ".class");
+    } catch (IOException e) {
+      Logger.debug("couldn't read %s from %s: %s", className, jar.getFile(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Opens the pre-instrumented jar for an android-all jar, if there is a usable one in the given directory.
+   *
+   * @return The pre-instrumented jar, or null if there isn't one made from {@code androidAllJarUrl} with {@code config}.
+   */
+  public static PreinstrumentedJar find(File directory, InstrumentationConfiguration config, URL androidAllJarUrl) {
+    File androidAllJar;
+    try {
+      androidAllJar = new File(androidAllJarUrl.toURI());
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      return null;
+    }
+
+    File file = new File(directory, fileNameFor(androidAllJar));
+    String expectedFingerprint = fingerprint(config, androidAllJar);
+    if (!file.isFile() || expectedFingerprint == null) {
+      return null;
+    }
+    try {
+      MappedJar jar = MappedJar.open(file);
+      byte[] manifestBytes = jar.read(JarFile.MANIFEST_NAME);
+      String fingerprint = manifestBytes == null
+          ? null : new Manifest(new ByteArrayInputStream(manifestBytes)).getMainAttributes().getValue(FINGERPRINT);
+      if (expectedFingerprint.equals(fingerprint)) {
+        Logger.debug("Using pre-instrumented classes from %s", file);
+        return new PreinstrumentedJar(jar);
+      }
+      Logger.debug("Ignoring %s, which was made with a different configuration", file);
+    } catch (IOException e) {
+      Logger.debug("couldn't open %s: %s", file, e);
+    }
+    return null;
+  }
+
+  /**
+   * Instruments every class from an android-all jar which {@code config} acquires, and writes them to a jar in the
+   * given directory.
+   *
+   * @return The pre-instrumented jar's file.
+   */
+  public static File write(File androidAllJar, File directory, InstrumentationConfiguration config) throws IOException {
+    String fingerprint = fingerprint(config, androidAllJar);
+    if (fingerprint == null) {
+      throw new IOException("couldn't read Robolectric's instrumentation classes to fingerprint them");
+    }
+    InstrumentingClassLoader classLoader = new InstrumentingClassLoader(config, androidAllJar.toURI().toURL());
+
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(FINGERPRINT, fingerprint);
+
+    Path file = new File(directory, fileNameFor(androidAllJar)).toPath();
+    Files.createDirectories(file.getParent());
+    Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      int classCount = 0;
+      try (JarFile in = new JarFile(androidAllJar);
+           JarOutputStream out = new JarOutputStream(new FileOutputStream(tmpFile.toFile()), manifest)) {
+        Enumeration<JarEntry> entries = in.entries();
+        while (entries.hasMoreElements()) {
+          JarEntry entry = entries.nextElement();
+          String name = entry.getName();
+          if (!name.endsWith(".class")) {
+            continue;
+          }
+          String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+          if (!config.shouldAcquire(className)) {
+            continue;
+          }
+
+          byte[] bytes;
+          try (InputStream classIn = in.getInputStream(entry)) {
+            bytes = classLoader.transform(className, readBytes(classIn));
+          } catch (ClassNotFoundException | RuntimeException e) {
+            // it'll be instrumented when it's loaded instead
+            Logger.debug("couldn't instrument %s: %s", className, e);
+            continue;
+          }
+          out.putNextEntry(new JarEntry(name));
+          out.write(bytes);
+          out.closeEntry();
+          classCount++;
+        }
+      }
+      Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      Logger.info("Wrote %d classes to %s in %d ms", classCount, file,
+          classLoader.getInstrumentationTime(TimeUnit.MILLISECONDS));
+    } finally {
+      Files.deleteIfExists(tmpFile);
+    }
+    return file.toFile();
+  }
+
+  static String fileNameFor(File androidAllJar) {
+    String name = androidAllJar.getName();
+    if (name.endsWith(".jar")) {
+      name = name.substring(0, name.length() - ".jar".length());
+    }
+    return name + "-instrumented.jar";
+  }
+
+  /**
+   * Android-all jars are released artifacts which never change, so a jar is identified by its name and size.
+   *
+   * @return The fingerprint, or null if the instrumentation code can't be identified.
+   */
+  private static String fingerprint(InstrumentationConfiguration config, File androidAllJar) {
+    if (InstrumentedClassCache.INSTRUMENTER_FINGERPRINT == null) {
+      return null;
+    }
+    return Hashing.sha1().newHasher()
+        .putString(InstrumentedClassCache.INSTRUMENTER_FINGERPRINT, StandardCharsets.UTF_8)
+        .putString(InstrumentedClassCache.JDK, StandardCharsets.UTF_8)
+        .putBoolean(InvokeDynamic.ENABLED)
+        .putString(config.fingerprint(), StandardCharsets.UTF_8)
+        .putString(androidAllJar.getName(), StandardCharsets.UTF_8)
+        .putLong(androidAllJar.length())
+        .hash().toString();
+  }
+
+  /**
+   * Writes the pre-instrumented jar for an android-all jar, using the default {@link InstrumentationConfiguration}.
+   *
+   * Usage: {@code PreinstrumentedJar <android-all jar> <output directory>}
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: " + PreinstrumentedJar.class.getName() + " <android-all jar> <output directory>");
+      System.exit(1);
+    }
+    File file = write(new File(args[0]), new File(args[1]), InstrumentationConfiguration.newBuilder().build());
+    System.out.println(file);
+  }
+}
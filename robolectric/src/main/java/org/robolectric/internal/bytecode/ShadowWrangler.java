@@ -14,6 +14,7 @@ import org.robolectric.internal.ShadowConstants;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.lang.invoke.MethodHandles.constant;
 import static java.lang.invoke.MethodHandles.dropArguments;
@@ -47,17 +48,28 @@ public class ShadowWrangler implements ClassHandler {
   private static final ShadowConfig NO_SHADOW_CONFIG = new ShadowConfig(Object.class.getName(), true, false, false, -1, -1);
   static final Object NO_SHADOW = new Object();
   private static final MethodHandle NO_SHADOW_HANDLE = constant(Object.class, NO_SHADOW);
+  private static final Object[] NO_PARAMS = new Object[0];
   private final ShadowMap shadowMap;
   private final Interceptors interceptors;
   private final int apiLevel;
   private final Map<Class, MetaShadow> metaShadowMap = new HashMap<>();
-  private final Map<String, Plan> planCache =
-      Collections.synchronizedMap(new LinkedHashMap<String, Plan>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, Plan> eldest) {
-          return size() > 500;
-        }
-      });
+  // Stands in for CALL_REAL_CODE_PLAN (null) in plan tables, which can't hold nulls.
+  private static final Plan CALL_REAL_CODE_MARKER = new Plan() {
+    @Override
+    public Object run(Object instance, Object roboData, Object[] params) throws Exception {
+      throw new IllegalStateException("marker plan should never be run");
+    }
+
+    @Override
+    public String describe() {
+      return "call real code";
+    }
+  };
+  private final ClassValue<ConcurrentMap<String, Plan>> planTables = new ClassValue<ConcurrentMap<String, Plan>>() {
+    @Override protected ConcurrentMap<String, Plan> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
   private final Map<Class, ShadowConfig> shadowConfigCache = new ConcurrentHashMap<>();
   private final ClassValue<ShadowConfig> shadowConfigs = new ClassValue<ShadowConfig>() {
     @Override protected ShadowConfig computeValue(Class<?> type) {
@@ -129,12 +141,15 @@ public class ShadowWrangler implements ClassHandler {
 
   @Override
   public Plan methodInvoked(String signature, boolean isStatic, Class<?> theClass) {
-    if (planCache.containsKey(signature)) {
-      return planCache.get(signature);
-    }
-    Plan plan = calculatePlan(signature, isStatic, theClass);
-    planCache.put(signature, plan);
-    return plan;
+    ConcurrentMap<String, Plan> planTable = planTables.get(theClass);
+    Plan plan = planTable.get(signature);
+    if (plan == null) {
+      plan = calculatePlan(signature, isStatic, theClass);
+      if (plan == CALL_REAL_CODE_PLAN) plan = CALL_REAL_CODE_MARKER;
+      Plan existing = planTable.putIfAbsent(signature, plan);
+      if (existing != null) plan = existing;
+    }
+    return plan == CALL_REAL_CODE_MARKER ? CALL_REAL_CODE_PLAN : plan;
   }
 
   @Override public MethodHandle findShadowMethod(Class<?> caller, String name, MethodType type,
@@ -335,7 +350,8 @@ public class ShadowWrangler implements ClassHandler {
               stackTraceElement.getFileName(), stackTraceElement.getLineNumber());
         }
 
-        if (className.startsWith("sun.reflect.") || className.startsWith("java.lang.reflect.")) {
+        if (className.startsWith("sun.reflect.") || className.startsWith("java.lang.reflect.")
+            || className.startsWith("java.lang.invoke.")) {
           continue;
         }
 
@@ -448,24 +464,47 @@ public class ShadowWrangler implements ClassHandler {
   }
 
   private static class ShadowMethodPlan implements Plan {
+    private static final MethodType PLAN_TYPE = methodType(Object.class, Object.class, Object[].class);
+
     private final Method shadowMethod;
+    private final MethodHandle invoker;
 
     public ShadowMethodPlan(Method shadowMethod) {
       this.shadowMethod = shadowMethod;
+      this.invoker = bindInvoker(shadowMethod);
+    }
+
+    /**
+     * Adapts the shadow method to {@code (Object shadow, Object[] params)Object} so it can be
+     * called with {@link MethodHandle#invokeExact}, avoiding the per-call access checks and
+     * exception wrapping of {@link Method#invoke}.
+     */
+    private static MethodHandle bindInvoker(Method shadowMethod) {
+      shadowMethod.setAccessible(true);
+      MethodHandle mh;
+      try {
+        mh = LOOKUP.unreflect(shadowMethod);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(e);
+      }
+
+      if (Modifier.isStatic(shadowMethod.getModifiers())) {
+        mh = dropArguments(mh, 0, Object.class);
+      }
+      mh = mh.asSpreader(Object[].class, shadowMethod.getParameterTypes().length);
+      return mh.asType(PLAN_TYPE);
     }
 
     @Override
     public Object run(Object instance, Object roboData, Object[] params) throws Throwable {
       //noinspection UnnecessaryLocalVariable
       Object shadow = roboData;
-      try {
-        return shadowMethod.invoke(shadow, params);
-      } catch (IllegalArgumentException e) {
+      if (shadow != null && !Modifier.isStatic(shadowMethod.getModifiers())
+          && !shadowMethod.getDeclaringClass().isInstance(shadow)) {
         throw new IllegalArgumentException("attempted to invoke " + shadowMethod
-            + (shadow == null ? "" : " on instance of " + shadow.getClass() + ", but " + shadow.getClass().getSimpleName() + " doesn't extend " + shadowMethod.getDeclaringClass().getSimpleName()));
-      } catch (InvocationTargetException e) {
-        throw e.getCause();
+            + " on instance of " + shadow.getClass() + ", but " + shadow.getClass().getSimpleName() + " doesn't extend " + shadowMethod.getDeclaringClass().getSimpleName());
       }
+      return (Object) invoker.invokeExact(shadow, params == null ? NO_PARAMS : params);
     }
 
     @Override
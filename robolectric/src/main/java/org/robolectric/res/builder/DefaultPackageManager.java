@@ -111,6 +111,10 @@ public class DefaultPackageManager extends StubPackageManager implements Robolec
   private Map<Pair<String, Integer>, Drawable> drawables = new LinkedHashMap<>();
   private boolean queryIntentImplicitly = false;
   private HashMap<String, Integer> applicationEnabledSettingMap = new HashMap<>();
+  // built from the manifests on the first implicit query, and dropped whenever a manifest is added
+  private IntentResolver<ManifestComponent> activityResolver;
+  private IntentResolver<ManifestComponent> serviceResolver;
+  private IntentResolver<ManifestComponent> receiverResolver;
 
   @Override
   public PackageInstaller getPackageInstaller() {
@@ -290,12 +294,44 @@ public class DefaultPackageManager extends StubPackageManager implements Robolec
 
   @Override
   public List<ResolveInfo> queryIntentServices(Intent intent, int flags) {
-    return queryIntent(intent, flags);
+    List<ResolveInfo> resolveInfoList = queryIntent(intent, flags);
+
+    if (resolveInfoList.isEmpty() && isQueryIntentImplicitly()) {
+      buildIntentResolvers();
+      resolveInfoList = new ArrayList<>();
+      for (ManifestComponent service : serviceResolver.query(intent)) {
+        ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.resolvePackageName = service.packageName;
+        resolveInfo.serviceInfo = new ServiceInfo();
+        resolveInfo.serviceInfo.packageName = service.packageName;
+        resolveInfo.serviceInfo.name = service.className;
+        resolveInfo.serviceInfo.permission = service.permission;
+        resolveInfoList.add(resolveInfo);
+      }
+    }
+
+    return resolveInfoList;
   }
 
   @Override
   public List<ResolveInfo> queryBroadcastReceivers(Intent intent, int flags) {
-    return queryIntent(intent, flags);
+    List<ResolveInfo> resolveInfoList = queryIntent(intent, flags);
+
+    if (resolveInfoList.isEmpty() && isQueryIntentImplicitly()) {
+      buildIntentResolvers();
+      resolveInfoList = new ArrayList<>();
+      for (ManifestComponent receiver : receiverResolver.query(intent)) {
+        ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.resolvePackageName = receiver.packageName;
+        resolveInfo.activityInfo = new ActivityInfo();
+        resolveInfo.activityInfo.packageName = receiver.packageName;
+        resolveInfo.activityInfo.name = receiver.className;
+        resolveInfo.activityInfo.permission = receiver.permission;
+        resolveInfoList.add(resolveInfo);
+      }
+    }
+
+    return resolveInfoList;
   }
 
   @Override
@@ -498,6 +534,7 @@ public class DefaultPackageManager extends StubPackageManager implements Robolec
   @Override
   public void addManifest(AndroidManifest androidManifest, int labelRes) {
     androidManifests.put(androidManifest.getPackageName(), androidManifest);
+    activityResolver = null;
 
     PackageInfo packageInfo = new PackageInfo();
     packageInfo.packageName = androidManifest.getPackageName();
@@ -627,8 +664,29 @@ public class DefaultPackageManager extends StubPackageManager implements Robolec
   }
 
   private List<ResolveInfo> queryImplicitIntent(Intent intent, int flags) {
+    buildIntentResolvers();
     List<ResolveInfo> resolveInfoList = new ArrayList<>();
 
+    for (ManifestComponent activity : activityResolver.query(intent)) {
+      ResolveInfo resolveInfo = new ResolveInfo();
+      resolveInfo.resolvePackageName = activity.packageName;
+      resolveInfo.activityInfo = new ActivityInfo();
+      resolveInfo.activityInfo.targetActivity = activity.className;
+
+      resolveInfoList.add(resolveInfo);
+    }
+
+    return resolveInfoList;
+  }
+
+  private void buildIntentResolvers() {
+    if (activityResolver != null) {
+      return;
+    }
+
+    activityResolver = new IntentResolver<>();
+    serviceResolver = new IntentResolver<>();
+    receiverResolver = new IntentResolver<>();
     for (Map.Entry<String, AndroidManifest> androidManifest : androidManifests.entrySet()) {
       String packageName = androidManifest.getKey();
       AndroidManifest appManifest = androidManifest.getValue();
@@ -640,77 +698,80 @@ public class DefaultPackageManager extends StubPackageManager implements Robolec
           activityName = activityData.getTargetActivityName();
         }
 
-        if (matchIntentFilter(activityData, intent)) {
-          ResolveInfo resolveInfo = new ResolveInfo();
-          resolveInfo.resolvePackageName = packageName;
-          resolveInfo.activityInfo = new ActivityInfo();
-          resolveInfo.activityInfo.targetActivity = activityName;
-
-          resolveInfoList.add(resolveInfo);
+        List<IntentFilter> intentFilters = new ArrayList<>();
+        for (IntentFilterData intentFilterData : activityData.getIntentFilters()) {
+          intentFilters.add(toIntentFilter(intentFilterData));
         }
+        activityResolver.add(new ManifestComponent(packageName, activityName, activityData.getPermission()), intentFilters);
+      }
+
+      for (ServiceData serviceData : appManifest.getServices()) {
+        serviceResolver.add(new ManifestComponent(packageName, serviceData.getClassName(), serviceData.getPermission()),
+            Collections.singletonList(toIntentFilter(serviceData.getActions())));
+      }
+
+      for (BroadcastReceiverData receiverData : appManifest.getBroadcastReceivers()) {
+        receiverResolver.add(new ManifestComponent(packageName, receiverData.getClassName(), receiverData.getPermission()),
+            Collections.singletonList(toIntentFilter(receiverData.getActions())));
       }
     }
+  }
 
-    return resolveInfoList;
+  private static IntentFilter toIntentFilter(List<String> actions) {
+    IntentFilter intentFilter = new IntentFilter();
+    for (String action : actions) {
+      intentFilter.addAction(action);
+    }
+    return intentFilter;
   }
 
-  private boolean matchIntentFilter(ActivityData activityData, Intent intent) {
-    for (IntentFilterData intentFilterData : activityData.getIntentFilters()) {
-      List<String> actionList = intentFilterData.getActions();
-      List<String> categoryList = intentFilterData.getCategories();
-      IntentFilter intentFilter = new IntentFilter();
+  private static IntentFilter toIntentFilter(IntentFilterData intentFilterData) {
+    IntentFilter intentFilter = toIntentFilter(intentFilterData.getActions());
 
-      for (String action : actionList) {
-        intentFilter.addAction(action);
-      }
+    for (String category : intentFilterData.getCategories()) {
+      intentFilter.addCategory(category);
+    }
 
-      for (String category : categoryList) {
-        intentFilter.addCategory(category);
-      }
+    for (String scheme : intentFilterData.getSchemes()) {
+      intentFilter.addDataScheme(scheme);
+    }
 
-      for (String scheme : intentFilterData.getSchemes()) {
-        intentFilter.addDataScheme(scheme);
+    for (String mimeType : intentFilterData.getMimeTypes()) {
+      try {
+        intentFilter.addDataType(mimeType);
+      } catch (IntentFilter.MalformedMimeTypeException ex) {
+        throw new RuntimeException(ex);
       }
+    }
 
-      for (String mimeType : intentFilterData.getMimeTypes()) {
-        try {
-          intentFilter.addDataType(mimeType);
-        } catch (IntentFilter.MalformedMimeTypeException ex) {
-          throw new RuntimeException(ex);
-        }
-      }
+    for (String path : intentFilterData.getPaths()) {
+      intentFilter.addDataPath(path, PatternMatcher.PATTERN_LITERAL);
+    }
 
-      for (String path : intentFilterData.getPaths()) {
-        intentFilter.addDataPath(path, PatternMatcher.PATTERN_LITERAL);
-      }
+    for (String pathPattern : intentFilterData.getPathPatterns()) {
+      intentFilter.addDataPath(pathPattern, PatternMatcher.PATTERN_SIMPLE_GLOB);
+    }
 
-      for (String pathPattern : intentFilterData.getPathPatterns()) {
-        intentFilter.addDataPath(pathPattern, PatternMatcher.PATTERN_SIMPLE_GLOB);
-      }
+    for (String pathPrefix : intentFilterData.getPathPrefixes()) {
+      intentFilter.addDataPath(pathPrefix, PatternMatcher.PATTERN_PREFIX);
+    }
 
-      for (String pathPrefix : intentFilterData.getPathPrefixes()) {
-        intentFilter.addDataPath(pathPrefix, PatternMatcher.PATTERN_PREFIX);
-      }
+    for (IntentFilterData.DataAuthority authority : intentFilterData.getAuthorities()) {
+      intentFilter.addDataAuthority(authority.getHost(), authority.getPort());
+    }
+    return intentFilter;
+  }
 
-      for (IntentFilterData.DataAuthority authority : intentFilterData.getAuthorities()) {
-        intentFilter.addDataAuthority(authority.getHost(), authority.getPort());
-      }
+  private static class ManifestComponent {
+    private final String packageName;
+    private final String className;
+    private final String permission;
 
-      // match action
-      boolean matchActionResult = intentFilter.matchAction(intent.getAction());
-      // match category
-      String matchCategoriesResult = intentFilter.matchCategories(intent.getCategories());
-      // match data
-
-      int matchResult = intentFilter.matchData(intent.getType(),
-          (intent.getData() != null ? intent.getData().getScheme() : null),
-          intent.getData());
-      if (matchActionResult && (matchCategoriesResult == null) &&
-          (matchResult != IntentFilter.NO_MATCH_DATA && matchResult != IntentFilter.NO_MATCH_TYPE)){
-        return true;
-      }
+    ManifestComponent(String packageName, String className, String permission) {
+      this.packageName = packageName;
+      this.className = className;
+      this.permission = permission;
     }
-    return false;
   }
 
   @Override
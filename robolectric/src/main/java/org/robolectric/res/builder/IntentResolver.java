@@ -0,0 +1,123 @@
+package org.robolectric.res.builder;
+
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches intents against the intent filters of a set of components, like the platform's IntentResolver.
+ *
+ * Filters are indexed by action and, if they declare any, by data scheme, so a query only checks the filters which
+ * could possibly match rather than every filter of every component.
+ */
+class IntentResolver<T> {
+  private final Map<String, List<Entry<T>>> byAction = new HashMap<>();
+  private final Map<String, Map<String, List<Entry<T>>>> byActionAndScheme = new HashMap<>();
+  private int nextOrder;
+
+  /**
+   * Adds a component and its filters. Query results are in the order components were added.
+   */
+  public void add(T component, List<IntentFilter> filters) {
+    int order = nextOrder++;
+    for (IntentFilter filter : filters) {
+      Entry<T> entry = new Entry<>(component, filter, order);
+      for (int i = 0; i < filter.countActions(); i++) {
+        String action = filter.getAction(i);
+        if (filter.countDataSchemes() == 0) {
+          entriesFor(byAction, action).add(entry);
+        } else {
+          Map<String, List<Entry<T>>> byScheme = byActionAndScheme.get(action);
+          if (byScheme == null) {
+            byScheme = new HashMap<>();
+            byActionAndScheme.put(action, byScheme);
+          }
+          for (int j = 0; j < filter.countDataSchemes(); j++) {
+            entriesFor(byScheme, filter.getDataScheme(j)).add(entry);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return Each component with a filter matching the intent, once.
+   */
+  public List<T> query(Intent intent) {
+    String action = intent.getAction();
+    if (action == null) {
+      return Collections.emptyList();
+    }
+
+    List<Entry<T>> candidates = new ArrayList<>();
+    List<Entry<T>> schemeless = byAction.get(action);
+    if (schemeless != null) {
+      candidates.addAll(schemeless);
+    }
+    Map<String, List<Entry<T>>> byScheme = byActionAndScheme.get(action);
+    if (byScheme != null) {
+      String scheme = intent.getScheme();
+      List<Entry<T>> withScheme = byScheme.get(scheme == null ? "" : scheme);
+      if (withScheme != null) {
+        candidates.addAll(withScheme);
+      }
+    }
+    if (candidates.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Collections.sort(candidates, ORDER);
+
+    List<T> result = new ArrayList<>();
+    int lastOrder = -1;
+    for (Entry<T> candidate : candidates) {
+      if (candidate.order != lastOrder && matches(candidate.filter, intent)) {
+        result.add(candidate.component);
+        lastOrder = candidate.order;
+      }
+    }
+    return result;
+  }
+
+  private static boolean matches(IntentFilter filter, Intent intent) {
+    Uri data = intent.getData();
+    int matchResult = filter.matchData(intent.getType(), data != null ? data.getScheme() : null, data);
+    return filter.matchAction(intent.getAction())
+        && filter.matchCategories(intent.getCategories()) == null
+        && matchResult != IntentFilter.NO_MATCH_DATA && matchResult != IntentFilter.NO_MATCH_TYPE;
+  }
+
+  private static <T> List<Entry<T>> entriesFor(Map<String, List<Entry<T>>> map, String key) {
+    List<Entry<T>> entries = map.get(key);
+    if (entries == null) {
+      entries = new ArrayList<>();
+      map.put(key, entries);
+    }
+    return entries;
+  }
+
+  private static final Comparator<Entry<?>> ORDER = new Comparator<Entry<?>>() {
+    @Override
+    public int compare(Entry<?> e1, Entry<?> e2) {
+      return e1.order < e2.order ? -1 : (e1.order == e2.order ? 0 : 1);
+    }
+  };
+
+  private static class Entry<T> {
+    private final T component;
+    private final IntentFilter filter;
+    private final int order;
+
+    Entry(T component, IntentFilter filter, int order) {
+      this.component = component;
+      this.filter = filter;
+      this.order = order;
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package org.robolectric;
 
 import android.os.Build;
+import android.view.View;
+import android.widget.TextView;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -10,6 +12,8 @@ import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
 import org.robolectric.RobolectricTestRunner.RobolectricFrameworkMethod;
 import org.robolectric.annotation.Config;
+import org.robolectric.annotation.Implements;
+import org.robolectric.internal.bytecode.RobolectricInternals;
 import org.robolectric.internal.ParallelUniverse;
 import org.robolectric.internal.ParallelUniverseInterface;
 import org.robolectric.internal.SdkConfig;
@@ -25,6 +29,8 @@ import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.robolectric.util.ReflectionHelpers.ClassParameter.from;
 import static org.robolectric.util.ReflectionHelpers.callConstructor;
+import static org.robolectric.util.ReflectionHelpers.getStaticField;
+import static org.robolectric.util.ReflectionHelpers.loadClass;
 import static org.robolectric.util.ReflectionHelpers.newInstance;
 
 public class RobolectricTestRunnerTest {
@@ -74,6 +80,29 @@ public class RobolectricTestRunnerTest {
     );
   }
 
+  @Test
+  public void testsWithTheSameShadowsShouldShareAClassHandler() throws Exception {
+    final List<Object> defaultHandlers = new ArrayList<>();
+    final List<Object> customHandlers = new ArrayList<>();
+    RobolectricTestRunner runner = new RobolectricTestRunner(TestWithCustomShadows.class) {
+      @Override
+      protected void configureShadows(SdkEnvironment sdkEnvironment, Config config) {
+        super.configureShadows(sdkEnvironment, config);
+        Class<?> robolectricInternals = loadClass(sdkEnvironment.getRobolectricClassLoader(), RobolectricInternals.class.getName());
+        Object classHandler = getStaticField(robolectricInternals, "classHandler");
+        (config.shadows().length == 1 ? defaultHandlers : customHandlers).add(classHandler);
+      }
+    };
+    runner.run(notifier);
+
+    assertThat(events).isEmpty();
+    // the class-level shadow is in every test's config; the third test adds another
+    assertThat(defaultHandlers).hasSize(2);
+    assertThat(defaultHandlers.get(1)).isSameAs(defaultHandlers.get(0));
+    assertThat(customHandlers).hasSize(1);
+    assertThat(customHandlers.get(0)).isNotSameAs(defaultHandlers.get(0));
+  }
+
   @Test
   public void equalityOfRobolectricFrameworkMethod() throws Exception {
     Method method = TestWithTwoMethods.class.getMethod("first");
@@ -117,6 +146,31 @@ public class RobolectricTestRunnerTest {
     }
   }
 
+  @Ignore
+  @Config(shadows = ShadowViewForSharing.class)
+  public static class TestWithCustomShadows {
+    @Test
+    public void first() throws Exception {
+    }
+
+    @Test
+    public void second() throws Exception {
+    }
+
+    @Test
+    @Config(shadows = ShadowTextViewForSharing.class)
+    public void third() throws Exception {
+    }
+  }
+
+  @Implements(View.class)
+  public static class ShadowViewForSharing {
+  }
+
+  @Implements(TextView.class)
+  public static class ShadowTextViewForSharing {
+  }
+
   @Ignore
   public static class TestWithTwoMethods {
     @Test
@@ -0,0 +1,115 @@
+package org.robolectric.internal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.RoboSettings;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.internal.dependency.DependencyJar;
+import org.robolectric.internal.dependency.DependencyResolver;
+
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class InstrumentingClassLoaderFactoryTest {
+  private final AtomicInteger resolutions = new AtomicInteger();
+  private final DependencyResolver dependencyResolver = new DependencyResolver() {
+    @Override
+    public URL getLocalArtifactUrl(DependencyJar dependency) {
+      resolutions.incrementAndGet();
+      return InstrumentingClassLoaderFactoryTest.class.getProtectionDomain().getCodeSource().getLocation();
+    }
+  };
+
+  private InstrumentationConfiguration config;
+
+  @Before
+  public void setUp() throws Exception {
+    // a configuration no other test uses, so that environments cached by other tests don't interfere
+    config = InstrumentationConfiguration.newBuilder().doNotAcquireClass(getClass().getName() + System.nanoTime()).build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    RoboSettings.setMaxSdkEnvironments(0);
+  }
+
+  @Test
+  public void shouldReuseEnvironmentsAcrossFactories() throws Exception {
+    SdkConfig sdkConfig = new SdkConfig(25);
+    int misses = InstrumentingClassLoaderFactory.getMissCount();
+    int hits = InstrumentingClassLoaderFactory.getHitCount();
+
+    SdkEnvironment first = new InstrumentingClassLoaderFactory(config, dependencyResolver).getSdkEnvironment(sdkConfig);
+    SdkEnvironment second = new InstrumentingClassLoaderFactory(config, dependencyResolver).getSdkEnvironment(sdkConfig);
+
+    assertThat(second).isSameAs(first);
+    assertThat(resolutions.get()).isEqualTo(1);
+    assertThat(InstrumentingClassLoaderFactory.getMissCount() - misses).isEqualTo(1);
+    assertThat(InstrumentingClassLoaderFactory.getHitCount() - hits).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldKeepSeparateEnvironmentsPerUniverse() throws Exception {
+    InstrumentingClassLoaderFactory factory = new InstrumentingClassLoaderFactory(config, dependencyResolver);
+    SdkConfig sdkConfig = new SdkConfig(25);
+
+    assertThat(factory.getSdkEnvironment(sdkConfig, 1)).isNotSameAs(factory.getSdkEnvironment(sdkConfig, 0));
+    assertThat(factory.getSdkEnvironment(sdkConfig, 1)).isSameAs(factory.getSdkEnvironment(sdkConfig, 1));
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEnvironmentWhenFull() throws Exception {
+    RoboSettings.setMaxSdkEnvironments(2);
+    InstrumentingClassLoaderFactory factory = new InstrumentingClassLoaderFactory(config, dependencyResolver);
+    int evictions = InstrumentingClassLoaderFactory.getEvictionCount();
+
+    SdkEnvironment sdk23 = factory.getSdkEnvironment(new SdkConfig(23));
+    SdkEnvironment sdk24 = factory.getSdkEnvironment(new SdkConfig(24));
+    assertThat(factory.getSdkEnvironment(new SdkConfig(23))).isSameAs(sdk23);
+    factory.getSdkEnvironment(new SdkConfig(25));
+
+    assertThat(InstrumentingClassLoaderFactory.getEvictionCount() - evictions).isGreaterThanOrEqualTo(1);
+    assertThat(factory.getSdkEnvironment(new SdkConfig(23))).isSameAs(sdk23);
+    assertThat(factory.getSdkEnvironment(new SdkConfig(24))).isNotSameAs(sdk24);
+  }
+
+  @Test
+  public void shouldEvictDownToLoweredLimit() throws Exception {
+    InstrumentingClassLoaderFactory factory = new InstrumentingClassLoaderFactory(config, dependencyResolver);
+    SdkEnvironment sdk23 = factory.getSdkEnvironment(new SdkConfig(23));
+    SdkEnvironment sdk24 = factory.getSdkEnvironment(new SdkConfig(24));
+
+    RoboSettings.setMaxSdkEnvironments(1);
+    SdkEnvironment sdk25 = factory.getSdkEnvironment(new SdkConfig(25));
+
+    assertThat(factory.getSdkEnvironment(new SdkConfig(25))).isSameAs(sdk25);
+    assertThat(factory.getSdkEnvironment(new SdkConfig(24))).isNotSameAs(sdk24);
+    assertThat(factory.getSdkEnvironment(new SdkConfig(23))).isNotSameAs(sdk23);
+  }
+
+  @Test
+  public void shouldRetryAfterFailedCreation() throws Exception {
+    final AtomicInteger attempts = new AtomicInteger();
+    InstrumentingClassLoaderFactory factory = new InstrumentingClassLoaderFactory(config, new DependencyResolver() {
+      @Override
+      public URL getLocalArtifactUrl(DependencyJar dependency) {
+        if (attempts.incrementAndGet() == 1) {
+          throw new IllegalStateException("offline");
+        }
+        return dependencyResolver.getLocalArtifactUrl(dependency);
+      }
+    });
+
+    try {
+      factory.getSdkEnvironment(new SdkConfig(25));
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("offline");
+    }
+    assertThat(factory.getSdkEnvironment(new SdkConfig(25))).isNotNull();
+  }
+}
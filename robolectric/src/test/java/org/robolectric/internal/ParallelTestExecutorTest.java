@@ -0,0 +1,139 @@
+package org.robolectric.internal;
+
+import android.os.Looper;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
+import org.robolectric.RoboSettings;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.manifest.AndroidManifest;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.robolectric.util.TestUtil.resourceFile;
+
+public class ParallelTestExecutorTest {
+  public static class StateHolder {
+    public static CyclicBarrier barrier;
+    public static Set<ClassLoader> classLoaders;
+    public static Set<Thread> mainThreads;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    RoboSettings.setParallelThreads(2);
+    StateHolder.barrier = new CyclicBarrier(2);
+    StateHolder.classLoaders = Collections.synchronizedSet(new HashSet<ClassLoader>());
+    StateHolder.mainThreads = Collections.synchronizedSet(new HashSet<Thread>());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    RoboSettings.setParallelThreads(1);
+  }
+
+  @Test
+  public void shouldRunTestMethodsConcurrentlyInSeparateUniverses() throws Exception {
+    Result result = run(new Runner(ConcurrentTest.class));
+
+    for (Failure failure : result.getFailures()) {
+      fail(failure.getMessage(), failure.getException());
+    }
+    assertThat(result.getRunCount()).isEqualTo(2);
+    assertThat(StateHolder.classLoaders).hasSize(2);
+    assertThat(StateHolder.mainThreads).hasSize(2);
+  }
+
+  @Test
+  public void workersShouldNotShareTheUniverseOfOtherThreads() throws Exception {
+    final Set<Integer> universes = Collections.synchronizedSet(new HashSet<Integer>());
+    RunnerScheduler scheduler = new ParallelTestExecutor(2).newScheduler();
+    for (int i = 0; i < 2; i++) {
+      scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          universes.add(ParallelTestExecutor.currentUniverse());
+          try {
+            StateHolder.barrier.await(30, TimeUnit.SECONDS);
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+    }
+    scheduler.finished();
+
+    assertThat(universes).containsOnly(1, 2);
+    assertThat(ParallelTestExecutor.currentUniverse()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldRejectChangingTheThreadCount() throws Exception {
+    ParallelTestExecutor.getInstance(2);
+    try {
+      ParallelTestExecutor.getInstance(3);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).contains("already has 2 threads");
+    }
+  }
+
+  public static class ConcurrentTest {
+    @Test public void first() throws Exception {
+      recordUniverse();
+    }
+
+    @Test public void second() throws Exception {
+      recordUniverse();
+    }
+
+    private void recordUniverse() throws Exception {
+      StateHolder.classLoaders.add(getClass().getClassLoader());
+      StateHolder.mainThreads.add(Looper.getMainLooper().getThread());
+      assertThat(Looper.getMainLooper().getThread()).isSameAs(Thread.currentThread());
+
+      // both methods must be in flight at once for the barrier to open
+      StateHolder.barrier.await(30, TimeUnit.SECONDS);
+    }
+  }
+
+  private Result run(Runner runner) throws InitializationError {
+    RunNotifier notifier = new RunNotifier();
+    Result result = new Result();
+    notifier.addListener(result.createListener());
+    runner.run(notifier);
+    return result;
+  }
+
+  public static class Runner extends RobolectricTestRunner {
+    public Runner(Class<?> testClass) throws InitializationError {
+      super(testClass);
+    }
+
+    @NotNull
+    @Override public InstrumentationConfiguration createClassLoaderConfig(Config config) {
+      return InstrumentationConfiguration.newBuilder()
+          .doNotAcquireClass(StateHolder.class.getName())
+          .build();
+    }
+
+    @Override
+    protected AndroidManifest getAppManifest(Config config) {
+      return new AndroidManifest(resourceFile("TestAndroidManifest.xml"), resourceFile("res"), resourceFile("assets"));
+    }
+  }
+}
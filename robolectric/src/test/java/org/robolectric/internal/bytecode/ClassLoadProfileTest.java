@@ -0,0 +1,139 @@
+package org.robolectric.internal.bytecode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.robolectric.internal.bytecode.testing.AChild;
+import org.robolectric.internal.bytecode.testing.AGrandparent;
+import org.robolectric.internal.bytecode.testing.AParent;
+import org.robolectric.internal.bytecode.testing.AnExampleClass;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassLoadProfileTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File cacheRoot;
+  private Path profileFile;
+  private URL testClassesUrl;
+  private InstrumentationConfiguration config;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheRoot = temporaryFolder.newFolder("cache");
+    profileFile = new File(new File(cacheRoot, "class-load-profiles"), "profile.txt").toPath();
+    testClassesUrl = AnExampleClass.class.getProtectionDomain().getCodeSource().getLocation();
+    config = InstrumentationConfiguration.newBuilder().build();
+  }
+
+  @Test
+  public void shouldRecordAcquiredClassesInLoadOrder() throws Exception {
+    ClassLoadProfile profile = ClassLoadProfile.forJars(cacheRoot, config, testClassesUrl);
+    try {
+      assertThat(profile.getPreviousClassNames()).isEmpty();
+
+      InstrumentingClassLoader classLoader = new InstrumentingClassLoader(config, null, null, profile, testClassesUrl);
+      classLoader.loadClass(AnExampleClass.class.getName());
+      classLoader.loadClass(AnExampleClass.class.getName());
+      classLoader.loadClass(String.class.getName());
+      classLoader.loadClass(AChild.class.getName());
+
+      // superclasses are defined, and so recorded, before their subclasses
+      assertThat(profile.getRecordedClassNames()).containsExactly(AnExampleClass.class.getName(),
+          AGrandparent.class.getName(), AParent.class.getName(), AChild.class.getName());
+      assertThat(ClassLoadProfile.forJars(cacheRoot, config, testClassesUrl)).isSameAs(profile);
+    } finally {
+      ClassLoadProfile.unregister(profile);
+    }
+  }
+
+  @Test
+  public void shouldSaveOnlyWhenNewClassesWereLoaded() throws Exception {
+    ClassLoadProfile profile = new ClassLoadProfile(profileFile);
+    profile.save();
+    assertThat(Files.exists(profileFile)).isFalse();
+
+    new InstrumentingClassLoader(config, null, null, profile, testClassesUrl).loadClass(AnExampleClass.class.getName());
+    profile.save();
+
+    assertThat(Files.readAllLines(profileFile, StandardCharsets.UTF_8)).containsExactly(AnExampleClass.class.getName());
+  }
+
+  @Test
+  public void classesNotLoadedByARunShouldFollowItsClassesUntilTheyAgeOut() throws Exception {
+    ClassLoadProfile firstRun = new ClassLoadProfile(profileFile);
+    InstrumentingClassLoader firstClassLoader = new InstrumentingClassLoader(config, null, null, firstRun, testClassesUrl);
+    firstClassLoader.loadClass(AChild.class.getName());
+    firstClassLoader.loadClass(AnExampleClass.class.getName());
+    firstRun.save();
+
+    ClassLoadProfile secondRun = new ClassLoadProfile(profileFile);
+    assertThat(secondRun.getPreviousClassNames()).containsExactly(AGrandparent.class.getName(),
+        AParent.class.getName(), AChild.class.getName(), AnExampleClass.class.getName());
+    InstrumentingClassLoader secondClassLoader = new InstrumentingClassLoader(config, null, null, secondRun, testClassesUrl);
+    for (String className : secondRun.getPreviousClassNames()) {
+      secondClassLoader.prepare(className);
+    }
+    // preparing classes ahead of time doesn't count as loading them
+    assertThat(secondRun.getRecordedClassNames()).isEmpty();
+    secondClassLoader.loadClass(AnExampleClass.class.getName());
+    secondRun.save();
+
+    assertThat(new ClassLoadProfile(profileFile).getPreviousClassNames()).containsExactly(AnExampleClass.class.getName(),
+        AGrandparent.class.getName(), AParent.class.getName(), AChild.class.getName());
+
+    for (int run = 2; run < ClassLoadProfile.MAX_UNUSED_RUNS; run++) {
+      ClassLoadProfile laterRun = new ClassLoadProfile(profileFile);
+      new InstrumentingClassLoader(config, null, null, laterRun, testClassesUrl).loadClass(AnExampleClass.class.getName());
+      laterRun.save();
+    }
+    assertThat(new ClassLoadProfile(profileFile).getPreviousClassNames()).hasSize(4);
+
+    ClassLoadProfile lastRun = new ClassLoadProfile(profileFile);
+    new InstrumentingClassLoader(config, null, null, lastRun, testClassesUrl).loadClass(AnExampleClass.class.getName());
+    lastRun.save();
+    assertThat(new ClassLoadProfile(profileFile).getPreviousClassNames()).containsExactly(AnExampleClass.class.getName());
+  }
+
+  @Test
+  public void concurrentRunsShouldAddToEachOthersProfiles() throws Exception {
+    ClassLoadProfile firstFork = new ClassLoadProfile(profileFile);
+    ClassLoadProfile secondFork = new ClassLoadProfile(profileFile);
+    new InstrumentingClassLoader(config, null, null, firstFork, testClassesUrl).loadClass(AChild.class.getName());
+    new InstrumentingClassLoader(config, null, null, secondFork, testClassesUrl).loadClass(AnExampleClass.class.getName());
+
+    firstFork.save();
+    secondFork.save();
+
+    assertThat(new ClassLoadProfile(profileFile).getPreviousClassNames()).containsExactly(AnExampleClass.class.getName(),
+        AGrandparent.class.getName(), AParent.class.getName(), AChild.class.getName());
+  }
+
+  @Test
+  public void preparedClassesShouldBeReleasedWhenLoadedOrDiscarded() throws Exception {
+    InstrumentingClassLoader classLoader = new InstrumentingClassLoader(config, null, null, null, testClassesUrl);
+    Map<String, byte[]> preparedClasses = ReflectionHelpers.getField(classLoader, "preparedClasses");
+
+    classLoader.prepare(AnExampleClass.class.getName());
+    classLoader.prepare(AChild.class.getName());
+    assertThat(preparedClasses).containsOnlyKeys(AnExampleClass.class.getName(), AChild.class.getName());
+
+    classLoader.loadClass(AnExampleClass.class.getName());
+    classLoader.prepare(AnExampleClass.class.getName());
+    assertThat(preparedClasses).containsOnlyKeys(AChild.class.getName());
+
+    classLoader.discardPreparedClasses();
+    assertThat(preparedClasses).isEmpty();
+    assertThat(classLoader.loadClass(AChild.class.getName()).getClassLoader()).isSameAs(classLoader);
+  }
+}
@@ -0,0 +1,82 @@
+package org.robolectric.internal.bytecode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.robolectric.internal.bytecode.testing.AnExampleClass;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstrumentedClassCacheTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File cacheRoot;
+  private URL testClassesUrl;
+  private InstrumentationConfiguration config;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheRoot = temporaryFolder.newFolder("cache");
+    testClassesUrl = AnExampleClass.class.getProtectionDomain().getCodeSource().getLocation();
+    config = InstrumentationConfiguration.newBuilder().build();
+  }
+
+  @Test
+  public void shouldReturnStoredBytes() throws Exception {
+    InstrumentedClassCache cache = new InstrumentedClassCache(cacheRoot, config, testClassesUrl);
+    String key = cache.keyFor(new byte[] {1, 2, 3});
+
+    assertThat(cache.get(key)).isNull();
+    cache.put(key, new byte[] {4, 5, 6});
+
+    assertThat(new InstrumentedClassCache(cacheRoot, config, testClassesUrl).get(key)).isEqualTo(new byte[] {4, 5, 6});
+  }
+
+  @Test
+  public void shouldMissWhenConfigurationDiffers() throws Exception {
+    InstrumentedClassCache cache = new InstrumentedClassCache(cacheRoot, config, testClassesUrl);
+    String key = cache.keyFor(new byte[] {1, 2, 3});
+    cache.put(key, new byte[] {4, 5, 6});
+
+    InstrumentationConfiguration otherConfig = InstrumentationConfiguration.newBuilder().addInstrumentedPackage("com.example.").build();
+    assertThat(new InstrumentedClassCache(cacheRoot, otherConfig, testClassesUrl).get(key)).isNull();
+  }
+
+  @Test
+  public void instrumenterFingerprintShouldChangeWithTheInstrumentersClassFiles() throws Exception {
+    assertThat(InstrumentedClassCache.INSTRUMENTER_FINGERPRINT).isNotNull();
+
+    File classesDir = temporaryFolder.newFolder("classes");
+    File packageDir = new File(classesDir, InstrumentedClassCache.class.getPackage().getName().replace('.', '/'));
+    assertThat(packageDir.mkdirs()).isTrue();
+    Files.write(new File(packageDir, "ClassInstrumentor.class").toPath(), new byte[] {1, 2, 3});
+    String fingerprint = InstrumentedClassCache.instrumenterFingerprint(classesDir);
+    assertThat(InstrumentedClassCache.instrumenterFingerprint(classesDir)).isEqualTo(fingerprint);
+
+    Files.write(new File(packageDir, "ClassInstrumentor.class").toPath(), new byte[] {1, 2, 4});
+    assertThat(InstrumentedClassCache.instrumenterFingerprint(classesDir)).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  public void warmCacheShouldDefineClassesWithoutReinstrumenting() throws Exception {
+    InstrumentedClassCache coldCache = new InstrumentedClassCache(cacheRoot, config, testClassesUrl);
+    Class<?> coldClass = new InstrumentingClassLoader(config, coldCache, testClassesUrl).loadClass(AnExampleClass.class.getName());
+    assertThat(coldCache.getMissCount()).isEqualTo(1);
+    assertThat(coldCache.getHitCount()).isEqualTo(0);
+
+    InstrumentedClassCache warmCache = new InstrumentedClassCache(cacheRoot, config, testClassesUrl);
+    Class<?> warmClass = new InstrumentingClassLoader(config, warmCache, testClassesUrl).loadClass(AnExampleClass.class.getName());
+    assertThat(warmCache.getHitCount()).isEqualTo(1);
+    assertThat(warmCache.getMissCount()).isEqualTo(0);
+
+    assertThat(warmClass).isNotSameAs(coldClass);
+    assertThat(warmClass.getInterfaces()).isEqualTo(coldClass.getInterfaces());
+    assertThat(warmClass.getDeclaredMethods().length).isEqualTo(coldClass.getDeclaredMethods().length);
+  }
+}
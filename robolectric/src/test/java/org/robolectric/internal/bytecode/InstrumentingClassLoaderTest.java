@@ -19,6 +19,7 @@ import org.robolectric.internal.bytecode.testing.AClassToForget;
 import org.robolectric.internal.bytecode.testing.AClassToRemember;
 import org.robolectric.internal.bytecode.testing.AClassWithEqualsHashCodeToString;
 import org.robolectric.internal.bytecode.testing.AClassWithFunnyConstructors;
+import org.robolectric.internal.bytecode.testing.AClassWithMergingBranches;
 import org.robolectric.internal.bytecode.testing.AClassWithMethodReturningArray;
 import org.robolectric.internal.bytecode.testing.AClassWithMethodReturningBoolean;
 import org.robolectric.internal.bytecode.testing.AClassWithMethodReturningDouble;
@@ -35,6 +36,7 @@ import org.robolectric.internal.bytecode.testing.AnInstrumentedChild;
 import org.robolectric.internal.bytecode.testing.AnInstrumentedClassWithoutToStringWithSuperToString;
 import org.robolectric.internal.bytecode.testing.AnUninstrumentedClass;
 import org.robolectric.internal.bytecode.testing.AnUninstrumentedParent;
+import org.robolectric.internal.bytecode.testing.AnotherClassWithMergingBranches;
 import org.robolectric.util.Transcript;
 import org.robolectric.util.Util;
 
@@ -47,6 +49,9 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.invoke.MethodHandles.constant;
 import static java.lang.invoke.MethodHandles.dropArguments;
@@ -759,4 +764,71 @@ public class InstrumentingClassLoaderTest {
 
     transcript.assertEventsSoFar("find foo.AClass");
   }
+
+  @Test
+  public void shouldReadEachTypeInHierarchyOnlyOnce() throws Exception {
+    InstrumentingClassLoader classLoader = new InstrumentingClassLoader(InstrumentationConfiguration.newBuilder().build());
+    classLoader.loadClass(AClassWithMergingBranches.class.getName());
+    int typeInfoReads = classLoader.getTypeInfoReadCount();
+    assertThat(typeInfoReads).isGreaterThan(0);
+
+    classLoader.loadClass(AnotherClassWithMergingBranches.class.getName());
+    assertThat(classLoader.getTypeInfoReadCount()).isEqualTo(typeInfoReads);
+    assertThat(classLoader.getInstrumentedClassCount()).isEqualTo(2);
+    assertThat(classLoader.getInstrumentationTime(TimeUnit.NANOSECONDS)).isGreaterThan(0);
+  }
+
+  @Test(timeout = 10000)
+  public void shouldLoadDifferentClassesConcurrently() throws Exception {
+    final BlockingClassLoader classLoader = new BlockingClassLoader(AnExampleClass.class.getName());
+    final AtomicReference<Class<?>> blockedClass = new AtomicReference<>();
+    Thread blockedThread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          blockedClass.set(classLoader.loadClass(AnExampleClass.class.getName()));
+        } catch (ClassNotFoundException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    blockedThread.start();
+    classLoader.blocking.await();
+
+    // would wait for the blocked thread if the whole loader were locked
+    Class<?> otherClass = classLoader.loadClass(AnUninstrumentedClass.class.getName());
+    assertSame(classLoader, otherClass.getClassLoader());
+
+    classLoader.unblock.countDown();
+    blockedThread.join();
+    assertSame(blockedClass.get(), classLoader.loadClass(AnExampleClass.class.getName()));
+  }
+
+  private static class BlockingClassLoader extends InstrumentingClassLoader {
+    static {
+      registerAsParallelCapable();
+    }
+
+    private final String classToBlock;
+    private final CountDownLatch blocking = new CountDownLatch(1);
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    BlockingClassLoader(String classToBlock) {
+      super(InstrumentationConfiguration.newBuilder().build());
+      this.classToBlock = classToBlock;
+    }
+
+    @Override
+    protected byte[] getByteCode(String className) throws ClassNotFoundException {
+      if (className.equals(classToBlock)) {
+        blocking.countDown();
+        try {
+          unblock.await();
+        } catch (InterruptedException e) {
+          throw new ClassNotFoundException(className, e);
+        }
+      }
+      return super.getByteCode(className);
+    }
+  }
 }
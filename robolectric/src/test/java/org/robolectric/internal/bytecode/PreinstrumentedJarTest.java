@@ -0,0 +1,91 @@
+package org.robolectric.internal.bytecode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.robolectric.internal.ShadowedObject;
+import org.robolectric.internal.bytecode.testing.AnExampleClass;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.robolectric.util.Util.readBytes;
+
+public class PreinstrumentedJarTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File androidAllJar;
+  private URL androidAllJarUrl;
+  private File outputDir;
+  private InstrumentationConfiguration config;
+
+  @Before
+  public void setUp() throws Exception {
+    String resName = AnExampleClass.class.getName().replace('.', '/') + ".class";
+    androidAllJar = new File(temporaryFolder.getRoot(), "android-all-test.jar");
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(resName);
+         JarOutputStream out = new JarOutputStream(new FileOutputStream(androidAllJar))) {
+      out.putNextEntry(new JarEntry(resName));
+      out.write(readBytes(in));
+      out.closeEntry();
+    }
+    androidAllJarUrl = androidAllJar.toURI().toURL();
+    outputDir = temporaryFolder.newFolder("preinstrumented");
+    config = InstrumentationConfiguration.newBuilder().build();
+  }
+
+  @Test
+  public void shouldFindJarWrittenWithSameConfiguration() throws Exception {
+    File written = PreinstrumentedJar.write(androidAllJar, outputDir, config);
+    assertThat(written.getName()).isEqualTo("android-all-test-instrumented.jar");
+
+    PreinstrumentedJar jar = PreinstrumentedJar.find(outputDir, config, androidAllJarUrl);
+    assertThat(jar).isNotNull();
+    assertThat(jar.get(AnExampleClass.class.getName())).isNotEmpty();
+    assertThat(jar.get("org.robolectric.NoSuchClass")).isNull();
+  }
+
+  @Test
+  public void shouldIgnoreJarWrittenWithDifferentConfiguration() throws Exception {
+    PreinstrumentedJar.write(androidAllJar, outputDir, config);
+
+    InstrumentationConfiguration otherConfig = InstrumentationConfiguration.newBuilder().addInstrumentedPackage("com.example.").build();
+    assertThat(PreinstrumentedJar.find(outputDir, otherConfig, androidAllJarUrl)).isNull();
+    assertThat(PreinstrumentedJar.find(temporaryFolder.newFolder("empty"), config, androidAllJarUrl)).isNull();
+  }
+
+  @Test
+  public void shouldIgnoreJarWrittenByDifferentInstrumentationCode() throws Exception {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue("Robolectric-Instrumentation-Fingerprint", "from-an-older-build");
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(new File(outputDir, "android-all-test-instrumented.jar")), manifest)) {
+      out.putNextEntry(new JarEntry("placeholder"));
+      out.closeEntry();
+    }
+
+    assertThat(PreinstrumentedJar.find(outputDir, config, androidAllJarUrl)).isNull();
+  }
+
+  @Test
+  public void shouldDefinePreinstrumentedClassesWithoutInstrumenting() throws Exception {
+    PreinstrumentedJar.write(androidAllJar, outputDir, config);
+    PreinstrumentedJar jar = PreinstrumentedJar.find(outputDir, config, androidAllJarUrl);
+
+    InstrumentingClassLoader classLoader = new InstrumentingClassLoader(config, null, jar, androidAllJarUrl);
+    Class<?> exampleClass = classLoader.loadClass(AnExampleClass.class.getName());
+
+    assertThat(exampleClass.getClassLoader()).isSameAs(classLoader);
+    assertThat(exampleClass.getInterfaces()).contains(classLoader.loadClass(ShadowedObject.class.getName()));
+    assertThat(classLoader.getInstrumentedClassCount()).isEqualTo(0);
+  }
+}
@@ -10,6 +10,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 @SuppressWarnings("unchecked")
 public class ShadowWranglerUnitTest {
@@ -140,6 +141,75 @@ public class ShadowWranglerUnitTest {
         .contains("ShadowChildOfDummyClass.methodWithoutRange()");
   }
 
+  @Test
+  public void methodInvoked_shouldReuseThePlanForRepeatedCalls() throws Exception {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowDummyClass.class, ShadowChildOfDummyClass.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, 20);
+    String methodName = internalName(ChildOfDummyClass.class) + "/methodWithoutRange()V";
+    ClassHandler.Plan plan = wrangler.methodInvoked(methodName, false, ChildOfDummyClass.class);
+    assertThat(plan).isNotNull();
+    assertThat(wrangler.methodInvoked(methodName, false, ChildOfDummyClass.class)).isSameAs(plan);
+  }
+
+  @Test
+  public void methodInvoked_shouldKeepCallingRealCodeForUnshadowedMethods() throws Exception {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowDummyClass.class, ShadowChildOfDummyClass.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, 19);
+    String methodName = internalName(ChildOfDummyClass.class) + "/methodWithoutRange()V";
+    assertThat(wrangler.methodInvoked(methodName, false, ChildOfDummyClass.class)).isNull();
+    assertThat(wrangler.methodInvoked(methodName, false, ChildOfDummyClass.class)).isNull();
+  }
+
+  @Test
+  public void shadowMethodPlan_shouldPassArgumentsAndReturnValue() throws Throwable {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowCalculator.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, 23);
+    ClassHandler.Plan plan = wrangler.methodInvoked(internalName(Calculator.class) + "/add(II)I", false, Calculator.class);
+    assertThat(plan.run(new Calculator(), new ShadowCalculator(), new Object[] {2, 3})).isEqualTo(5);
+  }
+
+  @Test
+  public void shadowMethodPlan_shouldRethrowExceptionsUnwrapped() throws Throwable {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowCalculator.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, 23);
+    ClassHandler.Plan plan = wrangler.methodInvoked(internalName(Calculator.class) + "/fail()V", false, Calculator.class);
+    try {
+      plan.run(new Calculator(), new ShadowCalculator(), new Object[0]);
+      fail("should have thrown");
+    } catch (UnsupportedOperationException e) {
+      assertThat(e.getMessage()).isEqualTo("fail");
+    }
+  }
+
+  @Test
+  public void shadowMethodPlan_shouldCallStaticShadowMethods() throws Throwable {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowCalculator.class).build();
+    ShadowWrangler wrangler = new ShadowWrangler(shadowMap, 23);
+    ClassHandler.Plan plan = wrangler.methodInvoked(internalName(Calculator.class) + "/negate(I)I", true, Calculator.class);
+    assertThat(plan.run(null, null, new Object[] {7})).isEqualTo(-7);
+  }
+
+  public static class Calculator {
+  }
+
+  @Implements(Calculator.class)
+  public static class ShadowCalculator {
+    @Implementation
+    public int add(int a, int b) {
+      return a + b;
+    }
+
+    @Implementation
+    public void fail() {
+      throw new UnsupportedOperationException("fail");
+    }
+
+    @Implementation
+    public static int negate(int a) {
+      return -a;
+    }
+  }
+
   public static class DummyClass {
   }
 
@@ -0,0 +1,14 @@
+package org.robolectric.internal.bytecode.testing;
+
+import org.robolectric.annotation.internal.Instrument;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+@Instrument
+public class AClassWithMergingBranches {
+  public List<String> newList(boolean linked) {
+    return linked ? new LinkedList<String>() : new ArrayList<String>();
+  }
+}
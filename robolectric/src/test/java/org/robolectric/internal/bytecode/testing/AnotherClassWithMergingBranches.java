@@ -0,0 +1,14 @@
+package org.robolectric.internal.bytecode.testing;
+
+import org.robolectric.annotation.internal.Instrument;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+@Instrument
+public class AnotherClassWithMergingBranches {
+  public List<Integer> newList(boolean linked) {
+    return linked ? new LinkedList<Integer>() : new ArrayList<Integer>();
+  }
+}
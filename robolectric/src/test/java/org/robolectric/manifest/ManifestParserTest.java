@@ -0,0 +1,119 @@
+package org.robolectric.manifest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.robolectric.RoboSettings;
+import org.robolectric.test.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.resourceFile;
+
+public class ManifestParserTest {
+  private static final String MANIFEST = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+      "<manifest xmlns:android=\"http://schemas.android.com/apk/res/android\" package=\"org.robolectric\">\n" +
+      "  <!-- a comment -->\n" +
+      "  <application android:name=\"App\" android:label=\"A &amp; B\">\n" +
+      "    <activity android:name=\".Main\"/>\n" +
+      "    <service android:name=\".Service\"/>\n" +
+      "  </application>\n" +
+      "</manifest>\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File cacheDir;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir = temporaryFolder.newFolder("cache");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    RoboSettings.setCacheDirectory(null);
+  }
+
+  @Test
+  public void shouldParseElementsAndQualifiedAttributes() throws Exception {
+    ManifestElement manifest = ManifestParser.parse(MANIFEST.getBytes(StandardCharsets.UTF_8));
+
+    assertThat(manifest.getName()).isEqualTo("manifest");
+    assertThat(manifest.getAttribute("package")).isEqualTo("org.robolectric");
+    ManifestElement application = manifest.getChildren("application").get(0);
+    assertThat(application.getAttribute("android:label")).isEqualTo("A & B");
+    assertThat(application.getChildren()).hasSize(2);
+    assertThat(application.getChildren("ACTIVITY").get(0).getAttribute("android:name")).isEqualTo(".Main");
+    assertThat(manifest.getElementsByTagName("service")).hasSize(1);
+  }
+
+  @Test
+  public void shouldParseAttributesWithUndeclaredPrefixes() throws Exception {
+    ManifestElement manifest = ManifestParser.parse(("<manifest package=\"org.robolectric\">\n" +
+        "  <application tools:replace=\"android:label\" android:label=\"App\"/>\n" +
+        "</manifest>\n").getBytes(StandardCharsets.UTF_8));
+
+    ManifestElement application = manifest.getChildren("application").get(0);
+    assertThat(application.getAttribute("tools:replace")).isEqualTo("android:label");
+    assertThat(application.getAttribute("android:label")).isEqualTo("App");
+  }
+
+  @Test
+  public void shouldParseManifestsWithDoctypeWithoutLoadingExternalEntities() throws Exception {
+    ManifestElement manifest = ManifestParser.parse(("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+        "<!DOCTYPE manifest SYSTEM \"http://example.invalid/manifest.dtd\" [\n" +
+        "  <!ENTITY label \"App\">\n" +
+        "  <!ENTITY secret SYSTEM \"file:///etc/passwd\">\n" +
+        "]>\n" +
+        "<manifest package=\"org.robolectric\">\n" +
+        "  <application android:label=\"&label;\">&secret;</application>\n" +
+        "</manifest>\n").getBytes(StandardCharsets.UTF_8));
+
+    assertThat(manifest.getAttribute("package")).isEqualTo("org.robolectric");
+    assertThat(manifest.getChildren("application").get(0).getAttribute("android:label")).isEqualTo("App");
+  }
+
+  @Test
+  public void shouldStoreParsedManifestsInCacheDirectory() throws Exception {
+    RoboSettings.setCacheDirectory(cacheDir.getPath());
+
+    ManifestElement parsed = ManifestParser.parse(MANIFEST.getBytes(StandardCharsets.UTF_8));
+    File[] cached = new File(cacheDir, "manifests").listFiles();
+    assertThat(cached).hasSize(1);
+
+    ManifestElement loaded = ManifestParser.parse(MANIFEST.getBytes(StandardCharsets.UTF_8));
+    assertThat(loaded).isNotSameAs(parsed);
+    assertThat(loaded.getAttributes()).isEqualTo(parsed.getAttributes());
+    ManifestElement application = loaded.getChildren("application").get(0);
+    assertThat(application.getAttributes()).isEqualTo(parsed.getChildren("application").get(0).getAttributes());
+    assertThat(application.getChildren("service").get(0).getAttribute("android:name")).isEqualTo(".Service");
+  }
+
+  @Test
+  public void shouldIgnoreCorruptCacheFiles() throws Exception {
+    RoboSettings.setCacheDirectory(cacheDir.getPath());
+    ManifestParser.parse(MANIFEST.getBytes(StandardCharsets.UTF_8));
+    File cached = new File(cacheDir, "manifests").listFiles()[0];
+    Files.write(cached.toPath(), new byte[] {1, 2, 3});
+
+    ManifestElement manifest = ManifestParser.parse(MANIFEST.getBytes(StandardCharsets.UTF_8));
+    assertThat(manifest.getAttribute("package")).isEqualTo("org.robolectric");
+  }
+
+  @Test
+  public void androidManifest_shouldReadTheSameValuesFromCache() throws Exception {
+    RoboSettings.setCacheDirectory(cacheDir.getPath());
+
+    for (int i = 0; i < 2; i++) {
+      AndroidManifest config = new AndroidManifest(resourceFile("TestAndroidManifestForActivitiesWithIntentFilterWithData.xml"), null, null);
+      assertThat(config.getPackageName()).isEqualTo("org.robolectric");
+      ActivityData activityData = config.getActivityData("org.robolectric.shadows.TestActivity");
+      assertThat(activityData.getIntentFilters().get(0).getSchemes()).containsExactly("content", "http", "https");
+    }
+    assertThat(new File(cacheDir, "manifests").listFiles()).hasSize(1);
+  }
+}
@@ -216,6 +216,63 @@ public class DefaultPackageManagerTest {
     assertThat(activities.get(0).activityInfo.targetActivity.toString()).isEqualTo("org.robolectric.shadows.TestActivity");
   }
 
+  @Test
+  public void queryIntentActivities_MatchWithImplicitIntentsInLargeManifest() throws Exception {
+    StringBuilder activities = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      activities.append("<activity android:name=\"org.robolectric.Activity").append(i).append("\">")
+          .append("<intent-filter>")
+          .append("<action android:name=\"android.intent.action.VIEW\"/>")
+          .append("<category android:name=\"android.intent.category.DEFAULT\"/>")
+          .append("<data android:scheme=\"").append(i % 2 == 0 ? "https" : "myapp").append("\" android:host=\"host").append(i).append("\"/>")
+          .append("</intent-filter>")
+          .append("<intent-filter>")
+          .append("<action android:name=\"org.robolectric.ACTION").append(i).append("\"/>")
+          .append("<category android:name=\"android.intent.category.DEFAULT\"/>")
+          .append("</intent-filter>")
+          .append("</activity>");
+    }
+    rpm.addManifest(newConfigWith("com.example.large", "<application>" + activities + "</application>"), 0);
+    rpm.setQueryIntentImplicitly(true);
+
+    Intent deepLink = new Intent(Intent.ACTION_VIEW, Uri.parse("myapp://host251/path"));
+    deepLink.addCategory(Intent.CATEGORY_DEFAULT);
+    List<ResolveInfo> resolveInfos = rpm.queryIntentActivities(deepLink, 0);
+    assertThat(resolveInfos).hasSize(1);
+    assertThat(resolveInfos.get(0).resolvePackageName).isEqualTo("com.example.large");
+    assertThat(resolveInfos.get(0).activityInfo.targetActivity).isEqualTo("org.robolectric.Activity251");
+
+    Intent action = new Intent("org.robolectric.ACTION42");
+    action.addCategory(Intent.CATEGORY_DEFAULT);
+    assertThat(rpm.resolveActivity(action, 0).activityInfo.targetActivity).isEqualTo("org.robolectric.Activity42");
+
+    assertThat(rpm.queryIntentActivities(new Intent(Intent.ACTION_VIEW, Uri.parse("https://host251/path")), 0)).isEmpty();
+  }
+
+  @Test
+  @Config(manifest = "src/test/resources/TestAndroidManifestWithServices.xml")
+  public void queryIntentServices_MatchWithImplicitIntents() throws Exception {
+    Intent i = new Intent("org.robolectric.ACTION_DIFFERENT_PACKAGE");
+
+    rpm.setQueryIntentImplicitly(true);
+    List<ResolveInfo> services = rpm.queryIntentServices(i, 0);
+    assertThat(services).hasSize(1);
+    assertThat(services.get(0).serviceInfo.name).isEqualTo("com.foo.Service");
+    assertThat(services.get(0).serviceInfo.permission).isEqualTo("com.foo.Permission");
+  }
+
+  @Test
+  @Config(manifest = "src/test/resources/TestAndroidManifestWithReceivers.xml")
+  public void queryBroadcastReceivers_MatchWithImplicitIntents() throws Exception {
+    Intent i = new Intent("org.robolectric.ACTION2");
+
+    rpm.setQueryIntentImplicitly(true);
+    List<ResolveInfo> receivers = rpm.queryBroadcastReceivers(i, 0);
+    assertThat(receivers).hasSize(1);
+    assertThat(receivers.get(0).activityInfo.name).isEqualTo("org.robolectric.manifest.AndroidManifestTest.ConfigTestReceiver");
+    assertThat(receivers.get(0).activityInfo.packageName).isEqualTo("org.robolectric");
+  }
+
   @Test
   public void resolveActivity_Match() throws Exception {
     Intent i = new Intent(Intent.ACTION_MAIN, null).addCategory(Intent.CATEGORY_LAUNCHER);
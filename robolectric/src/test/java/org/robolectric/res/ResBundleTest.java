@@ -120,6 +120,30 @@ public class ResBundleTest {
     assertThat(v).isEqualTo(val1);
   }
 
+  @Test
+  public void pickIsReResolvedWhenQualifiersChange() {
+    TypedResource<String> val1 = createStringTypedResource("v16");
+    resMap.put(resName, val1);
+    TypedResource<String> val2 = createStringTypedResource("v17");
+    resMap.put(resName, val2);
+
+    assertThat(resMap.pick(resName, "v18")).isEqualTo(val2);
+    assertThat(resMap.pick(resName, "v16")).isEqualTo(val1);
+    assertThat(resMap.pick(resName, "v18")).isEqualTo(val2);
+  }
+
+  @Test
+  public void pickSeesValuesAddedAfterAnEarlierPick() {
+    TypedResource<String> val1 = createStringTypedResource("v16");
+    resMap.put(resName, val1);
+    assertThat(resMap.pick(resName, "v18")).isEqualTo(val1);
+    assertThat(resMap.pick(new ResName("a:b/other"), "v18")).isNull();
+
+    TypedResource<String> val2 = createStringTypedResource("v17");
+    resMap.put(resName, val2);
+    assertThat(resMap.pick(resName, "v18")).isEqualTo(val2);
+  }
+
   @Test
   public void illegalResourceQualifierThrowsException() {
     TypedResource<String> val1 = createStringTypedResource("v11-en-v12");
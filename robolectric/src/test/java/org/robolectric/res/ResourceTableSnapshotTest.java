@@ -0,0 +1,92 @@
+package org.robolectric.res;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.robolectric.R;
+import org.robolectric.RoboSettings;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.lib1Resources;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class ResourceTableSnapshotTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File cacheDir;
+  private PackageResourceTable original;
+  private PackageResourceTable restored;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir = temporaryFolder.newFolder();
+    ResourceTableSnapshot snapshot = new ResourceTableSnapshot(cacheDir, "org.robolectric", false, testResources());
+    assertThat(snapshot.load()).isNull();
+
+    original = ResourceTableFactory.newResourceTable("org.robolectric", testResources());
+    snapshot.save(original);
+    restored = new ResourceTableSnapshot(cacheDir, "org.robolectric", false, testResources()).load();
+    assertThat(restored).isNotNull();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    RoboSettings.setCacheDirectory(null);
+  }
+
+  @Test
+  public void shouldRestoreResourceIds() throws Exception {
+    assertThat(restored.getPackageName()).isEqualTo("org.robolectric");
+    assertThat(restored.getPackageIdentifier()).isEqualTo(original.getPackageIdentifier());
+    assertThat(restored.getResourceIdMap()).isEqualTo(original.getResourceIdMap());
+    assertThat(restored.getResName(R.string.hello).getFullyQualifiedName()).isEqualTo("org.robolectric:string/hello");
+  }
+
+  @Test
+  public void shouldRestoreValues() throws Exception {
+    assertThat(restored.getValue(R.string.hello, "").asString()).isEqualTo(original.getValue(R.string.hello, "").asString());
+
+    TypedResource[] greetings = (TypedResource[]) restored.getValue(R.array.greetings, "").getData();
+    assertThat(greetings[0].asString()).isEqualTo("hola");
+    assertThat(greetings[1].getResType()).isEqualTo(ResType.CHAR_SEQUENCE);
+
+    PluralResourceLoader.PluralRules beer = (PluralResourceLoader.PluralRules) restored.getValue(R.plurals.beer, "");
+    assertThat(beer.find(2).getString()).isEqualTo("Two beers");
+
+    AttrData itemType = (AttrData) restored.getValue(R.attr.itemType, "").getData();
+    assertThat(itemType.getFormat()).isEqualTo(((AttrData) original.getValue(R.attr.itemType, "").getData()).getFormat());
+    assertThat(itemType.getValueFor("ungulate")).isEqualTo("1");
+
+    StyleData gastropod = (StyleData) restored.getValue(R.style.Gastropod, "").getData();
+    assertThat(gastropod.getAttrValue(new ResName("org.robolectric:attr/aspectRatio")).value).isEqualTo("1.69");
+  }
+
+  @Test
+  public void shouldRestoreFileResources() throws Exception {
+    FileTypedResource layout = (FileTypedResource) restored.getValue(R.layout.main, "");
+    assertThat(layout.getFsFile()).isEqualTo(((FileTypedResource) original.getValue(R.layout.main, "")).getFsFile());
+    assertThat(restored.getXml(new ResName("org.robolectric:layout/main"), "").getDocument()).isNotNull();
+
+    FileTypedResource.Image ninePatch = (FileTypedResource.Image) restored.getValue(R.drawable.nine_patch_drawable, "");
+    assertThat(ninePatch.isNinePatch()).isTrue();
+  }
+
+  @Test
+  public void shouldMissWhenResourcesChange() throws Exception {
+    ResourceTableSnapshot other = new ResourceTableSnapshot(cacheDir, "org.robolectric", false,
+        testResources(), lib1Resources());
+    assertThat(other.load()).isNull();
+  }
+
+  @Test
+  public void resourceTableFactory_shouldUseSnapshotsInCacheDirectory() throws Exception {
+    RoboSettings.setCacheDirectory(cacheDir.getPath());
+
+    PackageResourceTable fromSnapshot = ResourceTableFactory.newResourceTable("org.robolectric", testResources());
+    assertThat(fromSnapshot.getResourceIdMap()).isEqualTo(original.getResourceIdMap());
+  }
+}
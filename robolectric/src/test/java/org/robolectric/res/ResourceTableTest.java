@@ -4,8 +4,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.robolectric.res.builder.XmlBlock;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.resourceFile;
 
 @RunWith(JUnit4.class)
 public class ResourceTableTest {
@@ -48,4 +50,16 @@ public class ResourceTableTest {
     resourceTable.addResource(0x02999999, "type", "name");
     resourceTable.addResource(0x02999999, "type", "anotherName");
   }
+
+  @Test
+  public void getXml_shouldReuseTheParsedXmlBlock() {
+    FsFile xmlFile = resourceFile("res", "layout", "main.xml");
+    resourceTable.addResource("layout", "main",
+        new FileTypedResource(xmlFile, ResType.LAYOUT, new XmlContext("myPackage", xmlFile)));
+
+    ResName resName = new ResName("myPackage", "layout", "main");
+    XmlBlock xmlBlock = resourceTable.getXml(resName, "");
+    assertThat(xmlBlock.getDocument().getDocumentElement()).isNotNull();
+    assertThat(resourceTable.getXml(resName, "")).isSameAs(xmlBlock);
+  }
 }
@@ -0,0 +1,105 @@
+package org.robolectric.res;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.robolectric.util.TestUtil.testResources;
+
+public class ValuesFileLoaderTest {
+
+  @Test
+  public void shouldBuildTheSameTableAsTheXpathLoadersRunSerially() throws Exception {
+    PackageResourceTable dispatched = loadInParallel("org.robolectric");
+    PackageResourceTable serial = loadSerially("org.robolectric");
+
+    assertThat(describe(dispatched)).isNotEmpty().containsExactlyElementsOf(describe(serial));
+  }
+
+  @Test
+  public void shouldGenerateTheSameIdsAsTheXpathLoadersRunSerially() throws Exception {
+    PackageResourceTable dispatched = loadInParallel("android");
+    PackageResourceTable serial = loadSerially("android");
+
+    assertThat(describe(dispatched)).containsExactlyElementsOf(describe(serial));
+    assertThat(dispatched.getResourceIdMap()).isNotEmpty().isEqualTo(serial.getResourceIdMap());
+  }
+
+  @Test
+  public void shouldLoadValueResourceLoadersMadeFromXpathExpressions() throws Exception {
+    PackageResourceTable dispatched = new PackageResourceTable("org.robolectric");
+    new DocumentLoader("org.robolectric", testResources())
+        .load("values", new ValuesFileLoader(xpathLoaders(dispatched)));
+    PackageResourceTable serial = new PackageResourceTable("org.robolectric");
+    new DocumentLoader("org.robolectric", testResources(), MoreExecutors.newDirectExecutorService())
+        .load("values", xpathLoaders(serial));
+
+    List<String> descriptions = describe(dispatched);
+    assertThat(descriptions).containsExactlyElementsOf(describe(serial));
+    assertThat(descriptions.toString()).contains("bool/true_bool_value", "integer/test_integer2").doesNotContain("integer/test_integer1");
+  }
+
+  private static ValueElementLoader[] xpathLoaders(PackageResourceTable resourceTable) {
+    return new ValueElementLoader[] {
+        new ValueResourceLoader(resourceTable, "/resources/bool", "bool", ResType.BOOLEAN),
+        new ValueResourceLoader(resourceTable, "/resources/item[@type='integer']", "integer", ResType.INTEGER),
+        // not one of the forms ValuesFileLoader matches itself, so it evaluates the expression
+        new ValueResourceLoader(resourceTable, "/resources/integer[@name='test_integer2']", "integer", ResType.INTEGER),
+    };
+  }
+
+  private static PackageResourceTable loadInParallel(String packageName) {
+    PackageResourceTable resourceTable = new PackageResourceTable(packageName);
+    new DocumentLoader(packageName, testResources())
+        .load("values", new ValuesFileLoader(ResourceTableFactory.valuesLoaders(resourceTable)));
+    return resourceTable;
+  }
+
+  private static PackageResourceTable loadSerially(String packageName) {
+    PackageResourceTable resourceTable = new PackageResourceTable(packageName);
+    new DocumentLoader(packageName, testResources(), MoreExecutors.newDirectExecutorService())
+        .load("values", ResourceTableFactory.valuesLoaders(resourceTable));
+    return resourceTable;
+  }
+
+  private static List<String> describe(PackageResourceTable resourceTable) {
+    final List<String> descriptions = new ArrayList<>();
+    resourceTable.receive(new ResourceTable.Visitor<TypedResource>() {
+      @Override
+      public void visit(ResName key, Iterable<TypedResource> values) {
+        for (TypedResource value : values) {
+          descriptions.add(key.getFullyQualifiedName() + " " + describe(value));
+        }
+      }
+    });
+    return descriptions;
+  }
+
+  private static String describe(TypedResource typedResource) {
+    Object data = typedResource.getData();
+    String description;
+    if (data instanceof TypedResource[]) {
+      List<String> items = new ArrayList<>();
+      for (TypedResource item : (TypedResource[]) data) {
+        items.add(describe(item));
+      }
+      description = items.toString();
+    } else if (data instanceof StyleData) {
+      description = data + " " + ((StyleData) data).getParent() + " " + ((StyleData) data).getItems().values();
+    } else if (data instanceof List) {
+      List<String> plurals = new ArrayList<>();
+      for (Plural plural : ((PluralResourceLoader.PluralRules) typedResource).getData()) {
+        plurals.add(plural.quantity + "=" + plural.string);
+      }
+      description = plurals.toString();
+    } else {
+      description = String.valueOf(data);
+    }
+    return Arrays.asList(typedResource.getResType(), typedResource.getQualifiers(),
+        typedResource.getXmlContext().getXmlFile(), description).toString();
+  }
+}
@@ -214,6 +214,48 @@ public class ShadowContextWrapperTest {
     transcript.assertEventsSoFar("High notified of test", "Low notified of test");
   }
 
+  @Test
+  public void sendOrderedBroadcast_shouldSendReceiversWithSamePriorityInRegistrationOrder() throws Exception {
+    String action = "test";
+
+    IntentFilter lowFilter = new IntentFilter(action);
+    lowFilter.setPriority(1);
+    contextWrapper.registerReceiver(broadcastReceiver("Low"), lowFilter);
+    contextWrapper.registerReceiver(broadcastReceiver("Larry"), new IntentFilter(action));
+    IntentFilter highFilter = new IntentFilter(action);
+    highFilter.setPriority(2);
+    contextWrapper.registerReceiver(broadcastReceiver("High"), highFilter);
+    contextWrapper.registerReceiver(broadcastReceiver("Bob"), new IntentFilter(action));
+
+    contextWrapper.sendOrderedBroadcast(new Intent(action), null);
+    transcript.assertEventsSoFar("High notified of test", "Low notified of test", "Larry notified of test", "Bob notified of test");
+
+    contextWrapper.sendBroadcast(new Intent(action));
+    transcript.assertEventsSoFar("Low notified of test", "Larry notified of test", "High notified of test", "Bob notified of test");
+  }
+
+  @Test
+  public void sendBroadcast_shouldOnlySendIntentToReceiversOfItsAction() throws Exception {
+    BroadcastReceiver[] receivers = new BroadcastReceiver[200];
+    for (int i = 0; i < receivers.length; i++) {
+      receivers[i] = broadcastReceiver("Receiver" + i);
+      contextWrapper.registerReceiver(receivers[i], intentFilter("action" + (i % 10)));
+    }
+    for (int i = 0; i < receivers.length; i += 10) {
+      contextWrapper.unregisterReceiver(receivers[i]);
+    }
+
+    contextWrapper.sendBroadcast(new Intent("action0"));
+    transcript.assertNoEventsSoFar();
+
+    contextWrapper.sendBroadcast(new Intent("action3"));
+    String[] expected = new String[20];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = "Receiver" + (i * 10 + 3) + " notified of action3";
+    }
+    transcript.assertEventsSoFar(expected);
+  }
+
   @Test
   public void orderedBroadcasts_shouldAbort() throws Exception {
     String action = "test";
@@ -1,5 +1,6 @@
 package org.robolectric.shadows;
 
+import android.database.Cursor;
 import android.database.CursorWindow;
 import android.database.DatabaseUtils;
 import android.database.MatrixCursor;
@@ -42,4 +43,59 @@ public class ShadowCursorWindowTest {
 
     assertThat(window.getBlob(2, 3)).isEqualTo(new byte[]{});
   }
+
+  @Test
+  public void shouldHoldManyRows() throws Exception {
+    CursorWindow window = new CursorWindow("name");
+    window.setNumColumns(2);
+    for (int i = 0; i < 10000; i++) {
+      assertThat(window.allocRow()).isTrue();
+      window.putLong(i, i, 0);
+      window.putString("row " + i, i, 1);
+    }
+
+    assertThat(window.getNumRows()).isEqualTo(10000);
+    assertThat(window.getLong(9999, 0)).isEqualTo(9999L);
+    assertThat(window.getString(9999, 1)).isEqualTo("row 9999");
+    assertThat(window.getString(1234, 1)).isEqualTo("row 1234");
+    assertThat(window.getType(5000, 0)).isEqualTo(Cursor.FIELD_TYPE_INTEGER);
+  }
+
+  @Test
+  public void shouldConvertBetweenTypes() throws Exception {
+    CursorWindow window = new CursorWindow("name");
+    window.setNumColumns(4);
+    window.allocRow();
+    window.putLong(42, 0, 0);
+    window.putDouble(2.5, 0, 1);
+    window.putString("3.75", 0, 2);
+
+    assertThat(window.getString(0, 0)).isEqualTo("42");
+    assertThat(window.getDouble(0, 0)).isEqualTo(42.0);
+    assertThat(window.getLong(0, 1)).isEqualTo(2L);
+    assertThat(window.getString(0, 1)).isEqualTo("2.5");
+    assertThat(window.getDouble(0, 2)).isEqualTo(3.75);
+    assertThat(window.getBlob(0, 2)).isEqualTo("3.75".getBytes());
+    assertThat(window.getType(0, 3)).isEqualTo(Cursor.FIELD_TYPE_NULL);
+    assertThat(window.getLong(0, 3)).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldOverwriteValuesAndStartEmptyAfterClear() throws Exception {
+    CursorWindow window = new CursorWindow("name");
+    window.setNumColumns(1);
+    window.allocRow();
+    window.putString("first", 0, 0);
+    window.putBlob(new byte[] {1, 2}, 0, 0);
+    assertThat(window.getType(0, 0)).isEqualTo(Cursor.FIELD_TYPE_BLOB);
+    assertThat(window.getBlob(0, 0)).isEqualTo(new byte[] {1, 2});
+
+    window.clear();
+    window.setNumColumns(1);
+    assertThat(window.getNumRows()).isEqualTo(0);
+    window.allocRow();
+    assertThat(window.getType(0, 0)).isEqualTo(Cursor.FIELD_TYPE_NULL);
+    window.putString("second", 0, 0);
+    assertThat(window.getString(0, 0)).isEqualTo("second");
+  }
 }
@@ -225,6 +225,117 @@ public class ShadowLogTest {
     ShadowLog.stream = old;
   }
 
+  @Test
+  public void shouldKeepOnlyTheMostRecentLogsPerTag() throws Exception {
+    ShadowLog.setMaxLogsPerTag(2);
+    for (int i = 0; i < 5; i++) {
+      Log.d("tag1", "tag1 " + i);
+      Log.d("tag2", "tag2 " + i);
+    }
+
+    assertThat(ShadowLog.getLogsForTag("tag1")).extracting("msg").containsExactly("tag1 3", "tag1 4");
+    assertThat(ShadowLog.getLogs()).extracting("msg").containsExactly("tag1 3", "tag2 3", "tag1 4", "tag2 4");
+  }
+
+  @Test
+  public void shouldNotRecordLogsBelowMinimumRecordedLevel() throws Exception {
+    ShadowLog.setMinimumRecordedLevel(Log.INFO);
+    Log.v("tag", "verbose");
+    Log.d("tag", "debug");
+    Log.i("tag", "info");
+    Log.e("tag", "error");
+
+    assertThat(ShadowLog.getLogsForTag("tag")).extracting("msg").containsExactly("info", "error");
+  }
+
+  @Test
+  public void shouldRecordLogsFromManyThreads() throws Exception {
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      final String tag = "thread" + i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            Log.d(tag, Integer.toString(j));
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(ShadowLog.getLogs()).hasSize(4000);
+    assertUniformLogsForTag("thread2", 1000);
+  }
+
+  @Test
+  public void shouldLogToStreamAsynchronously() throws Exception {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream old = ShadowLog.stream;
+    try {
+      ShadowLog.setStreamAsynchronously(new PrintStream(bos));
+      Log.d("tag", "msg");
+      Log.i("tag", "another msg");
+      ShadowLog.flushStream();
+
+      String lineSeparator = System.getProperty("line.separator");
+      assertThat(new String(bos.toByteArray())).isEqualTo("D/tag: msg" + lineSeparator + "I/tag: another msg" + lineSeparator);
+      assertThat(ShadowLog.getLogsForTag("tag")).hasSize(2);
+    } finally {
+      ShadowLog.setStreamAsynchronously(null);
+      ShadowLog.stream = old;
+    }
+  }
+
+  @Test
+  public void settingStream_shouldWritePendingLogsAndStopAsynchronousWriting() throws Exception {
+    ByteArrayOutputStream asyncBos = new ByteArrayOutputStream();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream old = ShadowLog.stream;
+    try {
+      ShadowLog.setStreamAsynchronously(new PrintStream(asyncBos));
+      Log.d("tag", "msg");
+      ShadowLog.stream = new PrintStream(bos);
+      Log.i("tag", "another msg");
+
+      String lineSeparator = System.getProperty("line.separator");
+      assertThat(new String(asyncBos.toByteArray())).isEqualTo("D/tag: msg" + lineSeparator);
+      assertThat(new String(bos.toByteArray())).isEqualTo("I/tag: another msg" + lineSeparator);
+      assertThat(liveLogWriterThreads()).isEqualTo(0);
+    } finally {
+      ShadowLog.stream = old;
+    }
+  }
+
+  @Test
+  public void reset_shouldWritePendingLogsAndStopAsynchronousWriting() throws Exception {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    PrintStream old = ShadowLog.stream;
+    try {
+      ShadowLog.setStreamAsynchronously(new PrintStream(bos));
+      Log.d("tag", "msg");
+      ShadowLog.reset();
+
+      assertThat(new String(bos.toByteArray())).isEqualTo("D/tag: msg" + System.getProperty("line.separator"));
+      assertThat(liveLogWriterThreads()).isEqualTo(0);
+    } finally {
+      ShadowLog.stream = old;
+    }
+  }
+
+  private static int liveLogWriterThreads() {
+    int count = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.isAlive() && "robolectric-log-writer".equals(thread.getName())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   private void assertLogged(int type, String tag, String msg, Throwable throwable) {
     LogItem lastLog = ShadowLog.getLogs().get(0);
     assertEquals(type, lastLog.type);
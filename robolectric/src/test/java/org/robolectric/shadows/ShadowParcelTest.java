@@ -12,7 +12,6 @@ import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
-import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.TestRunners;
@@ -534,13 +533,54 @@ public class ShadowParcelTest {
     assertThat(parcel2.readByte()).isEqualTo((byte) 0xAF);
   }
 
-  @Test @Ignore("Needs implementation in ShadowParcel.ByteBuffer")
+  @Test
+  public void testMarshallUsesNativeLayout() {
+    parcel.writeInt(0x01020304);
+    parcel.writeString("hi");
+    parcel.writeByteArray(new byte[] {5, 6, 7});
+
+    assertThat(parcel.marshall()).isEqualTo(new byte[] {
+        4, 3, 2, 1,
+        2, 0, 0, 0, 'h', 0, 'i', 0, 0, 0, 0, 0,
+        3, 0, 0, 0, 5, 6, 7, 0});
+  }
+
+  @Test
+  public void testOverwriteInMiddleOfParcel() {
+    parcel.writeInt(1);
+    parcel.writeString("placeholder");
+    parcel.writeInt(3);
+    int end = parcel.dataPosition();
+
+    parcel.setDataPosition(0);
+    parcel.writeInt(42);
+    parcel.setDataPosition(end);
+    parcel.writeInt(4);
+
+    parcel.setDataPosition(0);
+    assertThat(parcel.readInt()).isEqualTo(42);
+    assertThat(parcel.readString()).isEqualTo("placeholder");
+    assertThat(parcel.readInt()).isEqualTo(3);
+    assertThat(parcel.readInt()).isEqualTo(4);
+  }
+
+  @Test
+  public void testReadWriteByteArrayWithOffset() {
+    parcel.writeByteArray(new byte[] {1, 2, 3, 4, 5}, 1, 3);
+    parcel.writeInt(99);
+    parcel.setDataPosition(0);
+
+    assertThat(parcel.createByteArray()).isEqualTo(new byte[] {2, 3, 4});
+    assertThat(parcel.readInt()).isEqualTo(99);
+  }
+
+  @Test
   public void testSetDataSize() {
     parcel.setDataSize(8);
     assertThat(parcel.dataSize()).isEqualTo(8);
   }
 
-  @Test @Ignore("Needs implementation in ShadowParcel.ByteBuffer")
+  @Test
   public void testSetDataCapacity() {
     parcel.setDataCapacity(8);
     assertThat(parcel.dataCapacity()).isEqualTo(8);
@@ -25,10 +25,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @RunWith(TestRunners.MultiApiSelfTest.class)
 @Config(minSdk = LOLLIPOP)
 public class ShadowSQLiteConnectionTest {
+  private static final String IN_MEMORY_PATH = ":memory:";
+
   private SQLiteDatabase database;
   private File databasePath;
   private long ptr;
@@ -46,7 +50,9 @@ public class ShadowSQLiteConnectionTest {
 
   @After
   public void tearDown() throws Exception {
-    database.close();
+    if (database != null) {
+      database.close();
+    }
   }
 
   @Test
@@ -164,6 +170,96 @@ public class ShadowSQLiteConnectionTest {
     inMemoryDb.close();
   }
 
+  @Test
+  public void reset_keepsDatabaseThread() {
+    final ExecutorService dbExecutor = ReflectionHelpers.getField(CONNECTIONS, "dbExecutor");
+    ShadowSQLiteConnection.reset();
+
+    assertThat(ReflectionHelpers.getField(CONNECTIONS, "dbExecutor")).isSameAs(dbExecutor);
+    assertThat(dbExecutor.isShutdown()).isFalse();
+  }
+
+  @Test
+  public void databaseThread_shouldStopOnceIdleWithNoOpenConnections() throws Exception {
+    ShadowSQLiteConnection.Connections connections = new ShadowSQLiteConnection.Connections(50);
+    ThreadPoolExecutor dbExecutor = ReflectionHelpers.getField(connections, "dbExecutor");
+
+    long connectionPtr = connections.open(IN_MEMORY_PATH);
+    Thread.sleep(200);
+    assertThat(dbExecutor.getPoolSize()).as("pool size while a connection is open").isEqualTo(1);
+
+    connections.close(connectionPtr);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (dbExecutor.getPoolSize() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(dbExecutor.getPoolSize()).as("pool size once idle").isEqualTo(0);
+  }
+
+  @Test
+  public void test_setUseDirectExecution() throws Exception {
+    // connections opened on the database thread can't be closed from this one, so close them before switching
+    database.close();
+    database = null;
+    ShadowSQLiteConnection.nativeClose(ptr);
+
+    ShadowSQLiteConnection.setUseDirectExecution(true);
+    SQLiteDatabase directDb = createDatabase("direct.db");
+    directDb.execSQL("create table things (name text)");
+    directDb.execSQL("insert into things values ('spoon')");
+
+    // sqlite4java only allows a connection to be used from the thread which opened it
+    getSQLiteConnection(directDb).exec("select * from things");
+    assertThat(simpleQueryForList(directDb, "select name from things")).containsExactly("spoon");
+    directDb.close();
+  }
+
+  @Test
+  public void close_shouldKeepDatabasesOpenedThroughNonNormalizedPaths() throws Exception {
+    File databaseDir = RuntimeEnvironment.application.getDatabasePath("database.db").getParentFile();
+    String path = databaseDir.getPath() + "//unnormalized.db";
+    SQLiteDatabase unnormalizedDb = SQLiteDatabase.openOrCreateDatabase(path, null);
+    unnormalizedDb.execSQL("create table things (name text)");
+    unnormalizedDb.close();
+
+    assertThat(new File(databaseDir, "unnormalized.db")).exists();
+  }
+
+  @Test
+  public void saveDatabaseTemplate_shouldSeedDatabasesWithTheSameName() throws Exception {
+    database.execSQL("insert into routine(name) values ('Hand press 1')");
+    ShadowSQLiteConnection.saveDatabaseTemplate(databasePath.getPath());
+    try {
+      File otherDir = new File(databasePath.getParentFile(), "other");
+      otherDir.mkdirs();
+      SQLiteDatabase copy = SQLiteDatabase.openOrCreateDatabase(new File(otherDir, "database.db").getPath(), null);
+      assertThat(simpleQueryForList(copy, "SELECT `name` FROM `routine`")).containsExactly("Hand press 1");
+      copy.execSQL("insert into routine(name) values ('Hand press 2')");
+      copy.close();
+
+      assertThat(simpleQueryForList(database, "SELECT `name` FROM `routine`")).containsExactly("Hand press 1");
+    } finally {
+      ShadowSQLiteConnection.clearDatabaseTemplates();
+    }
+  }
+
+  @Test
+  public void saveDatabaseTemplate_shouldSeedInMemoryDatabases() throws Exception {
+    database.execSQL("insert into routine(name) values ('Hand press 1')");
+    ShadowSQLiteConnection.saveDatabaseTemplate(databasePath.getPath());
+    try {
+      ShadowSQLiteConnection.setUseInMemoryDatabase(true);
+      SQLiteDatabase copy = createDatabase("database.db");
+      copy.execSQL("insert into routine(name) values ('Hand press 2')");
+      assertThat(simpleQueryForList(copy, "SELECT `name` FROM `routine`")).containsExactly("Hand press 1", "Hand press 2");
+      copy.close();
+
+      assertThat(simpleQueryForList(database, "SELECT `name` FROM `routine`")).containsExactly("Hand press 1");
+    } finally {
+      ShadowSQLiteConnection.clearDatabaseTemplates();
+    }
+  }
+
   private SQLiteDatabase createDatabase(String filename) {
     databasePath = RuntimeEnvironment.application.getDatabasePath(filename);
     databasePath.getParentFile().mkdirs();
@@ -281,6 +281,43 @@ public class ShadowThemeTest {
         .isEqualTo("string 1 from Theme.Robolectric");
   }
 
+  @Test
+  public void applyStyle_shouldChangeDefaultStylesAlreadyLookedUp() throws Exception {
+    Resources.Theme theme = resources.newTheme();
+    theme.applyStyle(R.style.Theme_Robolectric, false);
+    assertThat(theme.obtainStyledAttributes(null, new int[]{android.R.attr.background}, android.R.attr.buttonStyle, 0)
+        .getColor(0, 0)).isEqualTo(0xff00ff00);
+
+    theme.applyStyle(R.style.Theme_AnotherTheme, true);
+    assertThat(theme.obtainStyledAttributes(null, new int[]{android.R.attr.background}, android.R.attr.buttonStyle, 0)
+        .getColor(0, 0)).isEqualTo(0xffff0000);
+  }
+
+  @Test
+  public void setTo_shouldChangeDefaultStylesAlreadyLookedUp() throws Exception {
+    Resources.Theme theme = resources.newTheme();
+    theme.applyStyle(R.style.Theme_Robolectric, false);
+    assertThat(theme.obtainStyledAttributes(null, new int[]{android.R.attr.background}, android.R.attr.buttonStyle, 0)
+        .getColor(0, 0)).isEqualTo(0xff00ff00);
+
+    Resources.Theme anotherTheme = resources.newTheme();
+    anotherTheme.applyStyle(R.style.Theme_AnotherTheme, false);
+    theme.setTo(anotherTheme);
+    assertThat(theme.obtainStyledAttributes(null, new int[]{android.R.attr.background}, android.R.attr.buttonStyle, 0)
+        .getColor(0, 0)).isEqualTo(0xffff0000);
+  }
+
+  @Test
+  public void whenInflatingAThemedLayoutRepeatedly_shouldResolveTheSameValues() throws Exception {
+    TestActivity activity = buildActivity(TestActivityWithAnotherTheme.class).create().get();
+    for (int i = 0; i < 50; i++) {
+      View view = activity.getLayoutInflater().inflate(R.layout.styles_button_layout, null);
+      Button button = (Button) view.findViewById(R.id.button);
+      assertThat(((ColorDrawable) button.getBackground()).getColor()).isEqualTo(Color.RED);
+      assertThat(button.getMinWidth()).isEqualTo(42);
+    }
+  }
+
   @Test
   public void whenStyleSpecifiesAttr_obtainStyledAttribute_findsCorrectValue() throws Exception {
     Resources.Theme theme = resources.newTheme();